@@ -0,0 +1,157 @@
+/** 	
+ * Name: BreakpointThresholdOptimiser.java
+ * 
+ * Purpose: Threshold optimiser for RSSalg that evaluates every distinct final training set defined by the label agreement/example occurrence values in the statistic.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import experimentSetting.GASettings;
+
+/**
+ * Threshold optimiser that finds the exact optimum of the label agreement/example occurrence threshold pair. 
+ * <p>
+ * The final training set defined by a candidate only changes when one of the thresholds crosses the label agreement or example occurrence of some 
+ * instance in the statistic (a breakpoint). Thus, instead of searching the threshold space, the optimiser enumerates the distinct final training sets:
+ * for each example occurrence value E (from the highest to the lowest), the label threshold takes each label agreement value L of the instances with the 
+ * example occurrence of at least E. The pair (E, L) is skipped if no instance with the example occurrence of exactly E has the label agreement of at least L, as
+ * its training set is the same as the one already enumerated for the higher example occurrence value. Each enumerated training set is different (its 
+ * instances have the minimal example occurrence E and the minimal label agreement L).
+ * <p>
+ * The breakpoints are snapped down to the grid of whole percents the GA searches (see {@link GAThresholdOptimiser}): for a threshold t on the grid, 
+ * a value v passes the threshold (v &gt;= t) exactly when its snapped value floor(100v)/100 does, so the enumerated training sets are the distinct training 
+ * sets the GA can reach, and the breakpoints that fall into the same percent are evaluated once. Each enumerated candidate is checked to contain the 
+ * instances that defined its breakpoints.
+ * <p>
+ * The candidates for one example occurrence value are evaluated concurrently through the candidate evaluator (see evaluationThreads in GA properties). 
+ * The number of evaluated candidates is bounded by the number of distinct example occurrence values (at most the number of co-training classifiers) 
+ * times the number of distinct label agreement values in the statistic, which is generally much lower than the number of candidates evaluated by GA.
+ */
+public class BreakpointThresholdOptimiser extends ThresholdOptimiser {
+	
+	protected Candidate optimise() throws Exception{
+		// label agreement values of the instances, grouped by the example occurrence value (from the highest to the lowest)
+		TreeMap<Double, List<Double>> labelAgreements = new TreeMap<Double, List<Double>>(Collections.reverseOrder());
+		// snapped label agreement and example occurrence of each instance (used to check the enumerated candidates)
+		Map<Double, double[]> snapped = new HashMap<Double, double[]>();
+		for(double id : classifierStatistics.getExampleIDs()){
+			double exampleOccurence = snap(classifierStatistics.getExampleOccurencePercent(id));
+			double labelAgreement = snap(classifierStatistics.getLabelAgreementPercent(id));
+			List<Double> values = labelAgreements.get(exampleOccurence);
+			if(values == null){
+				values = new ArrayList<Double>();
+				labelAgreements.put(exampleOccurence, values);
+			}
+			values.add(labelAgreement);
+			snapped.put(id, new double[]{labelAgreement, exampleOccurence});
+		}
+		System.out.println("Starting breakpoint threshold optimiser fold " + fold);
+		System.out.println(labelAgreements.size() + " distinct example occurrence values in the statistic");
+		int noCandidates = 0;
+		TreeSet<Double> labelValues = new TreeSet<Double>(Collections.reverseOrder()); // headSet(L) holds the values above L
+		for(double exampleThreshold : labelAgreements.keySet()){
+			double maxLabelAgreement = Collections.max(labelAgreements.get(exampleThreshold));
+			labelValues.addAll(labelAgreements.get(exampleThreshold));
+			noCandidates += labelValues.size() - labelValues.headSet(maxLabelAgreement).size();
+		}
+		GASettings settings = GASettings.getInstance();
+		System.out.println(noCandidates + " breakpoint candidates to evaluate (GA budget: " + settings.getGenerationSize() * settings.getIterationNo() + " candidates)");
+		
+		Candidate best = null;
+		Set<Double> reachedLabelAgreements = new TreeSet<Double>(Collections.reverseOrder()); // label agreements of the instances with the example occurrence of at least E
+		for(double exampleThreshold : labelAgreements.keySet()){
+			double maxLabelAgreement = Collections.max(labelAgreements.get(exampleThreshold));
+			reachedLabelAgreements.addAll(labelAgreements.get(exampleThreshold));
+			
+			List<Candidate> candidates = new ArrayList<Candidate>();
+			for(double labelThreshold : reachedLabelAgreements)
+				if(labelThreshold <= maxLabelAgreement) // otherwise the training set is the same as for the previous example occurrence threshold
+					candidates.add(new Candidate(labelThreshold, exampleThreshold, classifierStatistics));
+			for(Candidate candidate : candidates)
+				checkBreakpoints(candidate, snapped);
+			evaluateCandidates(candidates, best);
+			
+			for(Candidate candidate : candidates)
+				if(best == null || candidate.getFitness() > best.getFitness())
+					best = candidate;
+			logProgress(best.getFitness());
+			
+			if(GASettings.getInstance().isLogGA()){
+				Collections.sort(candidates);
+				log("Example occurrence threshold " + exampleThreshold, candidates);
+			}
+		}
+		
+		System.out.println("Evaluated " + noEvaluatedCandidates + " distinct training sets (" + fitnessCache.getNoEvaluations() + " classifiers trained)");
+		System.out.println("Best candidate: " + best);
+		System.out.println("------------------------------------------------------------------------------");
+		return best;
+	}
+
+	/**
+	 * Snaps the label agreement/example occurrence down to the grid of whole percents
+	 * @param value the value in the range [0, 1]
+	 * @return the largest whole percent (in the range [0, 1]) that is not higher than the value
+	 */
+	private static double snap(double value){
+		return Math.floor(value * 100 + 1e-9) / 100; // the tolerance keeps the values already on the grid (e.g. 0.57 * 100 = 56.99999999999999)
+	}
+	
+	/**
+	 * Checks that the training set of the candidate contains the instances that defined its breakpoints: an instance with the snapped label agreement
+	 * equal to the label threshold and an instance with the snapped example occurrence equal to the example occurrence threshold
+	 * @param candidate the enumerated candidate
+	 * @param snapped the snapped label agreement and example occurrence of each instance (key: instance id)
+	 * @throws Exception if the training set of the candidate misses an instance that defined its breakpoint
+	 */
+	private static void checkBreakpoints(Candidate candidate, Map<Double, double[]> snapped) throws Exception{
+		boolean labelBreakpoint = false;
+		boolean exampleBreakpoint = false;
+		for(double id : candidate.getPredictions().keySet()){
+			double[] values = snapped.get(id);
+			labelBreakpoint |= values[0] == candidate.getLabelThreshold();
+			exampleBreakpoint |= values[1] == candidate.getExampleThreshold();
+		}
+		if(!labelBreakpoint || !exampleBreakpoint)
+			throw new Exception("ERROR: the training set of the breakpoint candidate " + candidate.getLabelThreshold() + ", " + candidate.getExampleThreshold() + 
+					" does not contain the instance that defined its " + (labelBreakpoint ? "example occurrence" : "label agreement") + " breakpoint");
+	}
+
+	public String getName() {
+		return "breakpoints";
+	}
+}
@@ -31,7 +31,9 @@
  **/
 package algorithms.RSSalg.GA;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.HashMap;
 import java.util.Map;
 
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
@@ -41,7 +43,9 @@ import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
  * Each candidate is a label agreement threshold and example occurrence threshold pair. The thresholds are used for elimination of "unreliably labeled" 
  * examples from the final training set in RSSalg 
  */
-public class Candidate implements Comparable<Candidate>{
+public class Candidate implements Comparable<Candidate>, Serializable{
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Label agreement threshold
 	 */
@@ -58,6 +62,11 @@ public class Candidate implements Comparable<Candidate>{
 	 * Actual fitness of the candidate (evaluated on the supplied test set). -1 if not evaluated
 	 */
 	protected double actualFitness;
+	/**
+	 * Whether the evaluation of the candidate was stopped before the whole test set was used, because the candidate could not beat the best candidate
+	 * (see racing in GA properties) 
+	 */
+	protected boolean cutShort = false;
 	/**
 	 * Instance ids and their predictions for instances kept in the training set (defined by the candidate thresholds). Null if not evaluated.
 	 */
@@ -80,6 +89,34 @@ public class Candidate implements Comparable<Candidate>{
 		setLeftOut(classifiers.getExamplesThatDontExceedThresholds(labelThreshold, exampleThreshold));
 	}
 	
+	/**
+	 * Creates a copy of the candidate (used when the candidate migrates between the populations, so the crossover and the mutation in one population 
+	 * do not change the candidate in the other)
+	 * @param other the candidate to copy
+	 */
+	public Candidate(Candidate other){
+		this(other, new HashMap<Double, String>(other.predictions), new HashMap<Double, String>(other.leftOut));
+	}
+	
+	private Candidate(Candidate other, Map<Double, String> predictions, Map<Double, String> leftOut){
+		this.labelThreshold = other.labelThreshold;
+		this.exampleThreshold = other.exampleThreshold;
+		this.fitness = other.fitness;
+		this.actualFitness = other.actualFitness;
+		this.cutShort = other.cutShort;
+		setPredictions(predictions);
+		setLeftOut(leftOut);
+	}
+	
+	/**
+	 * Returns the copy of the thresholds and the evaluation of the evaluated candidate (used for the deferred logging, as the crossover and the mutation 
+	 * change the thresholds of the candidate). The copy shares the predictions with the candidate, as they do not change once the candidate is evaluated
+	 * @return the copy of the candidate
+	 */
+	public Candidate snapshot(){
+		return new Candidate(this, predictions, leftOut);
+	}
+	
 	/**
 	 * Returns label agreement threshold 
 	 * @return label agreement threshold
@@ -114,8 +151,25 @@ public class Candidate implements Comparable<Candidate>{
 	 * @param actualFitness the actual (true) fitness evaluated on the test set
 	 */
 	public void setCandidateEvaluation(double fitness, double actualFitness){
+		setCandidateEvaluation(fitness, actualFitness, false);
+	}
+	/**
+	 * Sets the fitness measure of the candidate
+	 * @param fitness the assessed fitness 
+	 * @param actualFitness the actual (true) fitness evaluated on the test set
+	 * @param cutShort whether the fitness is assessed only on the part of the test set, because the candidate could not beat the best candidate
+	 */
+	public void setCandidateEvaluation(double fitness, double actualFitness, boolean cutShort){
 		this.fitness = fitness;
 		this.actualFitness = actualFitness;
+		this.cutShort = cutShort;
+	}
+	/**
+	 * Returns whether the evaluation of the candidate was stopped before the whole test set was used, because the candidate could not beat the best candidate
+	 * @return true if the evaluation was cut short
+	 */
+	public boolean isCutShort() {
+		return cutShort;
 	}
 	/**
 	 * Returns the assessed fitness of the candidate or -1 if the candidates fitness is not assessed yet
@@ -177,6 +231,8 @@ public class Candidate implements Comparable<Candidate>{
 				retStr += "Actual fitness " + df.format(actualFitness) + ";";
 			else
 				retStr += "Actual fitness not evaluated; ";
+			if(cutShort)
+				retStr += " Evaluation cut short;";
 		}else
 			retStr += " Candidate not evaluated. ";
 		retStr += " Instances in the final dataset: " + predictions.size() + ".";
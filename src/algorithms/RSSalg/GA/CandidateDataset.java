@@ -0,0 +1,200 @@
+/** 	
+ * Name: CandidateDataset.java
+ * 
+ * Purpose: Index over the data of one fold used to build the training and test sets of the candidates without copying the whole data.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import util.InstancesManipulation;
+import util.MappedInstances;
+import weka.core.Instance;
+import weka.core.Instances;
+import algorithms.co_training.CoTrainingData;
+
+/**
+ * Index over the data of one fold (the first view of the labeled and unlabeled instances) that is shared by all candidates evaluated in the fold. 
+ * <p>
+ * The training and test sets of a candidate are built only from the instances selected by the candidate: each selected instance is found by its id, 
+ * added to the new dataset in the order of the fold data and labeled with the label assigned by the candidate. Since the instances added to the new 
+ * dataset are copied, the shared data is never modified and can be used by the candidates evaluated concurrently. This replaces copying the whole 
+ * {@link CoTrainingData} object for each candidate and moving the instances between its labeled, unlabeled and test sets (see 
+ * {@link InstancesManipulation#setTrainingSet(Map, CoTrainingData)}), which results with the same datasets. 
+ */
+public class CandidateDataset {
+	/**
+	 * The data the index is created for
+	 */
+	protected CoTrainingData source;
+	/**
+	 * The indexed data (the source data with merged views, or the source data itself)
+	 */
+	protected CoTrainingData data;
+	/**
+	 * Labeled instances followed by the unlabeled instances (the first view of the indexed data). If the unlabeled data is kept off the heap 
+	 * (see {@link util.MappedInstances}), only the labeled instances are held and the unlabeled instances are read from {@link #unlabeled} on access
+	 */
+	protected Instance[] instances;
+	protected Instances unlabeled;
+	protected int numLabeled;
+	/**
+	 * Ids of the instances in {@link #instances}
+	 */
+	protected double[] ids;
+	/**
+	 * Position of the instance in {@link #instances}. Key: instance id, value: position
+	 */
+	protected Map<Double, Integer> positions = new HashMap<Double, Integer>();
+	
+	/**
+	 * Creates the index over the data of the fold 
+	 * @param data the data of the fold (labeled, unlabeled and test data). The data is not modified
+	 * @param mergeViews whether the views should be merged (in which case the copy of the data is indexed)
+	 * @throws Exception if there was an error merging the views
+	 */
+	public CandidateDataset(CoTrainingData data, boolean mergeViews) throws Exception{
+		this.source = data;
+		if(mergeViews){
+			data = new CoTrainingData(data);
+			data.mergeViews();
+		}
+		this.data = data;
+		
+		Instances labeled = data.peekLabeledData()[0];
+		unlabeled = data.peekUnlabeledData()[0];
+		numLabeled = labeled.numInstances();
+		boolean offHeap = unlabeled instanceof MappedInstances;
+		instances = new Instance[numLabeled + (offHeap ? 0 : unlabeled.numInstances())];
+		for(int i=0; i<numLabeled; i++)
+			instances[i] = labeled.instance(i);
+		if(!offHeap)
+			for(int i=0; i<unlabeled.numInstances(); i++)
+				instances[numLabeled + i] = unlabeled.instance(i);
+		ids = new double[numLabeled + unlabeled.numInstances()];
+		for(int i=0; i<ids.length; i++){
+			ids[i] = Double.parseDouble(InstancesManipulation.getInstanceID(getInstance(i)));
+			positions.put(ids[i], i);
+		}
+	}
+	
+	/**
+	 * Returns the instance at the given position of the index
+	 */
+	private Instance getInstance(int position){
+		return position < instances.length ? instances[position] : unlabeled.instance(position - numLabeled);
+	}
+	
+	/**
+	 * Returns the number of the indexed instances
+	 * @return number of the labeled and unlabeled instances
+	 */
+	public int size(){
+		return ids.length;
+	}
+	
+	/**
+	 * Returns the position of the instance in the index (labeled instances first, followed by the unlabeled instances)
+	 * @param id instance id
+	 * @return the position of the instance or -1 if the instance is not in the indexed data
+	 */
+	public int getPosition(double id){
+		Integer position = positions.get(id);
+		return position == null ? -1 : position;
+	}
+	
+	/**
+	 * Returns the id of the instance at the given position of the index
+	 * @param position the position
+	 * @return instance id
+	 */
+	public double getId(int position){
+		return ids[position];
+	}
+	
+	/**
+	 * Returns the code of the label: the index of the label among the values of the class attribute
+	 * @param label the label
+	 * @return the code of the label or -1 if the label is not a value of the class attribute
+	 */
+	public int getLabelCode(String label){
+		return data.peekLabeledData()[0].classAttribute().indexOfValue(label);
+	}
+	
+	/**
+	 * Returns the data the index is created for
+	 * @return the data the index is created for
+	 */
+	public CoTrainingData getSource() {
+		return source;
+	}
+	
+	/**
+	 * Creates the dataset that contains only the given instances, labeled with the given labels. The instances are in the same order as in the indexed
+	 * data (labeled instances first, followed by the unlabeled instances)
+	 * @param labels instances for the dataset. Key: instance id, value: label for that instance
+	 * @return the new dataset 
+	 * @throws Exception if some of the given instances are missing in both labeled and unlabeled data
+	 */
+	public Instances getInstances(Map<Double, String> labels) throws Exception{
+		int[] selected = new int[labels.size()];
+		String missingInstances = "";
+		int noSelected = 0;
+		for(double id : labels.keySet()){
+			Integer position = positions.get(id);
+			if(position == null)
+				missingInstances += id + " ";
+			else
+				selected[noSelected++] = position;
+		}
+		if(!missingInstances.equals(""))
+			throw new Exception("ERROR: not all predictions found. Ids missing in data: " + missingInstances);
+		Arrays.sort(selected);
+		
+		Instances result = new Instances(data.peekLabeledData()[0], selected.length);
+		for(int position : selected){
+			Instance instance = getInstance(position);
+			result.add(instance); // adds the copy of the instance
+			String label = labels.get(ids[position]);
+			if(!label.equals(InstancesManipulation.getLabel(instance)))
+				result.lastInstance().setClassValue(label); // re-label the copy
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the copy of the first view of the test data
+	 * @return the test data
+	 */
+	public Instances getTestData(){
+		return InstancesManipulation.cloneDataset(data.peekTestData()[0]);
+	}
+}
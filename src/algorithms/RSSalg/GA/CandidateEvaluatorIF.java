@@ -52,6 +52,30 @@ public interface CandidateEvaluatorIF {
 	 */
 	public void evaluateCandidate(CoTrainingData data, ClassifierEnsembleList statistic, Candidate candidat, MeasureIF measure) throws Exception;
 	
+	/**
+	 * Evaluates the actual (true) fitness of the evaluated candidate: the model trained on the final training set of the candidate is evaluated on the 
+	 * test set (used for logging, see logGA and deferActualFitness in GA properties)
+	 * @param data The data used in the experiment (labeled, unlabeled and test data). The evaluator should not modify the original data object
+	 * @param candidate the evaluated candidate
+	 * @param measure measure used for candidate evaluation
+	 * @return the actual fitness of the candidate
+	 * @throws Exception if there was an error during candidate evaluation
+	 */
+	public double evaluateActualFitness(CoTrainingData data, Candidate candidate, MeasureIF measure) throws Exception;
+	
+	/**
+	 * Sets the cache used to skip the evaluation of the candidates that result with an already evaluated final training set
+	 * @param fitnessCache the cache of the evaluated training sets (shared by all the candidates evaluated in one fold)
+	 */
+	public void setFitnessCache(FitnessCache fitnessCache);
+	
+	/**
+	 * Sets the best fitness found before the evaluation of the next candidates. The evaluator may stop the evaluation of a candidate once it is clear that 
+	 * the candidate cannot beat it (see racing in GA properties)
+	 * @param fitness the best fitness found so far (negative infinity if no candidate was evaluated)
+	 */
+	public void setFitnessToBeat(double fitness);
+	
 	/**
 	 * Returns the name of the candidate evaluator
 	 * @return name of the algorithm for candidate evaluation
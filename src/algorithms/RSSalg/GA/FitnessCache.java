@@ -0,0 +1,383 @@
+/** 	
+ * Name: FitnessCache.java
+ * 
+ * Purpose: Thread-safe, bounded cache of the fitness of the training sets evaluated by a candidate evaluator.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import util.InstancesManipulation;
+import weka.core.Instances;
+import algorithms.co_training.CoTrainingData;
+import classificationResult.measures.MeasureIF;
+import experimentSetting.DatasetSettings;
+import experimentSetting.GASettings;
+
+/**
+ * Thread-safe cache of the fitness of the training sets evaluated by a candidate evaluator. Candidates with different example/label threshold may still have 
+ * the same set of kept examples (which will result with the same final classifier, see {@link Candidate#equals(Object)}). Since evaluation (training and testing 
+ * a model) might potentially be expensive, the fitness of an already evaluated training set is just copied to the candidate that results with the same model.
+ * <p>
+ * The evaluated training sets are keyed by the SHA-1 of the canonical form of the candidate: the bit sets of the positions of the kept and of the left out 
+ * instances in the data of the fold and the codes of their labels (see {@link #getKey(Candidate, CandidateDataset)}), so the lookup does not depend on the 
+ * number of the evaluated candidates. When the cache is full, the least 
+ * recently used training set is evicted. The cache can be saved to the file and loaded later (e.g. when RSSalg is re-run in the same fold with a different GA 
+ * seed or number of generations), in which case it is kept only if it was created for the same fold data, evaluator, measure and final classifier.
+ * <p>
+ * Candidates of one generation can be evaluated concurrently: if a candidate that results with the same model is being evaluated by another thread, 
+ * {@link #copyEvaluation(Candidate)} waits for that evaluation to finish and copies its result.
+ * <p>
+ * Usage:
+ * <pre>
+ * if(fitnessCache.copyEvaluation(candidate, candidateDataset))
+ * 	return;
+ * try{
+ * 	// evaluate the candidate
+ * 	fitnessCache.add(candidate);
+ * }finally{
+ * 	fitnessCache.release(candidate);
+ * }
+ * </pre>
+ */
+public class FitnessCache {
+	/**
+	 * Default maximal number of training sets kept in the cache
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+	/**
+	 * Fitness and actual fitness of the evaluated training sets, in the order of their last use (the eldest first)
+	 */
+	protected Map<String, double[]> evaluated;
+	/**
+	 * Keys of the training sets that are currently being evaluated
+	 */
+	protected Set<String> inEvaluation = new HashSet<String>();
+	/**
+	 * Keys of the candidates that are currently being evaluated
+	 */
+	protected Map<Candidate, String> inEvaluationCandidates = new IdentityHashMap<Candidate, String>();
+	/**
+	 * Fingerprint of the data and settings the fitness values are valid for (see {@link #getContext(String, MeasureIF, CoTrainingData)})
+	 */
+	protected String context = "";
+	/**
+	 * Number of the training sets evaluated (i.e. number of trained final classifiers) since the cache was created
+	 */
+	protected int noEvaluations = 0;
+	
+	/**
+	 * Creates the empty cache with the default capacity
+	 */
+	public FitnessCache(){
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates the empty cache
+	 * @param capacity maximal number of training sets kept in the cache
+	 */
+	public FitnessCache(final int capacity){
+		evaluated = new LinkedHashMap<String, double[]>(16, 0.75f, true){ // access order: the least recently used training set is evicted first
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Sets the fingerprint of the data and settings the fitness values are valid for
+	 * @param context the fingerprint (see {@link #getContext(String, MeasureIF, CoTrainingData)})
+	 */
+	public synchronized void setContext(String context){
+		this.context = context;
+	}
+	
+	/**
+	 * Returns the number of the training sets in the cache
+	 * @return number of the training sets in the cache
+	 */
+	public synchronized int size(){
+		return evaluated.size();
+	}
+	
+	/**
+	 * Returns the number of the training sets evaluated (i.e. number of trained final classifiers) since the cache was created. The training sets loaded 
+	 * from the file are not counted
+	 * @return number of evaluated training sets
+	 */
+	public synchronized int getNoEvaluations(){
+		return noEvaluations;
+	}
+	
+	/**
+	 * Sets the number of training sets evaluated so far (used when the optimisation is resumed from a checkpoint)
+	 * @param noEvaluations the number of evaluated training sets
+	 */
+	public synchronized void setNoEvaluations(int noEvaluations){
+		this.noEvaluations = noEvaluations;
+	}
+	
+	/**
+	 * Copies the fitness of the evaluated candidate that results with the same final training set. If there is no such candidate, the calling thread 
+	 * becomes responsible for evaluating the candidate and must call {@link #release(Candidate)} afterwards
+	 * @param candidate the candidate to evaluate
+	 * @param index index over the data of the fold the candidate is evaluated in
+	 * @return true if the fitness is copied, false if the candidate should be evaluated 
+	 * @throws Exception if there was an error calculating the key of the candidate or if the thread was interrupted while waiting for the evaluation 
+	 * of the same candidate in another thread
+	 */
+	public boolean copyEvaluation(Candidate candidate, CandidateDataset index) throws Exception{
+		String key = getKey(candidate, index);
+		synchronized (this) {
+			while(true){
+				double[] fitness = evaluated.get(key);
+				if(fitness != null){ // Found evaluated candidate that results with the same final training set: copy fitness values from that candidate 
+					candidate.setCandidateEvaluation(fitness[0], fitness[1]);
+					return true;
+				}
+				if(!inEvaluation.contains(key)){
+					inEvaluation.add(key);
+					inEvaluationCandidates.put(candidate, key);
+					return false;
+				}
+				wait(); // the same training set is being evaluated in another thread
+			}
+		}
+	}
+	
+	/**
+	 * Records the evaluated candidate. The fitness of the candidate whose evaluation was cut short by racing (see {@link Candidate#isCutShort()}) 
+	 * is measured only on the part of the left out instances, so it is counted as an evaluation but not kept: the candidates that result with the 
+	 * same training set are evaluated again
+	 * @param candidate evaluated candidate
+	 */
+	public synchronized void add(Candidate candidate){
+		String key = inEvaluationCandidates.get(candidate);
+		if(key != null){
+			if(!candidate.isCutShort())
+				evaluated.put(key, new double[]{candidate.getFitness(), candidate.getActualFitness()});
+			noEvaluations++;
+		}
+	}
+	
+	/**
+	 * Marks the end of the evaluation of the candidate (successful or not) started by {@link #copyEvaluation(Candidate)} 
+	 * @param candidate the candidate
+	 */
+	public synchronized void release(Candidate candidate){
+		String key = inEvaluationCandidates.remove(candidate);
+		if(key != null)
+			inEvaluation.remove(key);
+		notifyAll();
+	}
+	
+	/**
+	 * Returns the key of the final training set of the candidate: SHA-1 of the bit set of the positions of the kept instances in the data of the fold 
+	 * followed by the codes of their labels (see {@link CandidateDataset#getLabelCode(String)}) in the order of the positions, and the same for the left 
+	 * out instances. Positions are used instead of the ids, so the key is calculated without sorting the ids or formatting them as strings
+	 * @param candidate the candidate
+	 * @param index index over the data of the fold
+	 * @return the key of the candidate
+	 * @throws Exception if there was an error calculating the key or an instance of the candidate is not in the data of the fold
+	 */
+	public static String getKey(Candidate candidate, CandidateDataset index) throws Exception{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		update(digest, candidate.getPredictions(), index);
+		update(digest, candidate.getLeftOut(), index);
+		return toHex(digest.digest());
+	}
+	
+	private static void update(MessageDigest digest, Map<Double, String> instances, CandidateDataset index) throws Exception{
+		BitSet selected = new BitSet(index.size());
+		if(instances != null)
+			for(double id : instances.keySet()){
+				int position = index.getPosition(id);
+				if(position == -1)
+					throw new Exception("ERROR: instance " + id + " of the candidate is not in the data of the fold");
+				selected.set(position);
+			}
+		long[] words = selected.toLongArray();
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * words.length + selected.cardinality());
+		buffer.putInt(words.length); // separates the kept and the left out instances
+		for(long word : words)
+			buffer.putLong(word);
+		for(int position = selected.nextSetBit(0); position >= 0; position = selected.nextSetBit(position + 1))
+			buffer.put((byte) index.getLabelCode(instances.get(index.getId(position))));
+		digest.update(buffer.array());
+	}
+	
+	/**
+	 * Returns the key of the candidate that does not depend on the data of the fold: SHA-1 of the ids and labels of the kept instances followed by the ids and 
+	 * labels of the left out instances, both sorted by id. Slower than {@link #getKey(Candidate, CandidateDataset)}, used where the index over the data 
+	 * is not available
+	 * @param candidate the candidate
+	 * @return the key of the candidate
+	 * @throws Exception if there was an error calculating the key
+	 */
+	public static String getKey(Candidate candidate) throws Exception{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		update(digest, candidate.getPredictions());
+		digest.update((byte) '|');
+		update(digest, candidate.getLeftOut());
+		return toHex(digest.digest());
+	}
+	
+	private static void update(MessageDigest digest, Map<Double, String> instances) throws Exception{
+		if(instances == null)
+			return;
+		List<Double> ids = new ArrayList<Double>(instances.keySet());
+		Collections.sort(ids);
+		for(double id : ids)
+			digest.update((id + ":" + instances.get(id) + ";").getBytes("UTF-8"));
+	}
+	
+	private static void update(MessageDigest digest, Instances instances) throws Exception{
+		for(int i=0; i<instances.numInstances(); i++)
+			digest.update((InstancesManipulation.getInstanceID(instances.instance(i)) + ":" + InstancesManipulation.getLabel(instances.instance(i)) + ";").getBytes("UTF-8"));
+	}
+	
+	static String toHex(byte[] bytes){
+		StringBuilder hex = new StringBuilder();
+		for(byte b : bytes)
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+	
+	/**
+	 * Returns the fingerprint of the data and settings the fitness of the candidates depends on: the name of the candidate evaluator, the measure, the final 
+	 * classifier, the racing settings, the labeled and test instances of the fold and the order of the unlabeled instances (the keys of the training 
+	 * sets depend on the positions of the instances, see {@link #getKey(Candidate, CandidateDataset)})
+	 * @param evaluatorName name of the candidate evaluator
+	 * @param measure measure used for candidate evaluation
+	 * @param data the data of the fold
+	 * @return SHA-1 of the data and settings
+	 * @throws Exception if there was an error calculating the fingerprint
+	 */
+	public static String getContext(String evaluatorName, MeasureIF measure, CoTrainingData data) throws Exception{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		digest.update((evaluatorName + "\n" + measure.getName() + "\n" + DatasetSettings.getInstance().getCombinedClassiffierClassName() + "\n" 
+				+ GASettings.getInstance().isRacing() + " " + GASettings.getInstance().getRacingConfidence() + "\n").getBytes("UTF-8"));
+		update(digest, data.peekLabeledData()[0]);
+		digest.update((byte) '|');
+		update(digest, data.peekTestData()[0]);
+		digest.update((byte) '|');
+		Instances unlabeled = data.peekUnlabeledData()[0];
+		for(int i=0; i<unlabeled.numInstances(); i++)
+			digest.update((InstancesManipulation.getInstanceID(unlabeled.instance(i)) + ";").getBytes("UTF-8"));
+		return toHex(digest.digest());
+	}
+	
+	/**
+	 * Loads the fitness values saved by {@link #save(String)}. The file is ignored if it does not exist or if it was created for a different context.
+	 * @param fileName the file to load the fitness values from
+	 * @param needActualFitness whether the actual fitness is required (the training sets whose actual fitness was not evaluated are not loaded) 
+	 * @return number of loaded training sets
+	 * @throws Exception if there was an error reading the file
+	 */
+	public synchronized int load(String fileName, boolean needActualFitness) throws Exception{
+		File file = new File(fileName);
+		if(!file.exists())
+			return 0;
+		
+		int loaded = 0;
+		BufferedReader reader = null;
+		try{
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line = reader.readLine();
+			if(line == null || !line.equals("context " + context)){
+				System.out.println("WARNING: fitness cache " + fileName + " was created for different data or settings and will be overwritten");
+				return 0;
+			}
+			while((line = reader.readLine()) != null){
+				String[] values = line.split(" ");
+				if(values.length != 3)
+					throw new Exception("ERROR: malformed line in fitness cache " + fileName + ": " + line);
+				double fitness = Double.parseDouble(values[1]);
+				double actualFitness = Double.parseDouble(values[2]);
+				if(needActualFitness && actualFitness == -1)
+					continue;
+				evaluated.put(values[0], new double[]{fitness, actualFitness});
+				loaded++;
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error reading fitness cache " + fileName, e);
+		}finally{
+			if(reader != null)
+				reader.close();
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Saves the fitness values in the order of their last use, so the eviction order is preserved when they are loaded by {@link #load(String, boolean)}.
+	 * The file is written in place only when it is completely written.
+	 * @param fileName the file to save the fitness values to
+	 * @throws Exception if there was an error writing the file
+	 */
+	public synchronized void save(String fileName) throws Exception{
+		File file = new File(fileName);
+		File tmpFile = new File(fileName + ".tmp");
+		try{
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8"));
+			writer.println("context " + context);
+			for(Map.Entry<String, double[]> entry : evaluated.entrySet())
+				writer.println(entry.getKey() + " " + entry.getValue()[0] + " " + entry.getValue()[1]);
+			writer.close();
+			if(writer.checkError())
+				throw new Exception("error writing the file " + tmpFile);
+			if(file.exists() && !file.delete())
+				throw new Exception("could not delete the old file");
+			if(!tmpFile.renameTo(file))
+				throw new Exception("could not rename " + tmpFile);
+		}catch(Exception e){
+			throw new Exception("ERROR: error writing fitness cache " + fileName, e);
+		}
+	}
+}
@@ -31,21 +31,24 @@
  **/
 package algorithms.RSSalg.GA;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.PrintWriter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
-import util.InstancesManipulation;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.co_training.CoTrainingData;
 import classificationResult.measures.MeasureIF;
 import experimentSetting.DatasetSettings;
-import experimentSetting.ExperimentSettings;
 import experimentSetting.GASettings;
 
 /**
@@ -53,28 +56,11 @@ import experimentSetting.GASettings;
  * J. Slivka, A. Kovacevic, Z. Konjovic: "Combining Co-Training with Ensemble Learning for Application on Single-View Natural Language 
  * Datasets". Acta Polytechnica Hungarica 10 (2)
  */
-public class GAThresholdOptimiser {
-	/**
-	 * Data (labeled, unlabeled and test instances) used in the experiment
-	 */
-	protected CoTrainingData data;
-	/**
-	 * Statistics (instance ids, predictions and confidences for each prediction) about the instances labeled during the algorithm execution 
-	 * (instances formally belonging to the unlabeled set, labeled and added to train data by the algorithm)
-	 */
-	protected ClassifierEnsembleList classifierStatistics;
+public class GAThresholdOptimiser extends ThresholdOptimiser {
 	/**
 	 * Random number generator cloned from DataSettings
 	 */
 	protected Random rand;
-	/**
-	 * Algorithm used for candidate evaluation
-	 */
-	protected CandidateEvaluatorIF evaluator;
-	/**
-	 * Measure used for candidate evaluation
-	 */
-	protected MeasureIF measure;
 	/**
 	 * Current generation of candidates
 	 */
@@ -119,17 +105,39 @@ public class GAThresholdOptimiser {
 	 */
 	protected Candidate bestSoFar = null;
 	/**
-	 * Current fold in fold-cross validation experiment
+	 * Number of generations in which there was no improval of the result
 	 */
-	protected int fold; 
+	private int noImproval = 0;
 	/**
-	 * If a log file for GA should be kept, write it in {results_folder}/fold_{currentFold}/ThresholdOptimiserlog.txt
+	 * Number of candidates in one generation
 	 */
-	protected String logFileLocation;
+	protected int generationSize;
 	/**
-	 * Number of generations in which there was no improval of the result
+	 * The crossover threshold
 	 */
-	private int noImproval = 0;
+	protected double crossoverTS;
+	/**
+	 * The mutation threshold
+	 */
+	protected double mutationTS;
+	/**
+	 * Number of the island if this is one of the populations of the island model (see {@link IslandGAThresholdOptimiser}), -1 otherwise. An island 
+	 * does not set the fitness to beat for the evaluator (the islands share the evaluator)
+	 */
+	protected int islandNo = -1;
+	/**
+	 * If the checkpoints are kept (see checkpointInterval in GA properties), the state of the GA is written in 
+	 * {results_folder}/fold_{currentFold}/ThresholdOptimiserCheckpoint.bin and the fitness cache in 
+	 * {results_folder}/fold_{currentFold}/ThresholdOptimiserCheckpointCache.txt
+	 */
+	protected String checkpointLocation;
+	protected String checkpointCacheLocation;
+	
+	/**
+	 * Creates the new instance of GAThresholdOptimiser. The optimiser should be prepared for the fold by {@link #init(ClassifierEnsembleList, CoTrainingData, int)}
+	 */
+	public GAThresholdOptimiser(){
+	}
 	
 	/**
 	 * Creates the new instance of GAThresholdOptimiser
@@ -139,31 +147,54 @@ public class GAThresholdOptimiser {
 	 * @throws Exception if there was an error during merging of the views (the final classifier in RSSalg uses a unique attribute set)
 	 */
 	public GAThresholdOptimiser(ClassifierEnsembleList classifierStatistics, CoTrainingData data, int fold) throws Exception {
-		this.evaluator = ExperimentSettings.getInstance().getEvaluator();
+		init(classifierStatistics, data, fold);
+	}
+	
+	/**
+	 * Creates the island: the population of the island model that shares the data, the evaluator and the fitness cache with the given optimiser
+	 * @param parent the optimiser that runs the island model
+	 * @param islandNo number of the island
+	 * @param generationSize number of candidates in one generation of the island
+	 * @param crossoverTS the crossover threshold of the island
+	 * @param mutationTS the mutation threshold of the island
+	 * @param rand random number generator of the island
+	 */
+	protected GAThresholdOptimiser(GAThresholdOptimiser parent, int islandNo, int generationSize, double crossoverTS, double mutationTS, Random rand){
+		this.data = parent.data;
+		this.classifierStatistics = parent.classifierStatistics;
+		this.evaluator = parent.evaluator;
+		this.measure = parent.measure;
+		this.fold = parent.fold;
+		this.logFileLocation = parent.logFileLocation;
+		this.progressFileLocation = parent.progressFileLocation;
+		this.fitnessCache = parent.fitnessCache;
+		this.fitnessCacheLocation = parent.fitnessCacheLocation;
+		this.actualFitnessExecutor = parent.actualFitnessExecutor;
+		this.actualFitnessEvaluations = parent.actualFitnessEvaluations;
+		this.minLabelAgreementThreshold = parent.minLabelAgreementThreshold;
+		this.minExampleOccuranceThreshold = parent.minExampleOccuranceThreshold;
+		this.generationSize = generationSize;
+		this.crossoverTS = crossoverTS;
+		this.mutationTS = mutationTS;
+		this.rand = rand;
+		this.islandNo = islandNo;
+	}
+	
+	@Override
+	public void init(ClassifierEnsembleList classifierStatistics, CoTrainingData data, int fold) throws Exception {
 		this.rand = DatasetSettings.getInstance().cloneRandom();
-		this.data = new CoTrainingData(data);
-		 
-		if(this.evaluator instanceof RSSalgCandidateEvaluator && !(GASettings.getInstance().isLogGA()) )
-			this.data.setTestData(InstancesManipulation.removeAllInstances(this.data.getTestData()));
-		
-		this.data.mergeViews();
-		this.classifierStatistics = classifierStatistics;		
-		this.measure = GASettings.getInstance().getOptMeasure();
+		super.init(classifierStatistics, data, fold);
+		this.generationSize = GASettings.getInstance().getGenerationSize();
+		this.crossoverTS = GASettings.getInstance().getCrossoverTS();
+		this.mutationTS = GASettings.getInstance().getMutationTS();
+		this.checkpointLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/ThresholdOptimiserCheckpoint.bin";
+		this.checkpointCacheLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/ThresholdOptimiserCheckpointCache.txt";
 
 		setMinLabelAgreementPercent();
 		setMinExampleOccurancePercent();
 		System.out.println("Starting GA fold "+ fold);
 		System.out.println("Label agreement is in the range [" + minLabelAgreementThreshold + ", 100] %");
 		System.out.println("Example agreement is in the range [" + minExampleOccuranceThreshold + ", 100] %");
-		
-		this.fold = fold;
-		
-		logFileLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/ThresholdOptimiserlog.txt";
-		if(GASettings.getInstance().isLogGA()){
-			File logFile = new File(logFileLocation);
-			if(logFile.exists())
-				logFile.delete();
-		}
 	}
 	
 	private void setMinLabelAgreementPercent(){
@@ -212,9 +243,7 @@ public class GAThresholdOptimiser {
 	/**
 	 * Initialize the first generation for GA by generating the predefined number of random candidates
 	 */
-	private void initFirstGeneration(){
-		int generationSize = GASettings.getInstance().getGenerationSize();
-		
+	protected void initFirstGeneration(){
 		while(currentGeneration.size() < generationSize){						
 			int randLabelTS = rand.nextInt(100);
 			int randExampleTS = rand.nextInt(100);					
@@ -225,16 +254,22 @@ public class GAThresholdOptimiser {
 	}
 	
 	/**
-	 * Evaluate all the candidates from the current generation
+	 * Evaluate all the candidates from the current generation. The candidates are evaluated concurrently (see evaluationThreads in GA properties), while the best
+	 * candidate and the sum of fitnesses are determined in the order of candidates in the generation, so the result is the same as for sequential evaluation
 	 * @throws Exception if there was an error in evaluating the candidate
 	 */
-	private void evaluateCurrentGeneration() throws Exception{
+	protected void evaluateCurrentGeneration() throws Exception{
+		// the same candidate object can occur in the generation multiple times (e.g. selected as both parents), it is evaluated once
+		if(islandNo >= 0)
+			evaluateCandidates(currentGeneration);
+		else
+			evaluateCandidates(currentGeneration, bestSoFar);
+		
 		totalFitnessSum = 0;
 		
 		Candidate lastBest = bestSoFar;		
 		bestSoFar = currentGeneration.get(0);
 		for(Candidate candidate : currentGeneration){
-			evaluator.evaluateCandidate(data, classifierStatistics, candidate, measure);
 			totalFitnessSum += candidate.getFitness();
 			if(candidate.getFitness() > bestSoFar.getFitness()){
 				bestSoFar = candidate;
@@ -307,7 +342,7 @@ public class GAThresholdOptimiser {
 		double s = 0.0;
 		double sp = 0.0;
 		
-		for (int i=0; i<GASettings.getInstance().getGenerationSize(); i++) {
+		for (int i=0; i<generationSize; i++) {
 			sp = s;
 			s += currentGeneration.get(i).getFitness();
 			if((sp<=t)&&(t<s)){
@@ -330,7 +365,7 @@ public class GAThresholdOptimiser {
 		int[] labelChromosome2 = int2bin(candidate2.getLabelThreshold()*100, minLabelAgreementThreshold);
 		for (int i = 0; i < noBits; i++) {	
 			double d = ((double)rand.nextInt(1000))/1000;
-			if(d <= GASettings.getInstance().getCrossoverTS()){
+			if(d <= crossoverTS){
 				int temp = labelChromosome1[i];
 				labelChromosome1[i] = labelChromosome2[i];
 				labelChromosome2[i] = temp;
@@ -344,7 +379,7 @@ public class GAThresholdOptimiser {
 		int[] exampleChromosome2 = int2bin(candidate2.getExampleThreshold()*100, minExampleOccuranceThreshold);
 		for (int i = 0; i < noBits; i++) {	
 			double d = ((double)rand.nextInt(1000))/1000;
-			if(d <= GASettings.getInstance().getCrossoverTS()){
+			if(d <= crossoverTS){
 				int temp = exampleChromosome1[i];
 				exampleChromosome1[i] = exampleChromosome2[i];
 				exampleChromosome2[i] = temp;
@@ -364,7 +399,7 @@ public class GAThresholdOptimiser {
 		int[] labelChromosome = int2bin(candidate.getLabelThreshold()*100, minLabelAgreementThreshold);
 		for (int i = 0; i < noBits; i++) {	
 			double d = ((double)rand.nextInt(1000))/1000;
-			if( d <= GASettings.getInstance().getMutationTS()) {
+			if( d <= mutationTS) {
 				if (labelChromosome[i] == 0)
 					labelChromosome[i] = 1;
 				else
@@ -377,7 +412,7 @@ public class GAThresholdOptimiser {
 		int[] exampleChromosome = int2bin(candidate.getExampleThreshold()*100, minExampleOccuranceThreshold);
 		for (int i = 0; i < noBits; i++) {	
 			double d = ((double)rand.nextInt(1000))/1000;
-			if( d <= GASettings.getInstance().getMutationTS()) {
+			if( d <= mutationTS) {
 				if (exampleChromosome[i] == 0)
 					exampleChromosome[i] = 1;
 				else
@@ -395,7 +430,7 @@ public class GAThresholdOptimiser {
 		if(GASettings.getInstance().isElitism()){
 			nextGeneration.add(bestSoFar);
 		}
-		while(nextGeneration.size() < GASettings.getInstance().getGenerationSize()){
+		while(nextGeneration.size() < generationSize){
 			Candidate parent1 = rouletteSelection();
 			Candidate parent2 = rouletteSelection();
 			crossover(parent1, parent2);
@@ -426,42 +461,195 @@ public class GAThresholdOptimiser {
 	 * @return the best candidate (found optimum)
 	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
 	 */
-	public Candidate run() throws Exception{
-		initFirstGeneration();
+	protected Candidate optimise() throws Exception{
+		int checkpointInterval = GASettings.getInstance().getCheckpointInterval();
 		int currentIteration = 0;
+		if(checkpointInterval > 0)
+			currentIteration = restoreCheckpoint();
+		if(currentIteration == 0)
+			initFirstGeneration();
 		while(!shouldStop(currentIteration)){
 			System.out.println("GA iteration " + currentIteration + " of " + GASettings.getInstance().getIterationNo());
 			evaluateCurrentGeneration();	
 			logGeneration(currentIteration);
+			logProgress(bestSoFar.getFitness());
 			System.out.println("Best candidate: " + bestSoFar);
 			System.out.println("------------------------------------------------------------------------------");
 			generateNextGeneration();
 			currentGeneration.clear();
 			currentGeneration.addAll(nextGeneration);
 			currentIteration++;
+			if(checkpointInterval > 0 && currentIteration % checkpointInterval == 0 && !shouldStop(currentIteration))
+				saveCheckpoint(currentIteration);
 		}
+		if(checkpointInterval > 0)
+			deleteCheckpoint();
 		return bestSoFar;
 	}
 	
+	/**
+	 * Returns the fingerprint of everything the course of the GA depends on: the data and the settings of the candidate evaluation (see 
+	 * {@link FitnessCache#getContext(String, MeasureIF, CoTrainingData)}), the GA settings and the statistics the candidates are made from
+	 * @return SHA-1 of the data, settings and statistics
+	 * @throws Exception if there was an error calculating the fingerprint
+	 */
+	private String getCheckpointContext() throws Exception{
+		GASettings settings = GASettings.getInstance();
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		digest.update((FitnessCache.getContext(evaluator.getName(), measure, data) + "\n" + getName() + "\n" + generationSize + " " + crossoverTS + " " + 
+				mutationTS + " " + settings.isElitism() + " " + settings.getIterationNo() + " " + settings.getNoImprovalgenerations() + " " + 
+				settings.getTestingTS() + " " + settings.isLogGA() + "\n").getBytes("UTF-8"));
+		List<Double> ids = new ArrayList<Double>(classifierStatistics.getExampleIDs());
+		Collections.sort(ids);
+		for(double id : ids)
+			digest.update((id + ":" + classifierStatistics.getExampleOccurencePercent(id) + ":" + classifierStatistics.getLabelAgreementPercent(id) + ";").getBytes("UTF-8"));
+		digest.update(FitnessCache.getKey(new Candidate(0, 0, classifierStatistics)).getBytes("UTF-8")); // the labels assigned to the instances
+		return FitnessCache.toHex(digest.digest());
+	}
+	
+	/**
+	 * Writes the state of the GA after the completed generations in the checkpoint file: the random number generator, the next generation, the best 
+	 * candidate, the counters and the log files written so far. The fitness cache is written in the separate file. The checkpoint file is replaced only 
+	 * when it is completely written 
+	 * @param nextIteration number of the next generation
+	 * @throws Exception if there was an error writing the checkpoint
+	 */
+	private void saveCheckpoint(int nextIteration) throws Exception{
+		File file = new File(checkpointLocation);
+		File tmpFile = new File(checkpointLocation + ".tmp");
+		ObjectOutputStream out = null;
+		try{
+			writeDeferredLog(true); // the checkpoint keeps the log written so far
+			fitnessCache.save(checkpointCacheLocation);
+			out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+			out.writeUTF(getCheckpointContext());
+			out.writeInt(nextIteration);
+			out.writeInt(noImproval);
+			out.writeInt(noEvaluatedCandidates);
+			out.writeInt(noCutShort);
+			out.writeInt(fitnessCache.getNoEvaluations());
+			out.writeObject(rand);
+			// written in the same stream, so a candidate that occurs multiple times in the generation is restored as a single object
+			out.writeObject(new ArrayList<Candidate>(currentGeneration));
+			out.writeObject(bestSoFar);
+			out.writeObject(readFile(logFileLocation));
+			out.writeObject(readFile(progressFileLocation));
+			out.close();
+			out = null;
+			if(file.exists() && !file.delete())
+				throw new Exception("could not delete the old file");
+			if(!tmpFile.renameTo(file))
+				throw new Exception("could not rename " + tmpFile);
+		}catch(Exception e){
+			throw new Exception("ERROR: error writing the GA checkpoint " + checkpointLocation, e);
+		}finally{
+			if(out != null)
+				out.close();
+		}
+	}
+	
+	/**
+	 * Restores the state of the GA from the checkpoint file, if there is one that was created for the same data and settings
+	 * @return number of the next generation or 0 if the GA should start from the beginning 
+	 * @throws Exception if there was an error reading the checkpoint
+	 */
+	@SuppressWarnings("unchecked")
+	private int restoreCheckpoint() throws Exception{
+		File file = new File(checkpointLocation);
+		if(!file.exists())
+			return 0;
+		
+		ObjectInputStream in = null;
+		try{
+			in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if(!in.readUTF().equals(getCheckpointContext())){
+				System.out.println("WARNING: GA checkpoint " + checkpointLocation + " was created for different data or settings and will be overwritten");
+				return 0;
+			}
+			int nextIteration = in.readInt();
+			noImproval = in.readInt();
+			noEvaluatedCandidates = in.readInt();
+			noCutShort = in.readInt();
+			int noEvaluations = in.readInt();
+			rand = (Random) in.readObject();
+			currentGeneration.clear();
+			currentGeneration.addAll((List<Candidate>) in.readObject());
+			bestSoFar = (Candidate) in.readObject();
+			writeFile(logFileLocation, (String) in.readObject());
+			writeFile(progressFileLocation, (String) in.readObject());
+			
+			fitnessCache.load(checkpointCacheLocation, GASettings.getInstance().isActualFitnessEvaluated());
+			fitnessCache.setNoEvaluations(noEvaluations);
+			System.out.println("Resuming GA fold " + fold + " from generation " + nextIteration + " (checkpoint " + checkpointLocation + ")");
+			return nextIteration;
+		}catch(Exception e){
+			throw new Exception("ERROR: error reading the GA checkpoint " + checkpointLocation, e);
+		}finally{
+			if(in != null)
+				in.close();
+		}
+	}
+	
+	/**
+	 * Deletes the checkpoint files once the GA has finished
+	 */
+	private void deleteCheckpoint(){
+		for(String fileName : new String[]{checkpointLocation, checkpointLocation + ".tmp", checkpointCacheLocation, checkpointCacheLocation + ".tmp"}){
+			File file = new File(fileName);
+			if(file.exists() && !file.delete())
+				System.out.println("WARNING: could not delete the GA checkpoint file " + fileName);
+		}
+	}
+	
+	/**
+	 * Returns the content of the log file or null if the log is not kept or the file does not exist
+	 */
+	private String readFile(String fileName) throws Exception{
+		File file = new File(fileName);
+		if(!GASettings.getInstance().isLogGA() || !file.exists())
+			return null;
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+	
+	/**
+	 * Replaces the content of the log file with the given content (the log file is not written if the content is null)
+	 */
+	private void writeFile(String fileName, String content) throws Exception{
+		if(content == null)
+			return;
+		Files.write(new File(fileName).toPath(), content.getBytes("UTF-8"));
+	}
+	
+	/**
+	 * Evolves the population for the given number of generations (used by the island model, see {@link IslandGAThresholdOptimiser}) 
+	 * @param firstGenerationNo number of the first generation (used for logging)
+	 * @param noGenerations number of generations to evolve
+	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
+	 */
+	protected void evolve(int firstGenerationNo, int noGenerations) throws Exception{
+		if(currentGeneration.isEmpty())
+			initFirstGeneration();
+		for(int i=0; i<noGenerations; i++){
+			evaluateCurrentGeneration();	
+			logGeneration(firstGenerationNo + i);
+			generateNextGeneration();
+			currentGeneration.clear();
+			currentGeneration.addAll(nextGeneration);
+		}
+	}
+	
+	public String getName() {
+		return "GA";
+	}
+	
 	/**
 	 * Used for GA logging
 	 * @param generationNo number of generation that is logged
 	 */
-	private void logGeneration(int generationNo){
+	protected void logGeneration(int generationNo){
 		if(!GASettings.getInstance().isLogGA())	
 			return;
 		Collections.sort(currentGeneration);
-			
-		try {
-			PrintWriter writer = new PrintWriter(new FileOutputStream(new File(logFileLocation), true));
-			writer.println("Generation " + generationNo);
-			writer.println(toString());
-			writer.println();
-			writer.println();
-			writer.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("WARNING: error writing threshold optimiser log for fold "+ fold);
-			System.out.println(e.getMessage());
-		}
+		log((islandNo >= 0 ? "Island " + islandNo + " generation " : "Generation ") + generationNo, currentGeneration);
 	}
 }
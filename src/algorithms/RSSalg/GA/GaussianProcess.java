@@ -0,0 +1,216 @@
+/** 	
+ * Name: GaussianProcess.java
+ * 
+ * Purpose: Gaussian process regression model used as the surrogate of the candidate fitness in threshold optimisation.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gaussian process regression model with the squared exponential kernel and fixed hyperparameters, used as the surrogate of the candidate fitness.
+ * <p>
+ * The targets are standardized (zero mean, unit variance) before fitting. The Cholesky factor of the kernel matrix depends only on the points, so it is 
+ * extended by one row for each added point (O(n<sup>2</sup>)), while the targets can be changed at any time (see {@link #setTargets(List)}).
+ */
+public class GaussianProcess {
+	/**
+	 * Length scale of the squared exponential kernel
+	 */
+	protected double lengthScale;
+	/**
+	 * Variance of the observation noise (relative to the standardized targets)
+	 */
+	protected double noise;
+	/**
+	 * Points of the model
+	 */
+	protected List<double[]> points = new ArrayList<double[]>();
+	/**
+	 * Rows of the lower triangular Cholesky factor of the kernel matrix (row i has i+1 elements)
+	 */
+	protected List<double[]> cholesky = new ArrayList<double[]>();
+	/**
+	 * Weights of the points in the predictive mean (K<sup>-1</sup>y for the standardized targets y)
+	 */
+	protected double[] alpha = new double[0];
+	/**
+	 * Mean of the targets
+	 */
+	protected double mean = 0;
+	/**
+	 * Standard deviation of the targets
+	 */
+	protected double std = 1;
+	
+	/**
+	 * Creates an empty model
+	 * @param lengthScale length scale of the squared exponential kernel
+	 * @param noise variance of the observation noise (relative to the standardized targets)
+	 */
+	public GaussianProcess(double lengthScale, double noise){
+		this.lengthScale = lengthScale;
+		this.noise = noise;
+	}
+	
+	/**
+	 * Returns the number of points in the model
+	 * @return number of points
+	 */
+	public int size(){
+		return points.size();
+	}
+	
+	private double kernel(double[] x1, double[] x2){
+		double distance = 0;
+		for(int i=0; i<x1.length; i++)
+			distance += (x1[i] - x2[i]) * (x1[i] - x2[i]);
+		return Math.exp(-distance / (2 * lengthScale * lengthScale));
+	}
+	
+	/**
+	 * Solves L v = k for the lower triangular Cholesky factor L
+	 */
+	private double[] forwardSubstitution(double[] k){
+		double[] v = new double[k.length];
+		for(int i=0; i<k.length; i++){
+			double[] row = cholesky.get(i);
+			double sum = k[i];
+			for(int j=0; j<i; j++)
+				sum -= row[j] * v[j];
+			v[i] = sum / row[i];
+		}
+		return v;
+	}
+	
+	/**
+	 * Adds the point to the model. The targets should be set (see {@link #setTargets(List)}) before the next prediction
+	 * @param point the point
+	 */
+	public void addPoint(double[] point){
+		double[] k = new double[points.size()];
+		for(int i=0; i<points.size(); i++)
+			k[i] = kernel(points.get(i), point);
+		double[] row = new double[points.size() + 1];
+		double[] v = forwardSubstitution(k);
+		double diagonal = 1 + noise;
+		for(int i=0; i<v.length; i++){
+			row[i] = v[i];
+			diagonal -= v[i] * v[i];
+		}
+		row[v.length] = Math.sqrt(Math.max(diagonal, noise));
+		cholesky.add(row);
+		points.add(point);
+	}
+	
+	/**
+	 * Removes the last added points from the model. The targets should be set (see {@link #setTargets(List)}) before the next prediction
+	 * @param size the number of points to keep 
+	 */
+	public void truncate(int size){
+		while(points.size() > size){
+			points.remove(points.size() - 1);
+			cholesky.remove(cholesky.size() - 1);
+		}
+	}
+	
+	/**
+	 * Sets the targets of the points in the model
+	 * @param targets the target for each point, in the order the points were added
+	 */
+	public void setTargets(List<Double> targets){
+		mean = 0;
+		for(double target : targets)
+			mean += target;
+		mean /= targets.size();
+		double variance = 0;
+		for(double target : targets)
+			variance += (target - mean) * (target - mean);
+		variance /= targets.size();
+		std = variance > 0 ? Math.sqrt(variance) : 1;
+		
+		double[] y = new double[targets.size()];
+		for(int i=0; i<y.length; i++)
+			y[i] = (targets.get(i) - mean) / std;
+		// solve L L^T alpha = y
+		double[] v = forwardSubstitution(y);
+		alpha = new double[v.length];
+		for(int i=v.length-1; i>=0; i--){
+			double sum = v[i];
+			for(int j=i+1; j<v.length; j++)
+				sum -= cholesky.get(j)[i] * alpha[j];
+			alpha[i] = sum / cholesky.get(i)[i];
+		}
+	}
+	
+	/**
+	 * Predicts the target for the point
+	 * @param point the point
+	 * @return predictive mean and standard deviation of the target
+	 */
+	public double[] predict(double[] point){
+		double[] k = new double[points.size()];
+		double predictedMean = 0;
+		for(int i=0; i<points.size(); i++){
+			k[i] = kernel(points.get(i), point);
+			predictedMean += k[i] * alpha[i];
+		}
+		double[] v = forwardSubstitution(k);
+		double variance = 1;
+		for(int i=0; i<v.length; i++)
+			variance -= v[i] * v[i];
+		return new double[]{mean + predictedMean * std, Math.sqrt(Math.max(variance, 0)) * std};
+	}
+	
+	/**
+	 * Returns the expected improvement over the best target for the point
+	 * @param point the point
+	 * @param best the best target found so far
+	 * @return expected improvement
+	 */
+	public double expectedImprovement(double[] point, double best){
+		double[] prediction = predict(point);
+		double improvement = prediction[0] - best;
+		if(prediction[1] <= 0)
+			return Math.max(improvement, 0);
+		double z = improvement / prediction[1];
+		return improvement * normalCDF(z) + prediction[1] * Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI);
+	}
+	
+	/**
+	 * Cumulative distribution function of the standard normal distribution (Abramowitz and Stegun approximation of erf, formula 7.1.26)
+	 */
+	private static double normalCDF(double z){
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911 * x);
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+		return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+	}
+}
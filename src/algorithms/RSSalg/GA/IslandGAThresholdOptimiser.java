@@ -0,0 +1,171 @@
+/** 	
+ * Name: IslandGAThresholdOptimiser.java
+ * 
+ * Purpose: Island model of the genetic algorithm for threshold optimization in RSSalg: several populations evolve concurrently and exchange their best candidates.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import experimentSetting.GASettings;
+
+/**
+ * Island model of the genetic algorithm used for threshold optimization in RSSalg. The generation is divided among several populations (islands, see 
+ * islands in GA properties, 4 by default) that evolve concurrently on the evaluation threads (see evaluationThreads in GA properties). Each island has its own random 
+ * number generator and its own crossover and mutation thresholds: the thresholds set in GA properties are scaled from 0.5x on the first island to 1.5x on 
+ * the last one, so the islands range from exploiting to exploring.<p>
+ * Every migrationInterval generations (see GA properties) the islands stop and the best candidate of each island migrates to the next island (ring 
+ * topology), replacing one candidate of its next generation. The islands share the fitness cache, so a training set evaluated on one island is not 
+ * evaluated again on the other. The random number generators of the islands are derived from the seed of the experiment and the migration is done in the 
+ * order of the islands, so the result does not depend on the scheduling of the threads
+ */
+public class IslandGAThresholdOptimiser extends GAThresholdOptimiser {
+	/**
+	 * The populations of the island model
+	 */
+	protected List<GAThresholdOptimiser> islands = new ArrayList<GAThresholdOptimiser>();
+	
+	/**
+	 * Creates the islands. The generation is divided equally among the islands (each island has at least two candidates)
+	 */
+	private void createIslands(){
+		int noIslands = GASettings.getInstance().getIslands();
+		int islandSize = Math.max(2, (int) Math.ceil(((double) generationSize) / noIslands));
+		for(int i=0; i<noIslands; i++){
+			double factor = noIslands == 1 ? 1 : 0.5 + ((double) i) / (noIslands - 1);
+			GAThresholdOptimiser island = new GAThresholdOptimiser(this, i, islandSize, Math.min(1, crossoverTS * factor), Math.min(1, mutationTS * factor), 
+					new Random(rand.nextLong()));
+			island.logBuffer = new StringBuilder();
+			islands.add(island);
+			System.out.println("Island " + i + ": " + islandSize + " candidates, crossover threshold " + island.crossoverTS + ", mutation threshold " + island.mutationTS);
+		}
+	}
+	
+	/**
+	 * Evolves all islands for the given number of generations. The islands are evolved concurrently if there are multiple evaluation threads
+	 * @param firstGenerationNo number of the first generation (used for logging)
+	 * @param noGenerations number of generations to evolve
+	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
+	 */
+	private void evolveIslands(final int firstGenerationNo, final int noGenerations) throws Exception{
+		if(executor == null){
+			for(GAThresholdOptimiser island : islands)
+				island.evolve(firstGenerationNo, noGenerations);
+			return;
+		}
+		List<Future<Void>> epochs = new ArrayList<Future<Void>>();
+		for(final GAThresholdOptimiser island : islands){
+			epochs.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					island.evolve(firstGenerationNo, noGenerations);
+					return null;
+				}
+			}));
+		}
+		try{
+			for(Future<Void> epoch : epochs)
+				epoch.get();
+		}catch(ExecutionException e){
+			throw new Exception("ERROR: error evolving the island in " + getName() + " fold " + fold, e.getCause());
+		}
+	}
+	
+	/**
+	 * Sends a copy of the best candidate of each island to the next island, where it replaces the last candidate of the next generation 
+	 */
+	private void migrate(){
+		if(islands.size() < 2)
+			return;
+		List<Candidate> migrants = new ArrayList<Candidate>();
+		for(GAThresholdOptimiser island : islands)
+			migrants.add(new Candidate(island.bestSoFar));
+		for(int i=0; i<islands.size(); i++){
+			List<Candidate> generation = islands.get((i + 1) % islands.size()).currentGeneration;
+			generation.set(generation.size() - 1, migrants.get(i));
+		}
+	}
+	
+	/**
+	 * Run the island model of the genetic algorithm for threshold pair optimization in RSSalg
+	 * @return the best candidate (found optimum)
+	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
+	 */
+	@Override
+	protected Candidate optimise() throws Exception{
+		createIslands();
+		int iterationNo = GASettings.getInstance().getIterationNo();
+		int noImprovalGenerations = GASettings.getInstance().getNoImprovalgenerations();
+		int currentIteration = 0;
+		int noImproval = 0;
+		while(currentIteration < iterationNo && (noImprovalGenerations <= 0 || noImproval < noImprovalGenerations)){
+			int noGenerations = Math.min(GASettings.getInstance().getMigrationInterval(), iterationNo - currentIteration);
+			System.out.println("Island GA generations " + currentIteration + "-" + (currentIteration + noGenerations - 1) + " of " + iterationNo);
+			evaluator.setFitnessToBeat(bestSoFar == null ? Double.NEGATIVE_INFINITY : bestSoFar.getFitness());
+			evolveIslands(currentIteration, noGenerations);
+			
+			Candidate lastBest = bestSoFar;
+			noEvaluatedCandidates = 0;
+			noCutShort = 0;
+			for(GAThresholdOptimiser island : islands){
+				if(bestSoFar == null || island.bestSoFar.getFitness() > bestSoFar.getFitness())
+					bestSoFar = new Candidate(island.bestSoFar);
+				noEvaluatedCandidates += island.noEvaluatedCandidates;
+				noCutShort += island.noCutShort;
+				if(island.logBuffer.length() > 0){
+					writeLog(island.logBuffer.toString());
+					island.logBuffer.setLength(0);
+				}
+				deferredLog.addAll(island.deferredLog);
+				island.deferredLog.clear();
+			}
+			writeDeferredLog(false);
+			if(lastBest == bestSoFar)
+				noImproval += noGenerations;
+			else
+				noImproval = 0;
+			logProgress(bestSoFar.getFitness());
+			System.out.println("Best candidate: " + bestSoFar);
+			System.out.println("------------------------------------------------------------------------------");
+			migrate();
+			currentIteration += noGenerations;
+		}
+		return bestSoFar;
+	}
+	
+	@Override
+	public String getName() {
+		return "island GA";
+	}
+}
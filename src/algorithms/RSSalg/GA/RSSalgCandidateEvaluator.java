@@ -32,13 +32,20 @@
 package algorithms.RSSalg.GA;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import util.Evaluation;
 import util.InstancesManipulation;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.co_training.CoTrainingData;
 import classificationResult.ClassificationResult;
+import classificationResult.ClassifiedInstanceList;
 import classificationResult.measures.MeasureIF;
 import experimentSetting.DatasetSettings;
 import experimentSetting.GASettings;
@@ -71,12 +78,49 @@ import experimentSetting.GASettings;
  */
 public class RSSalgCandidateEvaluator implements CandidateEvaluatorIF { 
 	/**
-	 * A list of candidates that are already evaluated. Candidates with different example/label threshold may still have the same set of kept examples (which will result 
-	 * with the same final classifier). Since evaluation (training and testing a model) might potentially be expensive, we keep the 
-	 * record of evaluated candidates in order to just copy the fitness value in case that the candidate for evaluation results with the same model as some 
-	 * already evaluated candidate (see also {@link Candidate#equals(Object)})  
+	 * Fitness of the already evaluated training sets. Candidates with different example/label threshold may still have the same set of kept examples (which will 
+	 * result with the same final classifier). Since evaluation (training and testing a model) might potentially be expensive, we keep the fitness of 
+	 * evaluated training sets in order to just copy the fitness value in case that the candidate for evaluation results with the same model as some 
+	 * already evaluated candidate (see also {@link FitnessCache}). The cache is thread-safe, so the candidates can be evaluated concurrently  
 	 */
-	protected List<Candidate> evaluatedCandidates = new ArrayList<Candidate>(); 
+	protected FitnessCache fitnessCache = new FitnessCache(); 
+	
+	/**
+	 * Index over the data of the current fold, used to build the training and test sets of the candidates (see {@link CandidateDataset})
+	 */
+	protected CandidateDataset candidateDataset = null;
+	/**
+	 * Seed of the order in which the left out instances are scored in racing evaluation, drawn from the random number generator of the fold when the 
+	 * index over the fold data is created. Each candidate shuffles with its own generator made from this seed, so the order does not depend on the order 
+	 * in which the candidates are evaluated concurrently
+	 */
+	protected long racingSeed;
+	/**
+	 * Best fitness found before the evaluation of the current candidates (used in racing evaluation, see racing in GA properties)
+	 */
+	protected volatile double fitnessToBeat = Double.NEGATIVE_INFINITY;
+	/**
+	 * Minimal number of left out instances scored before the candidate can be abandoned in racing evaluation
+	 */
+	protected static int minChunkSize = 10;
+	
+	public void setFitnessCache(FitnessCache fitnessCache) {
+		this.fitnessCache = fitnessCache;
+	}
+	
+	/**
+	 * Returns the index over the data, created once for the data of each fold. The views are merged in the indexed data.
+	 * @param data the data used in the experiment
+	 * @return the index over the data
+	 * @throws Exception if there was an error merging the views
+	 */
+	protected synchronized CandidateDataset getCandidateDataset(CoTrainingData data) throws Exception{
+		if(candidateDataset == null || candidateDataset.getSource() != data){
+			candidateDataset = new CandidateDataset(data, true);
+			racingSeed = DatasetSettings.getInstance().cloneRandom().nextLong();
+		}
+		return candidateDataset;
+	}
 	
 	public void evaluateCandidate(CoTrainingData data, ClassifierEnsembleList classifiers, Candidate candidate, MeasureIF measure) throws Exception {	
 		Map<Double, String> predictions =  candidate.getPredictions(); // instances in the final training set: key: instance id; value: prediction for instance
@@ -108,31 +152,123 @@ public class RSSalgCandidateEvaluator implements CandidateEvaluatorIF {
 			candidate.setLabelThreshold(minLabel);
 		}
 		
-		int index = evaluatedCandidates.indexOf(candidate); // Finds the candidate that results with the same final training set. Returns -1 if there is no such evaluated candidate.
-		if(index != -1){ // Found evaluated candidate that results with the same final training set: copy fitness values from that candidate and exit function 
-			Candidate oldEvaluatedCandidate = evaluatedCandidates.get(index);
-			candidate.setCandidateEvaluation(oldEvaluatedCandidate.getFitness(), oldEvaluatedCandidate.getActualFitness());
+		// Finds the candidate that results with the same final training set and copies its fitness values. 
+		CandidateDataset candidateData = getCandidateDataset(data);
+		if(fitnessCache.copyEvaluation(candidate, candidateData))
 			return;
-		}
 		
-		CoTrainingData tmpData = new CoTrainingData(data); // copy the data (in order not to modify the original data)
-		tmpData = InstancesManipulation.setTrainingSet(predictions, tmpData); // set kept instances as the training set
-		weka.classifiers.Classifier classifier = DatasetSettings.getInstance().getCombinedClassifier();
+		try{
+			Instances trainingSet = candidateData.getInstances(predictions); // kept instances are the training set
+			Instances testSet = candidateData.getInstances(leftOut); // left out instances are the test set
+			Classifier classifier = DatasetSettings.getInstance().getCombinedClassifier();
+			
+			if(GASettings.getInstance().isRacing())
+				evaluateByRacing(classifier, trainingSet, testSet, candidateData, candidate, measure);
+			else{
+				double actualFitness = -1;
+				if(GASettings.getInstance().isActualFitnessEvaluated()){ // logging GA -> should evaluate actual fitness (unless it is deferred)
+					ClassificationResult result =  Evaluation.performTest(classifier, trainingSet, candidateData.getTestData(), false);
+					actualFitness = measure.getMeasure(result);
+				}
+			
+				ClassificationResult result =  Evaluation.performTest(classifier, trainingSet, testSet, false);
+				double fitness = measure.getMeasure(result);
+				candidate.setCandidateEvaluation(fitness, actualFitness);
+			}
+			fitnessCache.add(candidate);
+		}finally{
+			fitnessCache.release(candidate);
+		}
+	}
+
+	public void setFitnessToBeat(double fitness) {
+		this.fitnessToBeat = fitness;
+	}
+	
+	public double evaluateActualFitness(CoTrainingData data, Candidate candidate, MeasureIF measure) throws Exception {
+		CandidateDataset candidateData = getCandidateDataset(data);
+		Instances trainingSet = candidateData.getInstances(candidate.getPredictions());
+		Classifier classifier = DatasetSettings.getInstance().getCombinedClassifier();
+		return measure.getMeasure(Evaluation.performTest(classifier, trainingSet, candidateData.getTestData(), false));
+	}
+	
+	/**
+	 * Racing evaluation of the candidate: the model is trained once and scored on growing stratified parts of the left out instances (the first part 
+	 * contains 1/16 of the instances, but at least {@link #minChunkSize} instances, and each next part doubles the number of the scored instances). 
+	 * The evaluation is stopped once the upper confidence bound of the fitness is lower than the fitness to beat, in which case the fitness measured 
+	 * on the scored instances is assigned to the candidate (and the candidate is marked as cut short). 
+	 * <p>
+	 * The instances are shuffled within each class (see {@link #racingSeed}), so each scored part is a random sample of the left out instances. The bound 
+	 * uses the Hoeffding-Serfling inequality for sampling without replacement: fitness + 100 * sqrt(ln(1/(1-confidence)) / (2n) * (1 - (n-1)/N)), 
+	 * where n is the number of scored instances and N is the number of left out instances. The inequality holds for the mean of the per-instance scores 
+	 * in the range [0, 100], so racing is only allowed with {@link classificationResult.measures.AccuracyMeasure} (see racing in GA properties).
+	 */
+	protected void evaluateByRacing(Classifier classifier, Instances trainingSet, Instances testSet, CandidateDataset candidateData, Candidate candidate, MeasureIF measure) throws Exception{
+		try {
+			classifier.buildClassifier(trainingSet);
+		} catch (Exception e) {			
+			throw new Exception("ERROR: error classifying the test set: could not build the classifiers", e);			
+		}
 		
 		double actualFitness = -1;
-		if(GASettings.getInstance().isLogGA()){ // logging GA -> should evaluate actual fitness 
-			ClassificationResult result =  Evaluation.performTest(classifier, tmpData.getLabeledData()[0], tmpData.getTestData()[0], false);
-			actualFitness = measure.getMeasure(result);
+		if(GASettings.getInstance().isActualFitnessEvaluated()) // logging GA -> should evaluate actual fitness (unless it is deferred)
+			actualFitness = measure.getMeasure(Evaluation.classifyInstances(classifier, candidateData.getTestData()).getClassificationResult(false));
+		
+		List<Integer> order = getStratifiedOrder(testSet, new Random(racingSeed));
+		double logConfidence = Math.log(1 / (1 - GASettings.getInstance().getRacingConfidence()));
+		int size = testSet.numInstances();
+		ClassifiedInstanceList scored = new ClassifiedInstanceList();
+		int chunkEnd = Math.min(size, Math.max(minChunkSize, size / 16));
+		while(true){
+			for(int i=scored.size(); i<chunkEnd; i++)
+				scored.addInstance(Evaluation.classifyInstance(classifier, testSet.instance(order.get(i))));
+			double fitness = measure.getMeasure(scored.getClassificationResult(false));
+			if(chunkEnd == size){
+				candidate.setCandidateEvaluation(fitness, actualFitness);
+				return;
+			}
+			double upperBound = fitness + 100 * Math.sqrt(logConfidence / (2 * chunkEnd) * (1 - ((double) chunkEnd - 1) / size));
+			if(upperBound < fitnessToBeat){
+				candidate.setCandidateEvaluation(fitness, actualFitness, true);
+				return;
+			}
+			chunkEnd = Math.min(size, chunkEnd * 2);
+		}
+	}
+	
+	/**
+	 * Orders the instances so that each prefix of the order contains the classes in the same proportion as the whole dataset. Within each class the 
+	 * instances are shuffled, so each prefix is a random sample of the class
+	 * @param instances the dataset
+	 * @param random random number generator used to shuffle the instances within each class
+	 * @return indices of the instances in the stratified order
+	 */
+	private static List<Integer> getStratifiedOrder(Instances instances, Random random){
+		Map<String, List<Integer>> classes = new LinkedHashMap<String, List<Integer>>();
+		for(int i=0; i<instances.numInstances(); i++){
+			String label = InstancesManipulation.getLabel(instances.instance(i));
+			List<Integer> indices = classes.get(label);
+			if(indices == null){
+				indices = new ArrayList<Integer>();
+				classes.put(label, indices);
+			}
+			indices.add(i);
 		}
 		
-		tmpData = InstancesManipulation.setTestSet(leftOut, tmpData); // set left out instances as the test set
-		tmpData.mergeViews();
-
-		ClassificationResult result =  Evaluation.performTest(classifier, tmpData.getLabeledData()[0], tmpData.getTestData()[0], false);
-		double fitness = measure.getMeasure(result);
-		candidate.setCandidateEvaluation(fitness, actualFitness);
-		evaluatedCandidates.add(candidate);
-		return;
+		final double[] positions = new double[instances.numInstances()]; // relative position of the instance within its class
+		List<Integer> order = new ArrayList<Integer>();
+		for(List<Integer> indices : classes.values()){
+			Collections.shuffle(indices, random);
+			for(int rank=0; rank<indices.size(); rank++)
+				positions[indices.get(rank)] = (rank + 0.5) / indices.size();
+			order.addAll(indices);
+		}
+		Collections.sort(order, new Comparator<Integer>() { // stable: equal positions keep the order of the classes
+			public int compare(Integer index1, Integer index2) {
+				return Double.compare(positions[index1], positions[index2]);
+			}
+		});
+		return order;
 	}
 
 	public String getName() {
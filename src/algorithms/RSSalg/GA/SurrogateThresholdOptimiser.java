@@ -0,0 +1,259 @@
+/** 	
+ * Name: SurrogateThresholdOptimiser.java
+ * 
+ * Purpose: Threshold optimiser for RSSalg that chooses the candidates by the expected improvement of a Gaussian process surrogate of the fitness.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
+import algorithms.co_training.CoTrainingData;
+import experimentSetting.DatasetSettings;
+import experimentSetting.GASettings;
+
+/**
+ * Threshold optimiser that minimizes the number of trained classifiers by modelling the fitness as the function of the threshold pair. 
+ * <p>
+ * The candidates are the points of the same grid that is explored by GA: label agreement threshold in [minimal_label_percent, 100] % and example 
+ * occurrence threshold in [minimal_example_percent, 100] % with the step of 1%. After the random initial design of generationSize candidates, a Gaussian 
+ * process (see {@link GaussianProcess}) is fitted to the evaluated candidates and the next candidates are the points with the highest expected improvement 
+ * over the best fitness found so far. In each round, surrogateBatchSize candidates are chosen (the model assumes its own prediction as the fitness of the 
+ * already chosen candidates) and evaluated concurrently by evaluationThreads threads.
+ * <p>
+ * The budget is taken from GA properties: at most generationSize * iterations candidates are evaluated, the optimisation stops if the best fitness 
+ * does not improve in the last noImprovalGenerations * generationSize evaluated candidates or when no candidate is expected to improve the fitness.
+ * The best fitness versus the number of trained classifiers is logged in the same way as for the other optimisers (see {@link #logProgress(double)}).
+ */
+public class SurrogateThresholdOptimiser extends ThresholdOptimiser {
+	/**
+	 * Length scale of the kernel (the thresholds are scaled to [0, 1])
+	 */
+	protected static double lengthScale = 0.15;
+	/**
+	 * Variance of the observation noise (relative to the standardized fitness)
+	 */
+	protected static double noise = 0.01;
+	/**
+	 * Maximal number of the unevaluated points scored by the expected improvement when choosing a candidate (a random sample is scored if there are more) 
+	 */
+	protected static int maxScoredPoints = 2000;
+	/**
+	 * Minimal expected improvement of the fitness for the candidate to be evaluated
+	 */
+	protected static double minExpectedImprovement = 1e-6;
+	
+	/**
+	 * Random number generator cloned from DataSettings
+	 */
+	protected Random rand;
+	/**
+	 * Minimal label agreement threshold to explore, in % 
+	 */
+	protected int minLabelAgreementThreshold = 0;
+	/**
+	 * Minimal example occurrence threshold to explore, in %
+	 */
+	protected int minExampleOccuranceThreshold = 0;
+	/**
+	 * Number of label agreement thresholds in the grid
+	 */
+	private int labelRange;
+	/**
+	 * Number of example occurrence thresholds in the grid
+	 */
+	private int exampleRange;
+	/**
+	 * Whether the grid point is already chosen for evaluation
+	 */
+	private boolean[] chosen;
+	/**
+	 * Number of the grid points not chosen for evaluation
+	 */
+	private int noUnchosen;
+	
+	@Override
+	public void init(ClassifierEnsembleList classifierStatistics, CoTrainingData data, int fold) throws Exception {
+		this.rand = DatasetSettings.getInstance().cloneRandom();
+		super.init(classifierStatistics, data, fold);
+		
+		minLabelAgreementThreshold = (int) Math.floor(classifierStatistics.getMinLabelAgreementPercent() * 100);
+		minExampleOccuranceThreshold = (int) Math.floor(classifierStatistics.getMinExampleOccurencePercent() * 100);
+		System.out.println("Starting surrogate threshold optimiser fold "+ fold);
+		System.out.println("Label agreement is in the range [" + minLabelAgreementThreshold + ", 100] %");
+		System.out.println("Example agreement is in the range [" + minExampleOccuranceThreshold + ", 100] %");
+	}
+	
+	/**
+	 * Returns the thresholds of the grid point scaled to [0, 1]
+	 */
+	private double[] getCoordinates(int point){
+		int labelIndex = point / exampleRange;
+		int exampleIndex = point % exampleRange;
+		return new double[]{ labelRange > 1 ? ((double) labelIndex) / (labelRange - 1) : 0, exampleRange > 1 ? ((double) exampleIndex) / (exampleRange - 1) : 0 };
+	}
+	
+	/**
+	 * Creates the candidate for the grid point
+	 */
+	private Candidate getCandidate(int point){
+		int labelIndex = point / exampleRange;
+		int exampleIndex = point % exampleRange;
+		return new Candidate(((double) (minLabelAgreementThreshold + labelIndex)) / 100, ((double) (minExampleOccuranceThreshold + exampleIndex)) / 100, classifierStatistics);
+	}
+	
+	private void choose(int point, List<Integer> batch){
+		chosen[point] = true;
+		noUnchosen--;
+		batch.add(point);
+	}
+	
+	private int randomUnchosenPoint(){
+		int point;
+		do{
+			point = rand.nextInt(chosen.length);
+		}while(chosen[point]);
+		return point;
+	}
+	
+	/**
+	 * Chooses the grid points with the highest expected improvement for the next round
+	 * @param model the model fitted to the evaluated candidates
+	 * @param fitnesses the fitness of the evaluated candidates, in the order of the points in the model
+	 * @param bestFitness the best fitness found so far
+	 * @param size maximal number of points to choose
+	 * @return the chosen points (empty if no point is expected to improve the fitness)
+	 */
+	private List<Integer> proposeBatch(GaussianProcess model, List<Double> fitnesses, double bestFitness, int size){
+		int noEvaluated = model.size();
+		List<Double> targets = new ArrayList<Double>(fitnesses);
+		List<Integer> batch = new ArrayList<Integer>();
+		while(batch.size() < size && noUnchosen > 0){
+			List<Integer> scoredPoints = new ArrayList<Integer>();
+			if(noUnchosen <= maxScoredPoints){
+				for(int point=0; point<chosen.length; point++)
+					if(!chosen[point])
+						scoredPoints.add(point);
+			}else
+				for(int i=0; i<maxScoredPoints; i++)
+					scoredPoints.add(randomUnchosenPoint());
+			
+			int bestPoint = -1;
+			double bestImprovement = minExpectedImprovement;
+			for(int point : scoredPoints){
+				double improvement = model.expectedImprovement(getCoordinates(point), bestFitness);
+				if(improvement > bestImprovement){
+					bestImprovement = improvement;
+					bestPoint = point;
+				}
+			}
+			if(bestPoint == -1)
+				break; // no point is expected to improve the fitness
+			
+			choose(bestPoint, batch);
+			if(batch.size() < size){ // assume the predicted fitness for the chosen point in order to choose the next one
+				double[] coordinates = getCoordinates(bestPoint);
+				targets.add(model.predict(coordinates)[0]);
+				model.addPoint(coordinates);
+				model.setTargets(targets);
+			}
+		}
+		model.truncate(noEvaluated);
+		model.setTargets(fitnesses);
+		return batch;
+	}
+	
+	protected Candidate optimise() throws Exception{
+		labelRange = 101 - minLabelAgreementThreshold;
+		exampleRange = 101 - minExampleOccuranceThreshold;
+		chosen = new boolean[labelRange * exampleRange];
+		noUnchosen = chosen.length;
+		
+		GASettings settings = GASettings.getInstance();
+		int budget = Math.min(settings.getGenerationSize() * settings.getIterationNo(), chosen.length);
+		int noImprovalLimit = settings.getNoImprovalgenerations() > 0 ? settings.getNoImprovalgenerations() * settings.getGenerationSize() : -1;
+		
+		GaussianProcess model = new GaussianProcess(lengthScale, noise);
+		List<Double> fitnesses = new ArrayList<Double>();
+		Candidate best = null;
+		int noImproval = 0;
+		int noChosen = 0;
+		
+		// random initial design
+		List<Integer> batch = new ArrayList<Integer>();
+		while(batch.size() < Math.min(settings.getGenerationSize(), budget))
+			choose(randomUnchosenPoint(), batch);
+		
+		int round = 0;
+		while(!batch.isEmpty()){
+			noChosen += batch.size();
+			List<Candidate> candidates = new ArrayList<Candidate>();
+			for(int point : batch)
+				candidates.add(getCandidate(point));
+			evaluateCandidates(candidates, best);
+			
+			for(int i=0; i<batch.size(); i++){
+				Candidate candidate = candidates.get(i);
+				if(!candidate.isCutShort()){ // the fitness of the candidate cut short in racing evaluation is measured on a part of the test set only
+					model.addPoint(getCoordinates(batch.get(i)));
+					fitnesses.add(candidate.getFitness());
+				}
+				if(best == null || candidate.getFitness() > best.getFitness()){
+					best = candidate;
+					noImproval = 0;
+				}else
+					noImproval++;
+			}
+			model.setTargets(fitnesses);
+			
+			if(settings.isLogGA()){
+				Collections.sort(candidates);
+				log("Round " + round, candidates);
+			}
+			logProgress(best.getFitness());
+			round++;
+			
+			if(noChosen >= budget || (noImprovalLimit > 0 && noImproval >= noImprovalLimit))
+				break;
+			batch = proposeBatch(model, fitnesses, best.getFitness(), Math.min(settings.getSurrogateBatchSize(), budget - noChosen));
+		}
+		
+		System.out.println("Evaluated " + noEvaluatedCandidates + " candidates in " + round + " rounds (" + fitnessCache.getNoEvaluations() + " classifiers trained)");
+		System.out.println("Best candidate: " + best);
+		System.out.println("------------------------------------------------------------------------------");
+		return best;
+	}
+
+	public String getName() {
+		return "surrogate";
+	}
+}
@@ -31,12 +31,10 @@
  **/
 package algorithms.RSSalg.GA;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import util.Evaluation;
-import util.InstancesManipulation;
+import weka.core.Instances;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.co_training.CoTrainingData;
 import classificationResult.ClassificationResult;
@@ -58,31 +56,64 @@ import experimentSetting.DatasetSettings;
  */
 public class TestSetAccuracyCandidateEvaluator implements CandidateEvaluatorIF { 
 	/**
-	 * A list of candidates that are already evaluated. Candidates with different example/label threshold may still have the same set of kept examples (which will result 
-	 * with the same final classifier, i.e. the same final classification model). Since evaluation (training and testing a model) might potentially be expensive, we keep the 
-	 * record of evaluated candidates in order to just copy the fitness value in case that the candidate for evaluation results with the same model as some already evaluated candidate
-	 * (see also {@link Candidate#equals(Object)}).  
+	 * Fitness of the already evaluated training sets. Candidates with different example/label threshold may still have the same set of kept examples (which will 
+	 * result with the same final classifier). Since evaluation (training and testing a model) might potentially be expensive, we keep the fitness of 
+	 * evaluated training sets in order to just copy the fitness value in case that the candidate for evaluation results with the same model as some 
+	 * already evaluated candidate (see also {@link FitnessCache}). The cache is thread-safe, so the candidates can be evaluated concurrently  
 	 */
-	protected List<Candidate> evaluatedCandidates = new ArrayList<Candidate>();
+	protected FitnessCache fitnessCache = new FitnessCache(); 
+	
+	/**
+	 * Index over the data of the current fold, used to build the training sets of the candidates (see {@link CandidateDataset})
+	 */
+	protected CandidateDataset candidateDataset = null;
+	
+	public void setFitnessCache(FitnessCache fitnessCache) {
+		this.fitnessCache = fitnessCache;
+	}
+	
+	/**
+	 * Ignored: the candidates are always evaluated on the whole test set
+	 */
+	public void setFitnessToBeat(double fitness) {
+	}
+	
+	/**
+	 * Returns the index over the data, created once for the data of each fold
+	 * @param data the data used in the experiment
+	 * @return the index over the data
+	 * @throws Exception if there was an error creating the index
+	 */
+	protected synchronized CandidateDataset getCandidateDataset(CoTrainingData data) throws Exception{
+		if(candidateDataset == null || candidateDataset.getSource() != data)
+			candidateDataset = new CandidateDataset(data, false);
+		return candidateDataset;
+	}
 	
 	public void evaluateCandidate(CoTrainingData data, ClassifierEnsembleList classifiers, Candidate candidate, MeasureIF measure) throws Exception {	
-		int index = evaluatedCandidates.indexOf(candidate); // Finds the candidate that results with the same final training set. Returns -1 if there is no such evaluated candidate.
-		if(index != -1){ // Found evaluated candidate that results with the same final training set: copy fitness values from that candidate and exit function 			
-			Candidate oldEvaluatedCandidate = evaluatedCandidates.get(index);
-			candidate.setCandidateEvaluation(oldEvaluatedCandidate.getFitness(), oldEvaluatedCandidate.getActualFitness());
+		// Finds the candidate that results with the same final training set and copies its fitness values. 
+		CandidateDataset candidateData = getCandidateDataset(data);
+		if(fitnessCache.copyEvaluation(candidate, candidateData))
 			return;
-		}
 		
-		CoTrainingData tmpData = new CoTrainingData(data); // copy the data (in order not to change the original data)
-		Map<Double, String> predictions =  candidate.getPredictions(); // instances in the final training set: key: instance id; value: prediction for instance				
-		tmpData = InstancesManipulation.setTrainingSet(predictions, tmpData);
+		try{
+			Map<Double, String> predictions =  candidate.getPredictions(); // instances in the final training set: key: instance id; value: prediction for instance				
+			Instances trainingSet = candidateData.getInstances(predictions);
 			
+			weka.classifiers.Classifier classifier = DatasetSettings.getInstance().getCombinedClassifier();
+			ClassificationResult result =  Evaluation.performTest(classifier, trainingSet, candidateData.getTestData(), false);
+			double fitness = measure.getMeasure(result);
+			candidate.setCandidateEvaluation(fitness, fitness); 
+			fitnessCache.add(candidate);
+		}finally{
+			fitnessCache.release(candidate);
+		}
+	}
+
+	public double evaluateActualFitness(CoTrainingData data, Candidate candidate, MeasureIF measure) throws Exception {
+		Instances trainingSet = getCandidateDataset(data).getInstances(candidate.getPredictions());
 		weka.classifiers.Classifier classifier = DatasetSettings.getInstance().getCombinedClassifier();
-		ClassificationResult result =  Evaluation.performTest(classifier, tmpData.getLabeledData()[0], tmpData.getTestData()[0], false);
-		double fitness = measure.getMeasure(result);
-		candidate.setCandidateEvaluation(fitness, fitness); 
-		evaluatedCandidates.add(candidate);
-		return;
+		return measure.getMeasure(Evaluation.performTest(classifier, trainingSet, getCandidateDataset(data).getTestData(), false));
 	}
 
 	public String getName() {
@@ -0,0 +1,462 @@
+/** 	
+ * Name: ThresholdOptimiser.java
+ * 
+ * Purpose: Base class for the threshold optimisers in RSSalg: prepares the fold data and evaluates the candidates concurrently.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import util.InstancesManipulation;
+import weka.core.Instances;
+import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
+import algorithms.co_training.CoTrainingData;
+import classificationResult.measures.MeasureIF;
+import experimentSetting.DatasetSettings;
+import experimentSetting.ExperimentSettings;
+import experimentSetting.GASettings;
+
+/**
+ * Base class for the threshold optimisers in RSSalg. Prepares the data of the fold for candidate evaluation, keeps the fitness cache of the fold 
+ * (see {@link FitnessCache}) and evaluates the candidates concurrently (see evaluationThreads in GA properties).
+ */
+public abstract class ThresholdOptimiser implements ThresholdOptimiserIF {
+	/**
+	 * Data (labeled, unlabeled and test instances) used in the experiment
+	 */
+	protected CoTrainingData data;
+	/**
+	 * Statistics (instance ids, predictions and confidences for each prediction) about the instances labeled during the algorithm execution 
+	 * (instances formally belonging to the unlabeled set, labeled and added to train data by the algorithm)
+	 */
+	protected ClassifierEnsembleList classifierStatistics;
+	/**
+	 * Algorithm used for candidate evaluation
+	 */
+	protected CandidateEvaluatorIF evaluator;
+	/**
+	 * Measure used for candidate evaluation
+	 */
+	protected MeasureIF measure;
+	/**
+	 * Current fold in fold-cross validation experiment
+	 */
+	protected int fold; 
+	/**
+	 * If a log file for the optimiser should be kept, write it in {results_folder}/fold_{currentFold}/ThresholdOptimiserlog.txt
+	 */
+	protected String logFileLocation;
+	/**
+	 * If a log file for the optimiser should be kept, the best fitness found after each step of the optimisation versus the number of trained 
+	 * classifiers is written in {results_folder}/fold_{currentFold}/ThresholdOptimiserProgress.txt
+	 */
+	protected String progressFileLocation;
+	/**
+	 * Number of candidates evaluated so far (including the ones whose fitness was copied from the fitness cache)
+	 */
+	protected int noEvaluatedCandidates = 0;
+	/**
+	 * Number of candidate evaluations that were cut short by racing (see racing in GA properties)
+	 */
+	protected int noCutShort = 0;
+	/**
+	 * Threads evaluating the candidates concurrently (null if the candidates are evaluated sequentially)
+	 */
+	protected ExecutorService executor = null;
+	/**
+	 * If set, the log is collected here instead of being written to the log file (used by the optimisers that run concurrently and share the log file)
+	 */
+	protected StringBuilder logBuffer = null;
+	/**
+	 * Low-priority thread that evaluates the actual fitness of the logged candidates in the background (null if the actual fitness is not deferred, 
+	 * see deferActualFitness in GA properties) 
+	 */
+	protected ExecutorService actualFitnessExecutor = null;
+	/**
+	 * The actual fitness evaluations scheduled in the background (key: the key of the final training set, see {@link FitnessCache#getKey(Candidate)})
+	 */
+	protected Map<String, Future<Double>> actualFitnessEvaluations = null;
+	/**
+	 * The logged candidates that wait for the evaluation of their actual fitness, in the order they were logged
+	 */
+	protected List<DeferredLog> deferredLog = new ArrayList<DeferredLog>();
+	
+	/**
+	 * The logged block of candidates that waits for the evaluation of the actual fitness 
+	 */
+	protected static class DeferredLog {
+		protected String title;
+		/**
+		 * The copies of the logged candidates made at the time of logging
+		 */
+		protected List<Candidate> candidates = new ArrayList<Candidate>();
+		/**
+		 * The scheduled evaluations of the actual fitness of the logged candidates
+		 */
+		protected Map<Candidate, Future<Double>> actualFitness = new IdentityHashMap<Candidate, Future<Double>>();
+		
+		protected DeferredLog(String title){
+			this.title = title;
+		}
+		
+		protected boolean isDone(){
+			for(Future<Double> evaluation : actualFitness.values())
+				if(!evaluation.isDone())
+					return false;
+			return true;
+		}
+	}
+	/**
+	 * Fitness of the training sets evaluated in this fold
+	 */
+	protected FitnessCache fitnessCache;
+	/**
+	 * If the fitness cache should be kept, write it in {results_folder}/fold_{currentFold}/FitnessCache_{evaluatorName}.txt
+	 */
+	protected String fitnessCacheLocation;
+	
+	/**
+	 * Makes a copy of the data (copy-on-write, see {@link CoTrainingData#CoTrainingData(CoTrainingData)}), so the original object is not modified. The test data is removed if it is not needed for the evaluation 
+	 * (RSSalg evaluation without logging) and the views are merged (the final classifier in RSSalg uses a unique attribute set)
+	 */
+	public void init(ClassifierEnsembleList classifierStatistics, CoTrainingData data, int fold) throws Exception {
+		this.evaluator = ExperimentSettings.getInstance().getEvaluator();
+		this.data = new CoTrainingData(data);
+		this.measure = GASettings.getInstance().getOptMeasure();
+		
+		this.fitnessCache = new FitnessCache(GASettings.getInstance().getFitnessCacheSize());
+		if(GASettings.getInstance().isPersistFitnessCache() || GASettings.getInstance().getCheckpointInterval() > 0)
+			this.fitnessCache.setContext(FitnessCache.getContext(evaluator.getName(), measure, data));
+		 
+		if(this.evaluator instanceof RSSalgCandidateEvaluator && !(GASettings.getInstance().isLogGA()) ){
+			Instances[] emptyTestData = new Instances[this.data.peekTestData().length];
+			for(int view=0; view<emptyTestData.length; view++)
+				emptyTestData[view] = InstancesManipulation.createEmptyDataset(this.data.peekTestData()[view]);
+			this.data.setTestData(emptyTestData);
+		}
+		
+		this.data.mergeViews();
+		this.classifierStatistics = classifierStatistics;		
+		this.fold = fold;
+		
+		logFileLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/ThresholdOptimiserlog.txt";
+		progressFileLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/ThresholdOptimiserProgress.txt";
+		if(GASettings.getInstance().isLogGA()){
+			File logFile = new File(logFileLocation);
+			if(logFile.exists())
+				logFile.delete();
+			File progressFile = new File(progressFileLocation);
+			if(progressFile.exists())
+				progressFile.delete();
+		}
+		fitnessCacheLocation = DatasetSettings.getInstance().getResultFolder() + "/fold_" + fold + "/FitnessCache_" + evaluator.getName() + ".txt";
+	}
+	
+	/**
+	 * Runs the optimisation (see {@link #optimise()}) with the fitness cache of the fold and the threads for the candidate evaluation 
+	 */
+	public Candidate run() throws Exception{
+		evaluator.setFitnessCache(fitnessCache);
+		if(GASettings.getInstance().isPersistFitnessCache()){
+			int loaded = fitnessCache.load(fitnessCacheLocation, GASettings.getInstance().isActualFitnessEvaluated());
+			System.out.println("Loaded fitness of " + loaded + " training sets from " + fitnessCacheLocation);
+		}
+		int noThreads = GASettings.getInstance().getEvaluationThreads();
+		if(noThreads > 1)
+			executor = Executors.newFixedThreadPool(noThreads);
+		if(GASettings.getInstance().isLogGA() && GASettings.getInstance().isDeferActualFitness()){
+			actualFitnessExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "actual fitness evaluation");
+					thread.setPriority(Thread.MIN_PRIORITY);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			actualFitnessEvaluations = new HashMap<String, Future<Double>>();
+		}
+		try{
+			Candidate best = optimise();
+			if(actualFitnessExecutor != null){
+				writeDeferredLog(true);
+				System.out.println("Actual fitness evaluated in the background for " + actualFitnessEvaluations.size() + " training sets");
+			}
+			if(GASettings.getInstance().isRacing())
+				System.out.println("Evaluations cut short by racing: " + noCutShort + " of " + fitnessCache.getNoEvaluations());
+			if(GASettings.getInstance().isPersistFitnessCache())
+				fitnessCache.save(fitnessCacheLocation);
+			return best;
+		}finally{
+			if(executor != null){
+				executor.shutdownNow();
+				executor = null;
+			}
+			if(actualFitnessExecutor != null){
+				actualFitnessExecutor.shutdownNow();
+				actualFitnessExecutor = null;
+			}
+		}
+	}
+	
+	/**
+	 * Searches for the best threshold pair
+	 * @return the best candidate (found optimum)
+	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
+	 */
+	protected abstract Candidate optimise() throws Exception;
+	
+	/**
+	 * Evaluates the candidates concurrently (see evaluationThreads in GA properties). The same candidate object can occur in the list multiple times and is evaluated once
+	 * @param candidates the candidates to evaluate
+	 * @param best the best candidate found before this evaluation (null if there is none). The evaluator may stop the evaluation of the candidates 
+	 * that cannot beat it (see racing in GA properties)
+	 * @throws Exception if there was an error in evaluating the candidate
+	 */
+	protected void evaluateCandidates(List<Candidate> candidates, Candidate best) throws Exception{
+		evaluator.setFitnessToBeat(best == null ? Double.NEGATIVE_INFINITY : best.getFitness());
+		evaluateCandidates(candidates);
+	}
+	
+	/**
+	 * Evaluates the candidates concurrently (see evaluationThreads in GA properties) without changing the fitness to beat set in the evaluator. 
+	 * The same candidate object can occur in the list multiple times and is evaluated once
+	 * @param candidates the candidates to evaluate
+	 * @throws Exception if there was an error in evaluating the candidate
+	 */
+	protected void evaluateCandidates(List<Candidate> candidates) throws Exception{
+		noEvaluatedCandidates += candidates.size();
+		List<Candidate> candidatesToEvaluate = new ArrayList<Candidate>();
+		for(Candidate candidate : candidates){
+			boolean found = false;
+			for(Candidate other : candidatesToEvaluate)
+				if(other == candidate)
+					found = true;
+			if(!found)
+				candidatesToEvaluate.add(candidate);
+		}
+		
+		if(executor == null){
+			for(Candidate candidate : candidatesToEvaluate)
+				evaluator.evaluateCandidate(data, classifierStatistics, candidate, measure);
+		}else{
+			List<Future<Void>> evaluations = new ArrayList<Future<Void>>();
+			for(final Candidate candidate : candidatesToEvaluate){
+				evaluations.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						evaluator.evaluateCandidate(data, classifierStatistics, candidate, measure);
+						return null;
+					}
+				}));
+			}
+			for(Future<Void> evaluation : evaluations){
+				try{
+					evaluation.get();
+				}catch(ExecutionException e){
+					throw new Exception("ERROR: error evaluating the candidate in " + getName() + " fold " + fold, e.getCause());
+				}
+			}
+		}
+		for(Candidate candidate : candidatesToEvaluate)
+			if(candidate.isCutShort())
+				noCutShort++;
+	}
+	
+	/**
+	 * Appends the candidates to the log file of the optimiser (if logging is on, see logGA in GA properties)
+	 * @param title the title of the logged block (e.g. the number of the generation)
+	 * @param candidates the candidates to log
+	 */
+	protected void log(String title, List<Candidate> candidates){
+		if(!GASettings.getInstance().isLogGA())	
+			return;
+		
+		if(actualFitnessExecutor != null){
+			deferredLog.add(deferLog(title, candidates));
+			if(logBuffer == null){ // the log of the concurrently run optimisers is collected by the optimiser that runs them
+				try{
+					writeDeferredLog(false);
+				}catch(Exception e){
+					System.out.println("WARNING: error writing threshold optimiser log for fold "+ fold);
+					System.out.println(e.getMessage());
+				}
+			}
+			return;
+		}
+		if(logBuffer != null){
+			logBuffer.append(format(title, candidates));
+			return;
+		}
+		writeLog(format(title, candidates));
+	}
+	
+	private static String format(String title, List<Candidate> candidates){
+		StringWriter text = new StringWriter();
+		PrintWriter textWriter = new PrintWriter(text);
+		textWriter.println(title);
+		for(Candidate candidate : candidates)
+			textWriter.println(candidate);
+		textWriter.println();
+		textWriter.println();
+		textWriter.println();
+		textWriter.close();
+		return text.toString();
+	}
+	
+	/**
+	 * Copies the logged candidates and schedules the background evaluation of the actual fitness of the best ones (see actualFitnessTopN in GA properties)
+	 * @param title the title of the logged block
+	 * @param candidates the candidates to log
+	 * @return the logged block
+	 */
+	private DeferredLog deferLog(String title, List<Candidate> candidates){
+		DeferredLog entry = new DeferredLog(title);
+		Map<Candidate, Candidate> snapshots = new IdentityHashMap<Candidate, Candidate>();
+		List<Candidate> distinct = new ArrayList<Candidate>();
+		for(Candidate candidate : candidates){
+			Candidate snapshot = snapshots.get(candidate);
+			if(snapshot == null){
+				snapshot = candidate.snapshot();
+				snapshots.put(candidate, snapshot);
+				distinct.add(snapshot);
+			}
+			entry.candidates.add(snapshot);
+		}
+		
+		Collections.sort(distinct); // the best candidates first
+		int topN = GASettings.getInstance().getActualFitnessTopN();
+		try{
+			for(int i=0; i<distinct.size() && (topN == 0 || i < topN); i++)
+				if(distinct.get(i).getActualFitness() == -1)
+					entry.actualFitness.put(distinct.get(i), scheduleActualFitness(distinct.get(i)));
+		}catch(Exception e){
+			System.out.println("WARNING: could not schedule the evaluation of the actual fitness in " + getName() + " fold " + fold);
+			System.out.println(e.getMessage());
+		}
+		return entry;
+	}
+	
+	/**
+	 * Schedules the background evaluation of the actual fitness of the candidate. The actual fitness of each final training set is evaluated once
+	 * @param candidate the evaluated candidate
+	 * @return the scheduled evaluation
+	 * @throws Exception if there was an error calculating the key of the candidate
+	 */
+	private Future<Double> scheduleActualFitness(final Candidate candidate) throws Exception{
+		String key = FitnessCache.getKey(candidate);
+		synchronized (actualFitnessEvaluations) {
+			Future<Double> evaluation = actualFitnessEvaluations.get(key);
+			if(evaluation == null){
+				evaluation = actualFitnessExecutor.submit(new Callable<Double>() {
+					public Double call() throws Exception {
+						return evaluator.evaluateActualFitness(data, candidate, measure);
+					}
+				});
+				actualFitnessEvaluations.put(key, evaluation);
+			}
+			return evaluation;
+		}
+	}
+	
+	/**
+	 * Writes the logged blocks whose actual fitness evaluations have finished, in the order they were logged
+	 * @param wait whether to wait for the unfinished evaluations (all blocks are written) or to stop at the first block that waits for an evaluation
+	 * @throws Exception if there was an error evaluating the actual fitness
+	 */
+	protected void writeDeferredLog(boolean wait) throws Exception{
+		while(!deferredLog.isEmpty() && (wait || deferredLog.get(0).isDone())){
+			DeferredLog entry = deferredLog.remove(0);
+			for(Candidate candidate : entry.candidates){
+				Future<Double> evaluation = entry.actualFitness.get(candidate);
+				if(evaluation == null)
+					continue;
+				try{
+					candidate.setCandidateEvaluation(candidate.getFitness(), evaluation.get(), candidate.isCutShort());
+				}catch(ExecutionException e){
+					throw new Exception("ERROR: error evaluating the actual fitness in " + getName() + " fold " + fold, e.getCause());
+				}
+			}
+			writeLog(format(entry.title, entry.candidates));
+		}
+	}
+	
+	/**
+	 * Appends the text to the log file of the optimiser
+	 * @param text the text to append
+	 */
+	protected void writeLog(String text){
+		try {
+			PrintWriter writer = new PrintWriter(new FileOutputStream(new File(logFileLocation), true));
+			writer.print(text);
+			writer.close();
+		} catch (FileNotFoundException e) {
+			System.out.println("WARNING: error writing threshold optimiser log for fold "+ fold);
+			System.out.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Appends the best fitness found so far to the progress file of the optimiser (if logging is on, see logGA in GA properties), together with the 
+	 * number of evaluated candidates, the number of trained classifiers (evaluated candidates whose fitness was not found in the fitness cache) and the 
+	 * number of evaluations cut short by racing
+	 * @param bestFitness the best fitness found so far
+	 */
+	protected void logProgress(double bestFitness){
+		if(!GASettings.getInstance().isLogGA())	
+			return;
+			
+		try {
+			File progressFile = new File(progressFileLocation);
+			boolean newFile = !progressFile.exists();
+			PrintWriter writer = new PrintWriter(new FileOutputStream(progressFile, true));
+			if(newFile)
+				writer.println(getName() + ": evaluated candidates, trained classifiers, evaluations cut short, best fitness");
+			writer.println(noEvaluatedCandidates + "\t" + fitnessCache.getNoEvaluations() + "\t" + noCutShort + "\t" + bestFitness);
+			writer.close();
+		} catch (FileNotFoundException e) {
+			System.out.println("WARNING: error writing threshold optimiser progress for fold "+ fold);
+			System.out.println(e.getMessage());
+		}
+	}
+}
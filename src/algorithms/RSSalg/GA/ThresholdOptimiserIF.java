@@ -0,0 +1,64 @@
+/** 	
+ * Name: ThresholdOptimiserIF.java
+ * 
+ * Purpose: Interface that the algorithms for the optimization of the label agreement/example occurrence threshold pair in RSSalg must implement.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.GA;
+
+import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
+import algorithms.co_training.CoTrainingData;
+
+/**
+ * Interface that the algorithms for the optimization of the label agreement/example occurrence threshold pair in RSSalg must implement. 
+ * The optimiser used in the experiment is specified by thresholdOptimiser in GA properties, and a new instance of the optimiser is created for each fold.
+ */
+public interface ThresholdOptimiserIF {
+	
+	/**
+	 * Prepares the optimiser for the fold 
+	 * @param classifierStatistics Statistics (instance ids, predictions and confidences for each prediction) about the instances labeled during the algorithm execution 
+	 * @param data Data (labeled, unlabeled and test instances) used in the experiment. The optimiser should not modify the original data object (use the deep copy instead) 
+	 * @param fold Current fold in fold-cross validation experiment
+	 * @throws Exception if there was an error preparing the data for the candidate evaluation
+	 */
+	public void init(ClassifierEnsembleList classifierStatistics, CoTrainingData data, int fold) throws Exception;
+	
+	/**
+	 * Runs the optimisation of the threshold pair
+	 * @return the best candidate (found optimum)
+	 * @throws Exception if there was an error during evaluation of the threshold pair candidates
+	 */
+	public Candidate run() throws Exception;
+	
+	/**
+	 * Returns the name of the threshold optimiser
+	 * @return name of the algorithm for threshold optimisation
+	 */
+	public String getName();
+}
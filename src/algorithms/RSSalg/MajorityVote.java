@@ -35,8 +35,8 @@ import util.InstancesManipulation;
 import weka.core.Instance;
 import algorithms.Algorithm;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
-import algorithms.RSSalg.resultStatistic.Label;
-import algorithms.RSSalg.resultStatistic.Votes;
+import algorithms.RSSalg.resultStatistic.Confidences;
+import algorithms.RSSalg.resultStatistic.VotesTable;
 import algorithms.RSSalg.voter.VoterIF;
 import algorithms.co_training.CoTrainingData;
 import classificationResult.ClassificationResult;
@@ -74,8 +74,8 @@ public class MajorityVote extends Algorithm{
 			ClassifierEnsembleList classifiersTest = new ClassifierEnsembleList();
 			classifiersTest.fromXML(filename);
 			
-			if(classifiersTest.getStatisticSize() != data.getTestData()[0].size())
-				throw new Exception("Test data size and recorded statistic don't match. Test data size: " + data.getTestData()[0].size() + " recorded stats: " +  classifiersTest.getStatisticSize());
+			if(classifiersTest.getStatisticSize() != data.peekTestData()[0].size())
+				throw new Exception("Test data size and recorded statistic don't match. Test data size: " + data.peekTestData()[0].size() + " recorded stats: " +  classifiersTest.getStatisticSize());
 			
 			ClassificationResult result = null;
 			if(recordClassifiers)
@@ -83,27 +83,30 @@ public class MajorityVote extends Algorithm{
 			else
 				result = new ClassificationResult(false);
 				
-			for(Instance inst : data.getTestData()[0]){
+			// votes, assigned labels and entropies for all test instances are calculated in one pass over the statistics
+			VotesTable votes = classifiersTest.getVotesTable();
+			VoterIF voter = ExperimentSettings.getInstance().getVoter();
+			int[] assignedLabels = voter.vote(votes);
+			
+			for(Instance inst : data.peekTestData()[0]){
 				double id = Double.parseDouble(InstancesManipulation.getInstanceID(inst));
-				if(!classifiersTest.containsID(id))
+				int row = votes.getRow(id);
+				if(row == -1)
 					throw new Exception("Instance id " + id + " from test data missing in recorded statistics");
 				String actualLabel = InstancesManipulation.getLabel(inst); 
-				VoterIF voter = ExperimentSettings.getInstance().getVoter();
-				
-				Votes votesForInstance = classifiersTest.getVotes(id);
-				Label assignedLabel = voter.vote(votesForInstance);
+				String assignedLabel = votes.getClassNames().get(assignedLabels[row]);
+				// confidence is calculated as the entropy for the given label
+				Confidences entropies = votes.getEntropies(row);
 				
 				if(actualLabel != null)
-				if (!assignedLabel.getName().equals(actualLabel))
-					result.updateFalse(id, assignedLabel.getName(), classifiersTest.getVotes(id).getEntropies());
+				if (!assignedLabel.equals(actualLabel))
+					result.updateFalse(id, assignedLabel, entropies);
 				else{
-					result.updateTrue(id, assignedLabel.getName(), classifiersTest.getVotes(id).getEntropies());
+					result.updateTrue(id, assignedLabel, entropies);
 				}
 				
-				// confidence is calculated as the entropy for the given label
 				if(recordClassifiers){
-//					classifierTestData.addPrediction(id, classifiersTest.getVotes(id).getConfidences());
-					classifierTestData.addPrediction(id, classifiersTest.getVotes(id).getEntropies());
+					classifierTestData.addPrediction(id, entropies);
 				}
 			}
 			
@@ -32,24 +32,28 @@
 package algorithms.RSSalg;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import util.Evaluation;
 import util.InstancesManipulation;
+import weka.core.Instances;
 import algorithms.Algorithm;
 import algorithms.RSSalg.GA.Candidate;
 import algorithms.RSSalg.GA.CandidateEvaluatorIF;
-import algorithms.RSSalg.GA.GAThresholdOptimiser;
 import algorithms.RSSalg.GA.RSSalgCandidateEvaluator;
 import algorithms.RSSalg.GA.TestSetAccuracyCandidateEvaluator;
+import algorithms.RSSalg.GA.ThresholdOptimiserIF;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsemble;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.co_training.CoTraining;
 import algorithms.co_training.CoTrainingData;
+import algorithms.co_training.TrainingSetDelta;
 import classificationResult.ClassificationResult;
 import classificationResult.measures.MeasureIF;
 import experimentSetting.DatasetSettings;
 import experimentSetting.ExperimentSettings;
+import experimentSetting.GASettings;
 import featureSplit.DifferentRandomSplitsSplitter;
 
 /**
@@ -82,6 +86,7 @@ public class RSSalg extends Algorithm{
 	public ClassificationResult run(CoTrainingData data, int fold, int splitNo, boolean recordClassifiers) throws Exception{
 		super.run(data, fold, splitNo, recordClassifiers);
 		long startTime = System.currentTimeMillis();
+		Map<Double, String> baseLabels = null; // labels of the labeled instances before the threshold optimisation (for the delta format)
 	
 		if(createStatistics){// if classifiers are not set, create the statistics		
 			classifiers = new ClassifierEnsembleList();
@@ -112,16 +117,19 @@ public class RSSalg extends Algorithm{
 		} 
 		
 		// check whether training on wrong classifiers file (test data should not be labeled by any of the classifiers)
-		for(int i=0; i<data.getTestData()[0].size(); i++){
-			double id = Double.parseDouble(InstancesManipulation.getInstanceID(data.getTestData()[0].get(i)));
+		for(int i=0; i<data.peekTestData()[0].size(); i++){
+			double id = Double.parseDouble(InstancesManipulation.getInstanceID(data.peekTestData()[0].get(i)));
 			if(classifiers.containsID(id))
 				throw new Exception("Training on test data id " + id);
 		}
 		
 		try{
-			GAThresholdOptimiser optimizer = new GAThresholdOptimiser(classifiers, data, currentFold);
+			ThresholdOptimiserIF optimizer = GASettings.getInstance().getThresholdOptimiser();
+			optimizer.init(classifiers, data, currentFold);
 			Candidate solution = optimizer.run();
 			data.mergeViews();
+			if(ExperimentSettings.getInstance().isWriteEnlargedCoTrainingSet() && ExperimentSettings.getInstance().isDeltaEnlargedTrainingSet())
+				baseLabels = TrainingSetDelta.getLabels(data.peekLabeledData()[0]);
 			data = InstancesManipulation.setTrainingSet(solution.getPredictions(), data);
 		}catch(Exception e){
 			Exception ex = new Exception("ERROR: error running threshold optimizer for RSSalg fold " + currentFold + ":\n");
@@ -130,16 +138,20 @@ public class RSSalg extends Algorithm{
 		}
 		
 		if(ExperimentSettings.getInstance().isWriteEnlargedCoTrainingSet()){
-			String fileName = DatasetSettings.getInstance().getResultFolder() + "/fold_" + currentFold + "/" + getName() + "_enlargedTrainingSet.arff";
-			InstancesManipulation.writeArff(fileName, data.getLabeledData()[0]);			
+			String fileName = DatasetSettings.getInstance().getResultFolder() + "/fold_" + currentFold + "/" + getName() + "_enlargedTrainingSet";
+			if(baseLabels != null)
+				TrainingSetDelta.compare(baseLabels, data.peekLabeledData()[0]).write(fileName + TrainingSetDelta.EXTENSION, new Instances[]{data.peekLabeledData()[0]});
+			else
+				InstancesManipulation.writeArff(ExperimentSettings.getInstance().getEnlargedTrainingSetFileName(fileName), data.peekLabeledData()[0], 
+						ExperimentSettings.getInstance().isSparseEnlargedTrainingSet());			
 		}
 		
 		ClassificationResult result = null;
 		if(recordClassifiers){
-			result = Evaluation.performTest(DatasetSettings.getInstance().getCombinedClassifier(), data.getLabeledData()[0], data.getTestData()[0], true);
+			result = Evaluation.performTest(DatasetSettings.getInstance().getCombinedClassifier(), data.peekLabeledData()[0], data.peekTestData()[0], true);
 			classifierTestData.addPredictions(result.getPredictions());
 		}else
-			result = Evaluation.performTest(DatasetSettings.getInstance().getCombinedClassifier(), data.getLabeledData()[0], data.getTestData()[0], false);
+			result = Evaluation.performTest(DatasetSettings.getInstance().getCombinedClassifier(), data.peekLabeledData()[0], data.peekTestData()[0], false);
 		
 		long endTime = System.currentTimeMillis();
 		runningTime = endTime - startTime;
@@ -283,14 +283,22 @@ public class ClassifierEnsembleList {
 		if (exampleIDs.size() == votes.size())
 			return; // votes already aggregated, would be empty otherwise
 
-		// for all instances that were labeled by at least one of the ensembles from the ensemble list (e.g. by at least one co-training classifier in RSSalg) 
-		for(double id: exampleIDs ){
-			List<Label> predictions = predictions(id); // get aggregated predictions (all ensembles from the list) for that instance
-			Votes ensembleVotes = new Votes(predictions);
-			votes.put(id, ensembleVotes);
+		// for all instances that were labeled by at least one of the ensembles from the ensemble list (e.g. by at least one co-training classifier in RSSalg)
+		// aggregated predictions (all ensembles from the list) are calculated in a single pass over the ensembles
+		VotesTable table = getVotesTable();
+		for(int row=0; row<table.size(); row++){
+			votes.put(table.getId(row), table.getVotes(row));
 		}
 	}
 	
+	/**
+	 * Aggregates the votes from all ensembles for all instances in a columnar table
+	 * @return aggregated votes for all instances recorded in the statistics
+	 */
+	public VotesTable getVotesTable(){
+		return new VotesTable(ensembles);
+	}
+	
 	/**
 	 * Returns the label agreement percent for the instance
 	 * @param instanceID instance id
@@ -0,0 +1,156 @@
+/** 	
+ * Name: PartialClassifierEnsembleList.java
+ * 
+ * Purpose:  Classifier ensembles created by a job that runs only a range of splits, together with the settings the job was run with.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.resultStatistic;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Vector;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Classifier ensembles created by a job that runs only a range of splits (splitRange property in experiment properties). 
+ * <br>Besides the ensembles, the range of splits, the total number of splits, the random generator seed and the fingerprint of the experiment
+ * settings are recorded so that the partial statistics of several jobs can be validated before merging them in a single {@link ClassifierEnsembleList}.
+ * <br>The class is annotated with JAXB annotations so that it can be easily written/read to/from an XML file.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class PartialClassifierEnsembleList {
+	/**
+	 * The first split run by the job
+	 */
+	@XmlAttribute
+	int firstSplit;
+	/**
+	 * The last split run by the job
+	 */
+	@XmlAttribute
+	int lastSplit;
+	/**
+	 * Total number of splits in the experiment
+	 */
+	@XmlAttribute
+	int noSplits;
+	/**
+	 * Seed of the random number generator used in the experiment
+	 */
+	@XmlAttribute
+	int randSeed;
+	/**
+	 * Fingerprint of the experiment settings the job was run with
+	 */
+	@XmlAttribute
+	String settings;
+	/**
+	 * List of classifier ensembles created by the job
+	 */
+	@XmlElement(name = "ensemble")
+	List<ClassifierEnsemble> ensembles = new Vector<ClassifierEnsemble>();
+	
+	public PartialClassifierEnsembleList(){}
+	
+	/**
+	 * Creates the partial statistic
+	 * @param firstSplit the first split run by the job
+	 * @param lastSplit the last split run by the job
+	 * @param noSplits total number of splits in the experiment
+	 * @param randSeed seed of the random number generator
+	 * @param settings fingerprint of the experiment settings
+	 * @param ensembles classifier ensembles created by the job
+	 */
+	public PartialClassifierEnsembleList(int firstSplit, int lastSplit, int noSplits, int randSeed, String settings, ClassifierEnsembleList ensembles){
+		this.firstSplit = firstSplit;
+		this.lastSplit = lastSplit;
+		this.noSplits = noSplits;
+		this.randSeed = randSeed;
+		this.settings = settings;
+		this.ensembles.addAll(ensembles.getEnsembles());
+	}
+	
+	public int getFirstSplit() {
+		return firstSplit;
+	}
+	public int getLastSplit() {
+		return lastSplit;
+	}
+	public int getNoSplits() {
+		return noSplits;
+	}
+	public int getRandSeed() {
+		return randSeed;
+	}
+	public String getSettings() {
+		return settings;
+	}
+	public List<ClassifierEnsemble> getEnsembles() {
+		return ensembles;
+	}
+	
+	/**
+	 * Write the data into XML
+	 * @param stream output stream for writing
+	 * @throws JAXBException if there was an error writing the XML file
+	 */
+	public void toXML(OutputStream stream) throws JAXBException{
+		JAXBContext context = JAXBContext.newInstance(PartialClassifierEnsembleList.class);
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+		marshaller.marshal(this, stream);
+	}
+	
+	/**
+	 * Load the data from the XML file
+	 * @param filename the name of the XML file (includes path)
+	 * @throws JAXBException if there was an error reading the file. Check if the file is missing or XML element structure does not match.
+	 */
+	public void fromXML(String filename) throws JAXBException{
+		JAXBContext context = JAXBContext.newInstance(PartialClassifierEnsembleList.class);
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		PartialClassifierEnsembleList partial = (PartialClassifierEnsembleList) unmarshaller.unmarshal(new File(filename));
+		firstSplit = partial.firstSplit;
+		lastSplit = partial.lastSplit;
+		noSplits = partial.noSplits;
+		randSeed = partial.randSeed;
+		settings = partial.settings;
+		ensembles = partial.ensembles;
+	}
+}
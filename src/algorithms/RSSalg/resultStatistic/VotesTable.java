@@ -0,0 +1,230 @@
+/** 	
+ * Name: VotesTable.java
+ * 
+ * Purpose: Columnar table of the aggregated votes of multiple ensembles for all instances in the statistic.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.RSSalg.resultStatistic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import experimentSetting.DatasetSettings;
+
+/**
+ * Columnar table of the aggregated votes of multiple ensembles for all instances in the statistic. 
+ * <br>Each instance recorded in the statistic is assigned a row. For each row and each class the table holds the number of ensembles that voted for the 
+ * class and the entropy of ensemble votes for the class (see {@link Label}). The table is built in a single pass over the recorded ensemble predictions,
+ * instead of looking up the prediction of each ensemble for each instance separately. 
+ * <br>Classes are ordered as in the classNames parameter of {@link DatasetSettings}.
+ */
+public class VotesTable {
+	/**
+	 * Class names (ordering of the columns)
+	 */
+	protected List<String> classNames;
+	/**
+	 * Key: instance id, value: row of the instance in the table
+	 */
+	protected Map<Double, Integer> rows = new HashMap<Double, Integer>();
+	/**
+	 * Instance id for each row
+	 */
+	protected double[] ids;
+	/**
+	 * Number of votes for each row and class, stored row by row: votes[row*noClasses + class]
+	 */
+	protected int[] votes;
+	/**
+	 * Entropy of ensemble votes for each row and class, stored row by row: entropies[row*noClasses + class]
+	 */
+	protected double[] entropies;
+	/**
+	 * Total number of votes for each row (the number of ensembles that voted for the instance)
+	 */
+	protected int[] numberOfVotes;
+	
+	/**
+	 * Aggregates the votes of all ensembles for all instances recorded in the statistics
+	 * @param ensembles the list of ensembles
+	 */
+	public VotesTable(List<ClassifierEnsemble> ensembles){
+		classNames = DatasetSettings.getInstance().getClassNames();
+		int noClasses = classNames.size();
+		
+		List<Double> rowIds = new ArrayList<Double>();
+		for(ClassifierEnsemble ensemble : ensembles)
+			for(Double id : ensemble.getInstanceId())
+				if(!rows.containsKey(id)){
+					rows.put(id, rowIds.size());
+					rowIds.add(id);
+				}
+		int noRows = rowIds.size();
+		ids = new double[noRows];
+		for(int row=0; row<noRows; row++)
+			ids[row] = rowIds.get(row);
+		votes = new int[noRows*noClasses];
+		entropies = new double[noRows*noClasses];
+		numberOfVotes = new int[noRows];
+		if(noRows == 0)
+			return;
+		
+		// number of classifiers in the ensemble (e.g. 2 for co-training ore 1 for single classifier)
+		int classifierNo = ensembles.get(0).getClassifierNo();
+		// the ensemble that last voted for the row: only the first prediction of the ensemble for an instance counts
+		int[] lastEnsemble = new int[noRows];
+		for(int row=0; row<noRows; row++)
+			lastEnsemble[row] = -1;
+		double[] combined = new double[noClasses];
+		
+		for(int ensembleInd=0; ensembleInd<ensembles.size(); ensembleInd++){
+			ClassifierEnsemble ensemble = ensembles.get(ensembleInd);
+			List<Double> instanceIds = ensemble.getInstanceId();
+			for(int i=0; i<instanceIds.size(); i++){
+				int row = rows.get(instanceIds.get(i));
+				if(lastEnsemble[row] == ensembleInd)
+					continue;
+				lastEnsemble[row] = ensembleInd;
+				List<Double> confidence = ensemble.confidence.get(i).confidence;
+				int ensembleClassifierNo = confidence.size()/noClasses;
+				
+				// ensemble prediction: class with the highest co-training style confidence (first class if all are equally probable)
+				for(int classInd=0; classInd<noClasses; classInd++){
+					combined[classInd] = 1;
+					for(int classifierInd=0; classifierInd<ensembleClassifierNo; classifierInd++)
+						combined[classInd] *= confidence.get(classifierInd*noClasses + classInd);
+				}
+				int prediction = 0;
+				for(int classInd=1; classInd<noClasses; classInd++)
+					if(combined[classInd] > combined[prediction])
+						prediction = classInd;
+				votes[row*noClasses + prediction]++;
+				numberOfVotes[row]++;
+				
+				for(int classInd=0; classInd<noClasses; classInd++)
+					for(int classifierInd=0; classifierInd<classifierNo; classifierInd++){
+						double probability = confidence.get(classifierInd*noClasses + classInd);
+						if(probability != 0)
+							entropies[row*noClasses + classInd] += -probability*Math.log(probability);
+					}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the class names (ordering of the columns)
+	 * @return class names
+	 */
+	public List<String> getClassNames() {
+		return classNames;
+	}
+	
+	/**
+	 * Returns the number of instances in the table
+	 * @return number of rows
+	 */
+	public int size(){
+		return ids.length;
+	}
+	
+	/**
+	 * Returns the row of the instance
+	 * @param instanceID instance id
+	 * @return row of the instance or -1 if the instance is not recorded in the statistics
+	 */
+	public int getRow(double instanceID){
+		Integer row = rows.get(instanceID);
+		if(row == null)
+			return -1;
+		return row;
+	}
+	
+	/**
+	 * Returns the id of the instance in the row
+	 * @param row row index
+	 * @return instance id
+	 */
+	public double getId(int row){
+		return ids[row];
+	}
+	
+	/**
+	 * Returns the number of ensembles that voted for the class
+	 * @param row row index
+	 * @param classInd class index (ordering of classNames in {@link DatasetSettings})
+	 * @return number of votes for the class
+	 */
+	public int getNoVotes(int row, int classInd){
+		return votes[row*classNames.size() + classInd];
+	}
+	
+	/**
+	 * Returns the total number of votes for the instance (number of ensembles that voted for the instance)
+	 * @param row row index
+	 * @return total number of votes
+	 */
+	public int getNumberOfVotes(int row){
+		return numberOfVotes[row];
+	}
+	
+	/**
+	 * Returns the entropy of ensemble votes for the class
+	 * @param row row index
+	 * @param classInd class index (ordering of classNames in {@link DatasetSettings})
+	 * @return entropy of ensemble votes for the class
+	 */
+	public double getEntropy(int row, int classInd){
+		return entropies[row*classNames.size() + classInd];
+	}
+	
+	/**
+	 * Returns the list of entropies of votes for the labels (in the ordering of class names)
+	 * @param row row index
+	 * @return label entropies
+	 */
+	public Confidences getEntropies(int row){
+		Confidences confidences = new Confidences();
+		for(int classInd=0; classInd<classNames.size(); classInd++)
+			confidences.addConfidence(getEntropy(row, classInd));
+		return confidences;
+	}
+	
+	/**
+	 * Returns the votes for the instance in the row as a {@link Votes} object
+	 * @param row row index
+	 * @return aggregated votes for the instance
+	 */
+	public Votes getVotes(int row){
+		List<Label> labels = new ArrayList<Label>();
+		for(int classInd=0; classInd<classNames.size(); classInd++)
+			labels.add(new Label(classNames.get(classInd), getEntropy(row, classInd), getNoVotes(row, classInd)));
+		return new Votes(labels);
+	}
+}
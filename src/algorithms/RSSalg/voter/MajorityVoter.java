@@ -33,6 +33,7 @@ package algorithms.RSSalg.voter;
 
 import algorithms.RSSalg.resultStatistic.Label;
 import algorithms.RSSalg.resultStatistic.Votes;
+import algorithms.RSSalg.resultStatistic.VotesTable;
 
 /**
  * Uses a simple majority vote of multiple trained classifiers in order to produce a final prediction 
@@ -53,6 +54,25 @@ public class MajorityVoter implements VoterIF {
 			}			
 		return mostVoted;
 	}
+	
+	/**
+	 * Predicts the labels of all instances from the table using the simple majority vote of classifiers
+	 * @see algorithms.RSSalg.voter.VoterIF#vote(algorithms.RSSalg.resultStatistic.VotesTable)
+	 */
+	public int[] vote(VotesTable predictions) {
+		int noClasses = predictions.getClassNames().size();
+		int[] mostVoted = new int[predictions.size()];
+		for(int row=0; row<predictions.size(); row++){
+			mostVoted[row] = -1;
+			int mostVotes = 0;
+			for(int classInd=0; classInd<noClasses; classInd++)
+				if(predictions.getNoVotes(row, classInd) > mostVotes){
+					mostVoted[row] = classInd;
+					mostVotes = predictions.getNoVotes(row, classInd);
+				}
+		}
+		return mostVoted;
+	}
 
 	public String getName() {
 		return "Majority_vote";
@@ -33,6 +33,7 @@ package algorithms.RSSalg.voter;
 
 import algorithms.RSSalg.resultStatistic.Label;
 import algorithms.RSSalg.resultStatistic.Votes;
+import algorithms.RSSalg.resultStatistic.VotesTable;
 
 /**
  * Interface for the classes that aggregate the predictions of multiple classifiers in order to produce a final prediction
@@ -46,6 +47,13 @@ public interface VoterIF {
 	 * @return the assigned label
 	 */
 	public Label vote(Votes predictions);
+	
+	/**
+	 * Aggregates the predictions of multiple classifiers for all instances from the table in order to assign a final label to each of them
+	 * @param predictions aggregated predictions of multiple classifiers for all instances
+	 * @return for each row of the table, the index of the assigned label (ordering of class names in the table) or -1 if no label is assigned
+	 */
+	public int[] vote(VotesTable predictions);
 
 	/**
 	 * Returns the name of the algorithm
@@ -63,9 +63,9 @@ public class SupervisedAlgorithm_All extends Algorithm {
 		long startTime = System.currentTimeMillis();
 		
 		// check whether all unlabeled have assigned correct label (no missing values for the label attribute)					
-		int noMissingValues = data.getUnlabeledData()[0].attributeStats(data.getUnlabeledData()[0].classIndex()).missingCount;
-		if(data.getPoolData() != null){
-			noMissingValues += data.getPoolData()[0].attributeStats(data.getPoolData()[0].classIndex()).missingCount;
+		int noMissingValues = data.peekUnlabeledData()[0].attributeStats(data.peekUnlabeledData()[0].classIndex()).missingCount;
+		if(data.peekPoolData() != null){
+			noMissingValues += data.peekPoolData()[0].attributeStats(data.peekPoolData()[0].classIndex()).missingCount;
 		}
 		if(noMissingValues > 0){
 			System.out.println("WARNING: MISSING " + noMissingValues + " IN UNLABELED DATA");
@@ -0,0 +1,172 @@
+/** 	
+ * Name: ApproximateSelector.java
+ * 
+ * Purpose: Approximate selection of the most confidently labeled unlabeled instances by progressive sampling.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.co_training;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import util.Evaluation;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import classificationResult.ClassifiedInstance;
+import experimentSetting.CoTrainingSettings;
+import experimentSetting.DatasetSettings;
+
+/**
+ * Approximate selection of the most confidently labeled unlabeled instances (see approximateSelection in co-training properties). Instead of 
+ * classifying all unlabeled instances, the instances are classified in progressive random sampling rounds: the first round classifies 
+ * selectionSampleSize instances and each next round doubles the number of classified instances. After each round, the number of unclassified 
+ * instances of each class that are more confident than the least confident selected instance of the class is estimated from the sample: as the 
+ * sample is random, it is (N - n) x m / n, where N is the number of unlabeled instances, n the number of classified instances and m the number of 
+ * classified instances predicted to belong to the class with a higher confidence than the least confident selected one. These are the instances of 
+ * the exact selection the approximate selection misses (the instances tied with the least confident selected one are equally good choices). The 
+ * sampling stops when, for each class, growthSize instances are selected and the estimated number of missed instances is at most 
+ * (1 - selectionRecall) x growthSize (or when all instances are classified).
+ * <p>
+ * The selected instances are the most confident among the classified ones, but not necessarily among all unlabeled instances: a lower 
+ * selectionRecall gives fewer classified instances at the cost of a lower recall of the exact selection 
+ * (see {@link #getRecall(MostConfidentInstances, MostConfidentInstances)}). The confidences decide how early the sampling stops: if many 
+ * instances share the highest confidence (e.g. the confidence 1), the selection stops after the first round, while distinct confidences 
+ * require classifying most of the unlabeled instances for a high target recall.
+ */
+public class ApproximateSelector {
+	private Random rand;
+	private int noClassified;
+	
+	/**
+	 * Creates the selector
+	 * @param seed seed for sampling the unlabeled instances
+	 */
+	public ApproximateSelector(int seed){
+		this.rand = new Random(seed);
+	}
+	
+	/**
+	 * Classifies the random samples of unlabeled instances until the most confident instances of each class can be selected 
+	 * @param classifier trained classifier
+	 * @param unlabeledDataset unlabeled data
+	 * @return the most confidently labeled instances among the classified ones
+	 * @throws Exception if there was an error classifying the instances
+	 */
+	public MostConfidentInstances getConfidentInstances(Classifier classifier, Instances unlabeledDataset) throws Exception{
+		CoTrainingSettings ctSettings = CoTrainingSettings.getInstance();
+		List<String> classNames = DatasetSettings.getInstance().getClassNames();
+		int noInstances = unlabeledDataset.numInstances();
+		int[] order = new int[noInstances];
+		for(int i=0; i<noInstances; i++)
+			order[i] = i;
+		
+		MostConfidentInstances result = new MostConfidentInstances();
+		Map<String, List<Double>> confidences = new HashMap<String, List<Double>>(); // confidences of the classified instances predicted to belong to the class
+		for(String className : classNames)
+			confidences.put(className, new ArrayList<Double>());
+		noClassified = 0;
+		while(noClassified < noInstances){
+			int end = Math.min(noInstances, noClassified == 0 ? ctSettings.getSelectionSampleSize() : 2 * noClassified);
+			for(; noClassified<end; noClassified++){
+				int sampled = noClassified + rand.nextInt(noInstances - noClassified); // shuffle the order as the instances are sampled
+				int index = order[sampled];
+				order[sampled] = order[noClassified];
+				order[noClassified] = index;
+				
+				ClassifiedInstance inst = Evaluation.classifyInstance(classifier, unlabeledDataset.instance(index));
+				confidences.get(inst.getPrediction()).add(inst.getCombinedConfidence());
+				result.addInstance(inst);
+			}
+			if(recallReached(result, confidences, noInstances))
+				break;
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether, for each class, the estimated number of unclassified instances more confident than the selected ones is low enough to reach 
+	 * the target recall of the exact selection
+	 */
+	private boolean recallReached(MostConfidentInstances result, Map<String, List<Double>> confidences, int noInstances){
+		CoTrainingSettings ctSettings = CoTrainingSettings.getInstance();
+		for(String className : confidences.keySet()){
+			int growthSize = ctSettings.getGrowthSize(className);
+			if(growthSize == 0)
+				continue;
+			List<ClassifiedInstance> selected = result.topInstances.get(className).getList();
+			if(selected.size() < growthSize)
+				return false;
+			double cutoff = selected.get(selected.size() - 1).getCombinedConfidence();
+			int noAbove = 0; // classified instances of the class more confident than the least confident selected one
+			for(double confidence : confidences.get(className))
+				if(confidence > cutoff)
+					noAbove++;
+			double noMissed = (double) (noInstances - noClassified) * noAbove / noClassified;
+			if(noMissed > (1 - ctSettings.getSelectionRecall()) * growthSize)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the number of unlabeled instances classified in the last selection
+	 * @return the number of classified instances
+	 */
+	public int getNoClassified() {
+		return noClassified;
+	}
+	
+	/**
+	 * Returns the recall of the exact selection: the share of the instances selected by classifying all unlabeled instances that are matched by 
+	 * the approximate selection. An instance of the approximate selection matches if it is at least as confident as the least confident instance 
+	 * of the exact selection for the same class: the exact selection breaks the ties in the order of the instances, so the tied instances are 
+	 * equally good choices (e.g. many instances classified with the confidence 1)
+	 * @param approximate the approximate selection
+	 * @param exact the exact selection (see {@link Evaluation#getConfidentInstances(Classifier, Instances)})
+	 * @return the recall of the exact selection
+	 */
+	public static double getRecall(MostConfidentInstances approximate, MostConfidentInstances exact){
+		int noExact = 0, noFound = 0;
+		for(String className : DatasetSettings.getInstance().getClassNames()){
+			List<ClassifiedInstance> exactSelection = exact.topInstances.get(className).getList();
+			if(exactSelection.isEmpty())
+				continue;
+			double cutoff = exactSelection.get(exactSelection.size() - 1).getCombinedConfidence();
+			int found = 0;
+			for(ClassifiedInstance inst : approximate.topInstances.get(className).getList())
+				if(inst.getCombinedConfidence() >= cutoff)
+					found++;
+			noExact += exactSelection.size();
+			noFound += Math.min(found, exactSelection.size());
+		}
+		return noExact == 0 ? 1 : (double) noFound / noExact;
+	}
+}
@@ -0,0 +1,163 @@
+/** 	
+ * Name: ChunkedScanner.java
+ * 
+ * Purpose: Scans the unlabeled data in chunks with a bounded read-ahead and scores the chunks concurrently in co-training.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.co_training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import util.Evaluation;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Selects the most confidently labeled unlabeled instances by scanning the unlabeled data in chunks (see scanChunkSize in co-training properties). 
+ * A reader thread materializes the chunks ahead of the scoring threads, holding at most the given number of chunks in the read-ahead buffer, and 
+ * the scoring threads select the most confident instances of each chunk. The per-chunk selections are merged in the order of the chunks, so the 
+ * result is the same as the result of scanning the data at once (see {@link Evaluation#getConfidentInstances(Classifier, Instances)}).
+ * <p>
+ * Together with the unlabeled data kept off the heap (see {@link util.MappedInstances}) only the chunks being read and scored are held on the heap.
+ */
+public class ChunkedScanner {
+	
+	/**
+	 * Chunk of unlabeled instances
+	 */
+	private static class Chunk{
+		int index;
+		Instance[] instances;
+		Chunk(int index, Instance[] instances){
+			this.index = index;
+			this.instances = instances;
+		}
+	}
+	/**
+	 * Marks the end of the data for the scoring threads
+	 */
+	private static final Chunk END = new Chunk(-1, null);
+	
+	/**
+	 * Classifies the unlabeled instances chunk by chunk and returns the most confidently labeled instances 
+	 * @param classifier trained classifier
+	 * @param unlabeledDataset unlabeled data
+	 * @param chunkSize number of instances in one chunk
+	 * @param noThreads number of scoring threads. If there is more than one thread, each thread scores with its own copy of the classifier
+	 * @param readAhead maximal number of chunks read ahead of the scoring threads
+	 * @return the most confidently labeled instances
+	 * @throws Exception if there was an error copying the classifier, reading the data or classifying the instances
+	 */
+	public static MostConfidentInstances getConfidentInstances(Classifier classifier, final Instances unlabeledDataset, final int chunkSize, 
+			int noThreads, int readAhead) throws Exception{
+		final int noChunks = (unlabeledDataset.numInstances() + chunkSize - 1) / chunkSize;
+		noThreads = Math.max(1, Math.min(noThreads, noChunks));
+		Classifier[] classifiers;
+		try{
+			classifiers = noThreads == 1 ? new Classifier[]{classifier} : AbstractClassifier.makeCopies(classifier, noThreads);
+		}catch(Exception e){
+			throw new Exception("ERROR: error copying the classifier for the scoring threads", e);
+		}
+		
+		final BlockingQueue<Chunk> buffer = new ArrayBlockingQueue<Chunk>(readAhead);
+		final Exception[] readError = new Exception[1];
+		final int noReaders = noThreads;
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				try{
+					try{
+						for(int chunk=0; chunk<noChunks; chunk++){
+							int from = chunk * chunkSize;
+							Instance[] instances = new Instance[Math.min(chunkSize, unlabeledDataset.numInstances() - from)];
+							for(int i=0; i<instances.length; i++)
+								instances[i] = unlabeledDataset.instance(from + i);
+							buffer.put(new Chunk(chunk, instances));
+						}
+					}catch(InterruptedException e){
+						return;
+					}catch(Exception e){
+						readError[0] = e;
+					}
+					for(int i=0; i<noReaders; i++)
+						buffer.put(END);
+				}catch(InterruptedException e){
+					// scanning cancelled
+				}
+			}
+		}, "unlabeled data reader");
+		reader.setDaemon(true);
+		
+		final MostConfidentInstances[] chunkResults = new MostConfidentInstances[noChunks];
+		ExecutorService executor = Executors.newFixedThreadPool(noThreads);
+		try{
+			reader.start();
+			List<Future<Void>> scans = new ArrayList<Future<Void>>();
+			for(final Classifier threadClassifier : classifiers)
+				scans.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						Chunk chunk;
+						while((chunk = buffer.take()) != END){
+							MostConfidentInstances chunkResult = new MostConfidentInstances();
+							for(Instance instance : chunk.instances)
+								chunkResult.addInstance(Evaluation.classifyInstance(threadClassifier, instance));
+							chunkResults[chunk.index] = chunkResult;
+						}
+						return null;
+					}
+				}));
+			for(Future<Void> scan : scans){
+				try{
+					scan.get();
+				}catch(ExecutionException e){
+					throw new Exception("ERROR: error scoring the chunk of unlabeled data", e.getCause());
+				}
+			}
+			reader.join();
+		}finally{
+			reader.interrupt();
+			executor.shutdownNow();
+		}
+		if(readError[0] != null)
+			throw new Exception("ERROR: error reading the chunk of unlabeled data", readError[0]);
+		
+		MostConfidentInstances result = new MostConfidentInstances();
+		for(MostConfidentInstances chunkResult : chunkResults)
+			result.addAll(chunkResult);
+		return result;
+	}
+}
@@ -37,6 +37,7 @@ import java.io.FileOutputStream;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.xml.bind.JAXBException;
@@ -49,6 +50,7 @@ import algorithms.RSSalg.resultStatistic.ClassifierEnsemble;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.RSSalg.resultStatistic.Confidences;
 import classificationResult.ClassificationResult;
+import classificationResult.ClassifiedInstance;
 import classificationResult.measures.MeasureIF;
 import experimentSetting.CoTrainingSettings;
 import experimentSetting.DatasetSettings;
@@ -83,6 +85,14 @@ public class CoTraining extends Algorithm{
 	 * Current co-training iteration.
 	 */
 	protected int currentIteration = 0; 
+	/**
+	 * Instances labeled during co-training, recorded if the enlarged training set is written in the delta format (null otherwise)
+	 */
+	protected TrainingSetDelta delta;
+	/**
+	 * Selector of the most confident instances if they are selected approximately (null otherwise)
+	 */
+	protected ApproximateSelector selector;
 	
 	/**
 	 * Set the data to run experiment on and restarts everything in order to run the new experiment. For co-training this method also: 
@@ -104,6 +114,14 @@ public class CoTraining extends Algorithm{
 				logFile.delete();
 		}
 		this.currentIteration = 0;
+		if(ExperimentSettings.getInstance().isWriteEnlargedCoTrainingSet() && ExperimentSettings.getInstance().isDeltaEnlargedTrainingSet())
+			delta = new TrainingSetDelta();
+		else
+			delta = null;
+		if(ctSettings.isApproximateSelection() && ctSettings.getPoolSize() == 0)
+			selector = new ApproximateSelector(dataSettings.getNextRandom());
+		else
+			selector = null;
 		
 		initClassifiers();
 	}
@@ -127,7 +145,7 @@ public class CoTraining extends Algorithm{
 		CTclassifier.setId(currentSplit);
 		// add instances that are already present in the labeled data. These instances will be labeled by 100% of the classifiers and will have the same (prediction) 
 		// label for each classifier as co-training only adds instances to the labeled set and does not modify the starting labeled instances
-		for(Instance inst : data.getLabeledData()[0]){
+		for(Instance inst : data.peekLabeledData()[0]){
 			String label = InstancesManipulation.getLabel(inst);
 			Double id = Double.parseDouble(InstancesManipulation.getInstanceID(inst));
 			
@@ -163,27 +181,45 @@ public class CoTraining extends Algorithm{
 	private void runOneIteration() throws Exception {		
 		// train classifiers on views
 		List<weka.classifiers.Classifier> viewClassifiers = new ArrayList<weka.classifiers.Classifier>();
-		for(int view=0; view<data.getLabeledData().length; view++){
+		for(int view=0; view<data.peekLabeledData().length; view++){
 			weka.classifiers.Classifier classifier = dataSettings.getClassifier(view);
 			viewClassifiers.add(classifier);
 			try{
-				viewClassifiers.get(view).buildClassifier(data.getLabeledData()[view]);
+				viewClassifiers.get(view).buildClassifier(data.peekLabeledData()[view]);
 			}catch(Exception e){
 				throw new Exception("ERROR: error building a classifier for view " + view + " in iteration " + currentIteration);
 			}
 		}
 		
 		// label and add data to the initial training set
-		MostConfidentInstances[] mostConfidentInstances = new MostConfidentInstances[data.getLabeledData().length];
-		for(int view=0; view<data.getLabeledData().length; view++){
+		MostConfidentInstances[] mostConfidentInstances = new MostConfidentInstances[data.peekLabeledData().length];
+		for(int view=0; view<data.peekLabeledData().length; view++){
 			if(ctSettings.getPoolSize() != 0){ // classify instances from pool
-				mostConfidentInstances[view] =  Evaluation.getConfidentInstances(viewClassifiers.get(view), data.getPoolData()[view]);
+				mostConfidentInstances[view] =  Evaluation.getConfidentInstances(viewClassifiers.get(view), data.peekPoolData()[view]);
+			}else if(selector != null){ // classify samples of unlabeled instances
+				mostConfidentInstances[view] = selector.getConfidentInstances(viewClassifiers.get(view), data.peekUnlabeledData()[view]);
+				String line = "Iteration " + currentIteration + " view " + view + ": approximate selection classified " + selector.getNoClassified() + 
+						" of " + data.peekUnlabeledData()[view].numInstances() + " unlabeled instances";
+				if(ctSettings.isLogSelectionRecall()){
+					MostConfidentInstances exact = getConfidentUnlabeled(viewClassifiers.get(view), view);
+					line += ", recall of the exact selection: " + new DecimalFormat("0.###").format(ApproximateSelector.getRecall(mostConfidentInstances[view], exact));
+				}
+				System.out.println(line);
+				addToCTlog(line);
 			}else{ // classify instances from unlabeled
-				mostConfidentInstances[view] = Evaluation.getConfidentInstances(viewClassifiers.get(view), data.getUnlabeledData()[view]);
+				mostConfidentInstances[view] = getConfidentUnlabeled(viewClassifiers.get(view), view);
 			}
 		
 			// label instances and move to labeled set (removes form unlabeled)
 			data.labelInstances(mostConfidentInstances[view]);
+			if(delta != null)
+				for(String className : dataSettings.getClassNames()){ // the order the instances were labeled in
+					Iterator<ClassifiedInstance> it = mostConfidentInstances[view].getMostConfidentInstances(className).getIterator();
+					while(it.hasNext()){
+						ClassifiedInstance inst = it.next();
+						delta.add(inst.getInstanceId(), inst.getPrediction(), currentIteration, view);
+					}
+				}
 			
 			if(classifiers != null)
 				classifiers.getEnsembles().get(0).addPredictions(mostConfidentInstances[view]);
@@ -195,6 +231,21 @@ public class CoTraining extends Algorithm{
 		currentIteration++;
 	}
 	
+	/**
+	 * Classifies all instances of the view of unlabeled data (chunk by chunk if scanChunkSize is set in co-training properties) and returns the 
+	 * most confidently labeled instances
+	 * @param classifier classifier trained on the view
+	 * @param view the view of unlabeled data
+	 * @return the most confidently labeled instances
+	 * @throws Exception if there was an error classifying the instances
+	 */
+	private MostConfidentInstances getConfidentUnlabeled(weka.classifiers.Classifier classifier, int view) throws Exception{
+		if(ctSettings.getScanChunkSize() > 0)
+			return ChunkedScanner.getConfidentInstances(classifier, data.peekUnlabeledData()[view], ctSettings.getScanChunkSize(), 
+					ctSettings.getScanThreads(), ctSettings.getScanReadAhead());
+		return Evaluation.getConfidentInstances(classifier, data.peekUnlabeledData()[view]);
+	}
+	
 	/**
 	 * Checks whether co-training algorithm is finished (maximal number of iterations, no more data to label, etc.)
 	 * @return whether co-training is finished or not
@@ -269,8 +320,13 @@ public class CoTraining extends Algorithm{
 		
 		if(ExperimentSettings.getInstance().isWriteEnlargedCoTrainingSet()){
 			String fileName = dataSettings.getResultFolder() + "/fold_" + currentFold + "/CT_enlargedTrainingSet" + "_split_" + currentSplit;
-			for(int view=0; view<data.getLabeledData().length; view++){
-				InstancesManipulation.writeArff(fileName + "_view_"+ view + ".arff", data.getLabeledData()[view]);
+			if(delta != null)
+				delta.write(fileName + TrainingSetDelta.EXTENSION, data.peekLabeledData());
+			else{
+				for(int view=0; view<data.peekLabeledData().length; view++){
+					InstancesManipulation.writeArff(ExperimentSettings.getInstance().getEnlargedTrainingSetFileName(fileName + "_view_"+ view), data.peekLabeledData()[view], 
+							ExperimentSettings.getInstance().isSparseEnlargedTrainingSet());
+				}
 			}
 		}
 		
@@ -32,10 +32,10 @@
 package algorithms.co_training;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -46,6 +46,7 @@ import classificationResult.ClassifiedInstance;
 import classificationResult.ClassifiedInstanceList;
 import util.Evaluation;
 import util.InstancesManipulation;
+import util.SharedColumns;
 import weka.classifiers.Classifier;
 import weka.core.Instances;
 import experimentSetting.CoTrainingSettings;
@@ -80,6 +81,11 @@ public class CoTrainingData {
 	 * in each of the views)
 	 */
 	protected Instances[] testData;
+	/**
+	 * Whether the views of labeled, unlabeled, pool and test data are shared with a copy of this object (see {@link #CoTrainingData(CoTrainingData)}). 
+	 * Shared views are copied the first time they are requested for modification
+	 */
+	private boolean labeledShared, unlabeledShared, poolShared, testShared;
 	/**
 	 * Settings for co-training algorithm
 	 */
@@ -105,29 +111,52 @@ public class CoTrainingData {
 	}
 	
 	/**
-	 * Copy constructor: creates a new instance of <code>CoTrainingData</code> from other <code>CoTrainingData</code> object (deep copy of the data). 
+	 * Copy constructor: creates a new instance of <code>CoTrainingData</code> from other <code>CoTrainingData</code> object. The copy is copy-on-write: 
+	 * the views are shared by both objects until they are requested for modification (e.g. by {@link #getLabeledData()}), when the requesting object 
+	 * makes its own deep copy of the views (of labeled, unlabeled, pool or test data separately). The views that are only read (e.g. the test data 
+	 * in co-training, see {@link #peekTestData()}) or replaced (e.g. by {@link #mergeViews()}) are never copied.
+	 * <p>
+	 * Copying marks the views of the given object as shared too, so the copy is made while holding the lock of the given object, and the getters and 
+	 * setters of the views take the lock of their object: the object can be copied by several threads at once, also while its views are requested. 
+	 * Other modifications of the object (e.g. {@link #mergeViews()}) must not run concurrently with copying it
 	 * @param data <code>CoTrainingData</code> object to clone
 	 */
 	public CoTrainingData(CoTrainingData data){
-		this.labeledData = new Instances[data.labeledData.length];
-		for(int i=0; i<labeledData.length; i++)
-			this.labeledData[i] = InstancesManipulation.cloneDataset(data.labeledData[i]);
-		
-		this.unlabeledData = new Instances[data.unlabeledData.length];
-		for(int i=0; i<unlabeledData.length; i++)
-			this.unlabeledData[i] = InstancesManipulation.cloneDataset(data.unlabeledData[i]);
-		
-		this.testData = new Instances[data.testData.length];
-		for(int i=0; i<testData.length; i++)
-			this.testData[i] = InstancesManipulation.cloneDataset(data.testData[i]);
-		
-		if(data.poolData != null){
-			this.poolData = new Instances[data.poolData.length];
-			for(int i=0; i<poolData.length; i++)
-				this.poolData[i] = InstancesManipulation.cloneDataset(data.poolData[i]);
+		synchronized(data){
+			this.labeledData = data.labeledData.clone();
+			this.unlabeledData = data.unlabeledData.clone();
+			this.testData = data.testData.clone();
+			if(data.poolData != null)
+				this.poolData = data.poolData.clone();
+			labeledShared = data.labeledShared = true;
+			unlabeledShared = data.unlabeledShared = true;
+			testShared = data.testShared = true;
+			poolShared = data.poolShared = data.poolData != null;
 		}
 	}
 	
+	/**
+	 * Saves the current state of the CoTrainingData object to the given folder as ARFF files (see {@link #saveData(String)}) and, optionally, 
+	 * their binary copies (e.g. labeled_view0.bin) that are loaded instead of the ARFF files (see {@link InstancesManipulation#readDataset(String, boolean)})
+	 * @param path to the folder to which co-traning data is saved. If the folder doesn't exist it will be created
+	 * @param binary whether to write the binary copies
+	 * @throws Exception if there was an error writing the files (e.g. missing folder)
+	 */
+	public void saveData(String path, boolean binary) throws Exception{
+		if(!Files.exists(Paths.get(path))){
+			Files.createDirectory(Paths.get(path));			
+		}
+		
+		for(int view=0; view<labeledData.length; view++){
+			InstancesManipulation.writeDataset(path + File.separator + "labeled_view" + view + ".arff", this.labeledData[view], binary);
+			InstancesManipulation.writeDataset(path + File.separator + "unlabeled_view" + view + ".arff", this.unlabeledData[view], binary);						
+			InstancesManipulation.writeDataset(path + File.separator + "test_view" + view + ".arff", this.testData[view], binary);
+			if(ctSettings.getPoolSize() != 0) // if pool is used
+				if(poolData != null && poolData[0].numInstances() > 1) // if pool not empty
+					InstancesManipulation.writeDataset(path + File.separator + "pool_view" + view + ".arff", this.poolData[view], binary);
+		}		
+	}
+
 	/**
 	 * Loads <code>CoTrainingData</code> object from the given folder.
 	 * <p>
@@ -152,57 +181,109 @@ public class CoTrainingData {
 	 * Returns the current state of labeled data.
 	 * @return array of {@link weka.core.Instances} object that represent different views of labeled data
 	 */
-	public Instances[] getLabeledData() {
+	public synchronized Instances[] getLabeledData() {
+		if(labeledShared){
+			labeledData = InstancesManipulation.cloneDataset(labeledData);
+			labeledShared = false;
+		}
+		return labeledData;
+	}
+	/**
+	 * Returns the current state of labeled data without copying the views shared with the copies of this object (see {@link #CoTrainingData(CoTrainingData)}). 
+	 * The returned views must not be modified
+	 * @return array of {@link weka.core.Instances} object that represent different views of labeled data
+	 */
+	public Instances[] peekLabeledData() {
 		return labeledData;
 	}
 	/**
 	 * Set the labeled data.
 	 * @param labeledData array of {@link weka.core.Instances} object that represent different views of labeled data
 	 */
-	public void setLabeledData(Instances[] labeledData) {
+	public synchronized void setLabeledData(Instances[] labeledData) {
 		this.labeledData = labeledData;
+		labeledShared = false;
 	}
 	/**
 	 * Returns the current state of unlabeled data.
 	 * @return array of {@link weka.core.Instances} object that represent different views of unlabeled data
 	 */
-	public Instances[] getUnlabeledData() {
+	public synchronized Instances[] getUnlabeledData() {
+		if(unlabeledShared){
+			unlabeledData = InstancesManipulation.cloneDataset(unlabeledData);
+			unlabeledShared = false;
+		}
+		return unlabeledData;
+	}
+	/**
+	 * Returns the current state of unlabeled data without copying the views shared with the copies of this object (see {@link #CoTrainingData(CoTrainingData)}). 
+	 * The returned views must not be modified
+	 * @return array of {@link weka.core.Instances} object that represent different views of unlabeled data
+	 */
+	public Instances[] peekUnlabeledData() {
 		return unlabeledData;
 	}
 	/**
 	 * Set the unlabeled data.
 	 * @param unlabeledData array of {@link weka.core.Instances} object that represent different views of unlabeled data
 	 */
-	public void setUnlabeledData(Instances[] unlabeledData) {
+	public synchronized void setUnlabeledData(Instances[] unlabeledData) {
 		this.unlabeledData = unlabeledData;
+		unlabeledShared = false;
 	}
 	/**
 	 * Returns the current state of unlabeled pool data (u').
 	 * @return array of {@link weka.core.Instances} object that represent different views of unlabeled pool data (u')
 	 */
-	public Instances[] getPoolData() {
+	public synchronized Instances[] getPoolData() {
+		if(poolShared){
+			poolData = InstancesManipulation.cloneDataset(poolData);
+			poolShared = false;
+		}
+		return poolData;
+	}
+	/**
+	 * Returns the current state of unlabeled pool data without copying the views shared with the copies of this object (see {@link #CoTrainingData(CoTrainingData)}). 
+	 * The returned views must not be modified
+	 * @return array of {@link weka.core.Instances} object that represent different views of unlabeled pool data (u')
+	 */
+	public Instances[] peekPoolData() {
 		return poolData;
 	}
 	/**
 	 * Set the unlabeled pool data.
 	 * @param poolData array of {@link weka.core.Instances} object that represent different views of unlabeled pool data (u')
 	 */
-	public void setPoolData(Instances[] poolData) {
+	public synchronized void setPoolData(Instances[] poolData) {
 		this.poolData = poolData;
+		poolShared = false;
 	}
 	/**
 	 * Returns the current state of test data.
 	 * @return array of {@link weka.core.Instances} object that represent different views of test data
 	 */
-	public Instances[] getTestData() {
+	public synchronized Instances[] getTestData() {
+		if(testShared){
+			testData = InstancesManipulation.cloneDataset(testData);
+			testShared = false;
+		}
+		return testData;
+	}
+	/**
+	 * Returns the current state of test data without copying the views shared with the copies of this object (see {@link #CoTrainingData(CoTrainingData)}). 
+	 * The returned views must not be modified
+	 * @return array of {@link weka.core.Instances} object that represent different views of test data
+	 */
+	public Instances[] peekTestData() {
 		return testData;
 	}
 	/**
 	 * Set the test data.
 	 * @param testData array of <code>Instances</code> object that represent different views of test data.
 	 */
-	public void setTestData(Instances[] testData) {
+	public synchronized void setTestData(Instances[] testData) {
 		this.testData = testData;
+		testShared = false;
 	}
 
 	/**
@@ -210,24 +291,13 @@ public class CoTrainingData {
 	 * <p>
 	 * Data is saved as 4 x &lt;no of views&gt; arff files (e.g. for 2 views: labeled_view0.arff, labeled_view1.arff, 
 	 * unlabeled_view0.arff, unlabeled_view1.arff, test_view0.arff, test_view1.arff, pool_view0.arff, pool_view1.arff).	  
-	 * Pool files (u') are not saved if the pool is empty
+	 * Pool files (u') are not saved if the pool is empty. The outdated binary copies of the files are deleted (see {@link #saveData(String, boolean)})
 	 * 
 	 * @param path to the folder to which co-traning data is saved. If the folder doesn't exist it will be created 
-	 * @throws IOException if there was an error writing the files (e.g. missing folder)
+	 * @throws Exception if there was an error writing the files (e.g. missing folder)
 	 */
-	public void saveData(String path) throws IOException{
-		if(!Files.exists(Paths.get(path))){
-			Files.createDirectory(Paths.get(path));			
-		}
-		
-		for(int view=0; view<labeledData.length; view++){
-			InstancesManipulation.writeArff(path + File.separator + "labeled_view" + view + ".arff", this.labeledData[view]);
-			InstancesManipulation.writeArff(path + File.separator + "unlabeled_view" + view + ".arff", this.unlabeledData[view]);						
-			InstancesManipulation.writeArff(path + File.separator + "test_view" + view + ".arff", this.testData[view]);
-			if(ctSettings.getPoolSize() != 0) // if pool is used
-				if(poolData != null && poolData[0].numInstances() > 1) // if pool not empty
-					InstancesManipulation.writeArff(path + File.separator + "pool_view" + view + ".arff", this.poolData[view]);
-		}		
+	public void saveData(String path) throws Exception{
+		saveData(path, false);
 	}
 
 	/**
@@ -235,7 +305,9 @@ public class CoTrainingData {
 	 * <p>
 	 * Assumes that the data is saved as 4 x &lt;no of views&gt; arff files (e.g. for 2 views: labeled_view1.arff, labeled_view2.arff, 
 	 * unlabeled_view1.arff, unlabeled_view2.arff, test_view1.arff, test_view2.arff, pool_view1.arff, pool_view2.arff).
-	 * Pool files (u') are only read if they exist
+	 * Pool files (u') are only read if they exist. If an up-to-date binary copy of the ARFF file exists (see {@link #saveData(String, boolean)}), the binary 
+	 * copy is read instead. If the unlabeled data is kept off the heap (see offHeapUnlabeled in data properties), the unlabeled data is read into 
+	 * the memory-mapped column store (see {@link InstancesManipulation#readMapped(String, boolean)})
 	 *   
 	 * @param path to folder from which co-traning data is loaded 
 	 * @param noViews number of views to read
@@ -268,13 +340,30 @@ public class CoTrainingData {
 		
 		
 		for(int view=0; view<noViews; view++){			
-			this.labeledData[view] = InstancesManipulation.readArff(path + File.separator + "labeled_view" + view + ".arff", setClass);
-			this.unlabeledData[view] = InstancesManipulation.readArff(path + File.separator + "unlabeled_view" + view + ".arff", setClass);
-			this.testData[view] = InstancesManipulation.readArff(path + File.separator + "test_view" + view + ".arff", setClass);
+			this.labeledData[view] = InstancesManipulation.readDataset(path + File.separator + "labeled_view" + view + ".arff", setClass);
+			if(dataSettings.isOffHeapUnlabeled())
+				this.unlabeledData[view] = InstancesManipulation.readMapped(path + File.separator + "unlabeled_view" + view + ".arff", setClass);
+			else
+				this.unlabeledData[view] = InstancesManipulation.readDataset(path + File.separator + "unlabeled_view" + view + ".arff", setClass);
+			this.testData[view] = InstancesManipulation.readDataset(path + File.separator + "test_view" + view + ".arff", setClass);
 			
 			if(poolFile.exists())			
-				this.poolData[view] = InstancesManipulation.readArff(path + File.separator + "pool_view" + view + ".arff", setClass);
+				this.poolData[view] = InstancesManipulation.readDataset(path + File.separator + "pool_view" + view + ".arff", setClass);
 		}
+		bindSharedColumns();
+	}
+	
+	/**
+	 * Binds the views of labeled, unlabeled, pool and test data to the id and label columns shared by the views if set in the data settings 
+	 * (see {@link InstancesManipulation#bindSharedColumns(Instances[])}). The views must not be shared with a copy of this object
+	 */
+	private void bindSharedColumns(){
+		if(!dataSettings.isSharedLabelColumns())
+			return;
+		InstancesManipulation.bindSharedColumns(labeledData);
+		InstancesManipulation.bindSharedColumns(unlabeledData);
+		InstancesManipulation.bindSharedColumns(testData);
+		InstancesManipulation.bindSharedColumns(poolData);
 	}
 	
 	/**
@@ -293,6 +382,7 @@ public class CoTrainingData {
 		for(int view=0; view < unlabeledData.length; view++){
 			poolData[view] = InstancesManipulation.createEmptyDataset(unlabeledData[view]);
 		}
+		poolShared = false;
 
 		refillPool();
 	}
@@ -304,6 +394,8 @@ public class CoTrainingData {
 		if(ctSettings.getPoolSize() == 0) // pool not used in the experiment
 			return;
 		
+		Instances[] unlabeledData = getUnlabeledData();
+		Instances[] poolData = getPoolData();
 		int numInstancesToSample = ctSettings.getPoolSize() - poolData[0].numInstances();  
 		
 		if (numInstancesToSample >= unlabeledData[0].size()){ // not enough unlabeled instances to sample, copy the remaining instances to pool
@@ -335,8 +427,9 @@ public class CoTrainingData {
 		if(ctSettings.getPoolSize() == 0)
 			return;
 		
-		for(int view=0; view<poolData.length; view++)
-			InstancesManipulation.moveAllInstances(poolData[view], unlabeledData[view]);
+		Instances[] unlabeledData = getUnlabeledData();
+		Instances[] poolData = getPoolData();
+		InstancesManipulation.moveAllInstances(poolData, unlabeledData);
 	}
 	
 	/**
@@ -349,9 +442,9 @@ public class CoTrainingData {
 		int instanceInd = InstancesManipulation.findInstance(dataset[0], ""+inst.getInstanceId());
 		if(instanceInd == -1)
 			throw new Exception("ERROR: instance " + inst.getInstanceId() + " for labeling with class " + inst.getPrediction() + " not found in the dataset.");
-		for(int view=0; view<dataset.length; view++)
-			dataset[view].instance(instanceInd).setClassValue(inst.getPrediction());
+		Instances[] labeledData = getLabeledData();
 		InstancesManipulation.moveInstance(dataset, labeledData, instanceInd);
+		InstancesManipulation.setLabel(labeledData, labeledData[0].numInstances() - 1, inst.getPrediction()); // label the moved copy (the unlabeled instance might be materialized on access)
 	}
 	
 	/**
@@ -365,9 +458,9 @@ public class CoTrainingData {
 	public void labelInstance(ClassifiedInstance instance) throws Exception{
 //		System.out.println("\tLabeling instance " + instance.getInstanceId() + " as " + instance.getPrediction());
 		if(ctSettings.getPoolSize() != 0){ // label instance from pool
-			findAndLabelInstance(instance, poolData);
+			findAndLabelInstance(instance, getPoolData());
 		}else{ // label instance from unlabeled
-			findAndLabelInstance(instance, unlabeledData);
+			findAndLabelInstance(instance, getUnlabeledData());
 		}
 	}
 	
@@ -453,7 +546,7 @@ public class CoTrainingData {
 	 * @return whether there are more unlabeled instances
 	 */
 	public boolean noMoreDataToLabel(){
-		if(getPoolData()[0].size() == 0 && getUnlabeledData()[0].size() == 0)
+		if((peekPoolData() == null || peekPoolData()[0].size() == 0) && peekUnlabeledData()[0].size() == 0) // the pool is null if it is not used
 			return true;
 		else
 			return false;
@@ -467,37 +560,37 @@ public class CoTrainingData {
 	 * @throws Exception if the merging failed
 	 */
 	public void mergeViews() throws Exception {
-		if(labeledData.length == 0) // already just one view
+		if(labeledData.length <= 1) // already just one view
 			return;
 		
-		// move features from all other views to the first one
-		for(int view=1; view < labeledData.length; view++){
-			try{
-				labeledData[0] = InstancesManipulation.mergeAttributes(labeledData[0], labeledData[view]);
-				labeledData[view] = InstancesManipulation.removeAllAttributes(labeledData[view]);
-			}catch(Exception e){
-				throw new Exception("ERROR: error merging views of labeled data.", e);
-			}
-			try{
-				unlabeledData[0] = InstancesManipulation.mergeAttributes(unlabeledData[0], unlabeledData[view]);
-				unlabeledData[view] = InstancesManipulation.removeAllAttributes(unlabeledData[view]);
-			}catch(Exception e){
-				throw new Exception("ERROR: error merging views of unlabeled data.", e);
-			}
+		// the views are replaced by the merged datasets (the views shared with the copies of this object are not modified, see mergeViews(Instances[], String))
+		setLabeledData(mergeViews(labeledData, "labeled"));
+		setUnlabeledData(mergeViews(unlabeledData, "unlabeled"));
+		setTestData(mergeViews(testData, "test"));
+		if(poolData != null)
+			setPoolData(mergeViews(poolData, "pool"));
+		bindSharedColumns(); // the merged views are created by WEKA
+	}
+	
+	/**
+	 * Merges the views of one partition of the data: attributes from all views are moved to the first view, in the rest of the views only the label 
+	 * and id attribute remain. The given views are not modified
+	 * @param views the views to merge
+	 * @param partition name of the partition (used in the error message)
+	 * @return the new array of the merged views
+	 * @throws Exception if the merging failed
+	 */
+	private static Instances[] mergeViews(Instances[] views, String partition) throws Exception{
+		Instances[] merged = views.clone();
+		for(int view=1; view < merged.length; view++){
 			try{
-				testData[0] = InstancesManipulation.mergeAttributes(testData[0], testData[view]);
-				testData[view] = InstancesManipulation.removeAllAttributes(testData[view]);
+				merged[0] = InstancesManipulation.mergeAttributes(merged[0], merged[view]);
+				merged[view] = InstancesManipulation.removeAllAttributes(merged[view]);
 			}catch(Exception e){
-				throw new Exception("ERROR: error merging views of test data.", e);
+				throw new Exception("ERROR: error merging views of " + partition + " data.", e);
 			}
-			if(poolData != null)
-				try{
-					poolData[0] = InstancesManipulation.mergeAttributes(poolData[0], poolData[view]);
-					poolData[view] = InstancesManipulation.removeAllAttributes(poolData[view]);
-				}catch(Exception e){
-					throw new Exception("ERROR: error merging views of pool data.", e);
-				}
 		}
+		return merged;
 	}
 	
 	/**
@@ -508,6 +601,11 @@ public class CoTrainingData {
 	 * @throws Exception if the error in moving the attributes occurred
 	 */
 	public void moveAttributes(int originView, int destinationView, Set<Integer> attIndices) throws Exception{
+		// the destination views are modified when the attributes are copied
+		Instances[] labeledData = getLabeledData();
+		Instances[] unlabeledData = getUnlabeledData();
+		Instances[] testData = getTestData();
+		Instances[] poolData = getPoolData();
 		try {			
 			labeledData[destinationView] = InstancesManipulation.copyAttributes(labeledData[originView], labeledData[destinationView], attIndices);
 			labeledData[originView] = InstancesManipulation.removeAttributes(labeledData[originView], attIndices, false);
@@ -525,6 +623,13 @@ public class CoTrainingData {
 		} catch (Exception e) {
 			throw new Exception("ERROR: error moving attributes " + attIndices.toString() + " from view " + originView + " to view " + destinationView, e);
 		}
+		// the changed views are new datasets that are not shared with the copies of this object
+		setLabeledData(labeledData);
+		setUnlabeledData(unlabeledData);
+		setTestData(testData);
+		if(poolData != null)
+			setPoolData(poolData);
+		bindSharedColumns(); // the changed views are created by WEKA
 	}
 	
 	/**
@@ -540,4 +645,20 @@ public class CoTrainingData {
 		}
 		return res;
 	}
+	
+	/**
+	 * Returns the estimated heap footprint of the instances in all views of labeled, unlabeled, pool and test data 
+	 * (see {@link InstancesManipulation#estimateFootprint(Instances)})
+	 * @return estimated heap footprint in bytes
+	 */
+	public long getFootprint(){
+		long bytes = 0;
+		Set<SharedColumns> counted = new HashSet<SharedColumns>(); // the columns shared by the views are counted once
+		Instances[][] datasets = {labeledData, unlabeledData, poolData, testData};
+		for(Instances[] dataset : datasets)
+			if(dataset != null)
+				for(Instances view : dataset)
+					bytes += InstancesManipulation.estimateFootprint(view, counted);
+		return bytes;
+	}
 }
@@ -75,6 +75,17 @@ public class MostConfidentInstances {
 		listForClass.add(inst);	
 	}
 
+	/**
+	 * Tries to add all most confident instances of the other object (e.g. selected from another part of the unlabeled data), class by class in the 
+	 * order of decreasing confidence (see {@link #addInstance(ClassifiedInstance)})
+	 * @param other the most confident instances to add
+	 */
+	public void addAll(MostConfidentInstances other){
+		for(Map.Entry<String, ClassifiedInstancesQueue> entry : other.topInstances.entrySet())
+			for(ClassifiedInstance inst : entry.getValue().getList())
+				topInstances.get(entry.getKey()).add(inst);
+	}
+	
 	/**
 	 * Returns the String representing the list of most confident instances for each class
 	 * @return the String representing the list of most confident instances for each class
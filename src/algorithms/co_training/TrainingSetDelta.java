@@ -0,0 +1,263 @@
+/** 	
+ * Name: TrainingSetDelta.java
+ * 
+ * Purpose: Compact representation of the enlarged training set as the changes of the labeled data of the fold (ids, assigned labels, iterations and views) with the reader that reconstructs the full set.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package algorithms.co_training;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import util.InstancesManipulation;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Reorder;
+import experimentSetting.DatasetSettings;
+
+/**
+ * Compact representation of the enlarged training set (see writeEnlargedTrainingSet in experiment properties). Instead of the full ARFF file of each 
+ * view, only the changes of the labeled data of the fold are stored: for each instance added to the labeled data (or relabeled) its id, the assigned 
+ * label, the iteration it was added in and the view that labeled it, plus the ids of the removed labeled instances. The full enlarged training set 
+ * is reconstructed from the fold folder on demand (see {@link #reconstruct(String)}).
+ * <p>
+ * The file (extension .delta) is a text file:
+ * <ul>
+ * <li> <code>@removed id1 id2 ...</code>: labeled instances of the fold that are not in the enlarged training set
+ * <li> <code>@view v att1 att2 ...</code>: names of the attributes of view v in the enlarged training set, in order
+ * <li> <code>id label iteration view</code>: one line for each added or relabeled instance, in the order the instances were added (the iteration and 
+ * the view are -1 if unknown)
+ * </ul>
+ * The values are separated by tabs. Labeled instances of the fold keep their position, the added instances follow in the order of the file.
+ */
+public class TrainingSetDelta {
+	public static final String EXTENSION = ".delta";
+	
+	private List<Double> ids = new ArrayList<Double>();
+	private List<String> labels = new ArrayList<String>();
+	private List<Integer> iterations = new ArrayList<Integer>();
+	private List<Integer> views = new ArrayList<Integer>();
+	private Set<Double> removed = new LinkedHashSet<Double>();
+	private List<List<String>> attributeNames = new ArrayList<List<String>>();
+	
+	/**
+	 * Records the instance added to the labeled data (or relabeled)
+	 * @param id id of the instance
+	 * @param label the assigned label
+	 * @param iteration the iteration the instance was added in (-1 if unknown)
+	 * @param view the view that labeled the instance (-1 if unknown)
+	 */
+	public void add(double id, String label, int iteration, int view){
+		ids.add(id);
+		labels.add(label);
+		iterations.add(iteration);
+		views.add(view);
+	}
+	
+	/**
+	 * Creates the delta between the labeled data before and after the algorithm changed it: the removed instances, the relabeled instances and the 
+	 * added instances (with unknown iteration and view)
+	 * @param baseLabels labels of the labeled instances before the change, keyed by instance id
+	 * @param enlarged the labeled data after the change (one view)
+	 * @return the delta
+	 */
+	public static TrainingSetDelta compare(Map<Double, String> baseLabels, Instances enlarged){
+		TrainingSetDelta delta = new TrainingSetDelta();
+		Set<Double> kept = new LinkedHashSet<Double>();
+		for(Instance instance : enlarged){
+			double id = Double.parseDouble(InstancesManipulation.getInstanceID(instance));
+			String label = InstancesManipulation.getLabel(instance);
+			kept.add(id);
+			if(!label.equals(baseLabels.get(id)))
+				delta.add(id, label, -1, -1);
+		}
+		for(Double id : baseLabels.keySet())
+			if(!kept.contains(id))
+				delta.removed.add(id);
+		return delta;
+	}
+	
+	/**
+	 * Returns the labels of the labeled instances keyed by instance id (see {@link #compare(Map, Instances)})
+	 * @param labeled the labeled data (one view)
+	 * @return the labels keyed by instance id
+	 */
+	public static Map<Double, String> getLabels(Instances labeled){
+		Map<Double, String> labels = new HashMap<Double, String>();
+		for(Instance instance : labeled)
+			labels.put(Double.parseDouble(InstancesManipulation.getInstanceID(instance)), InstancesManipulation.getLabel(instance));
+		return labels;
+	}
+	
+	/**
+	 * Writes the delta
+	 * @param fileName the name of the file (with the extension .delta)
+	 * @param labeledViews the views of the enlarged training set (only their attributes are written)
+	 * @throws Exception if there was an error writing the file
+	 */
+	public void write(String fileName, Instances[] labeledViews) throws Exception{
+		Writer out = new BufferedWriter(new FileWriter(fileName), 1 << 16);
+		try{
+			out.write("@removed");
+			for(Double id : removed)
+				out.write("\t" + id);
+			out.write("\n");
+			for(int view=0; view<labeledViews.length; view++){
+				out.write("@view\t" + view);
+				for(int att=0; att<labeledViews[view].numAttributes(); att++)
+					out.write("\t" + labeledViews[view].attribute(att).name());
+				out.write("\n");
+			}
+			for(int i=0; i<ids.size(); i++)
+				out.write(ids.get(i) + "\t" + labels.get(i) + "\t" + iterations.get(i) + "\t" + views.get(i) + "\n");
+		}catch(Exception e){
+			throw new Exception("ERROR: error writing the training set delta " + fileName, e);
+		}finally{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Reads the delta
+	 * @param fileName the name of the file
+	 * @return the delta
+	 * @throws Exception if there was an error reading the file or the file is corrupt
+	 */
+	public static TrainingSetDelta read(String fileName) throws Exception{
+		TrainingSetDelta delta = new TrainingSetDelta();
+		BufferedReader in = new BufferedReader(new FileReader(fileName), 1 << 16);
+		try{
+			String line;
+			while((line = in.readLine()) != null){
+				if(line.isEmpty())
+					continue;
+				String[] values = line.split("\t");
+				if(values[0].equals("@removed")){
+					for(int i=1; i<values.length; i++)
+						delta.removed.add(Double.parseDouble(values[i]));
+				}else if(values[0].equals("@view")){
+					List<String> names = new ArrayList<String>();
+					for(int i=2; i<values.length; i++)
+						names.add(values[i]);
+					delta.attributeNames.add(names);
+				}else
+					delta.add(Double.parseDouble(values[0]), values[1], Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error reading the training set delta " + fileName, e);
+		}finally{
+			in.close();
+		}
+		return delta;
+	}
+	
+	/**
+	 * Reconstructs the enlarged training set from the delta and the data of the fold it was written in (the folder of the delta file)
+	 * @param fileName the name of the delta file
+	 * @return the views of the enlarged training set
+	 * @throws Exception if there was an error reading the fold or the delta or an instance of the delta is missing in the fold
+	 */
+	public static Instances[] reconstruct(String fileName) throws Exception{
+		TrainingSetDelta delta = read(fileName);
+		String foldFolder = new File(fileName).getAbsoluteFile().getParent();
+		CoTrainingData base = new CoTrainingData(foldFolder, DatasetSettings.getInstance().getNoViews(), true);
+		
+		Instances labeled = InstancesManipulation.getMerged(base.getLabeledData());
+		Map<Double, Instance> unlabeled = new HashMap<Double, Instance>();
+		List<Instances> unlabeledSets = new ArrayList<Instances>();
+		unlabeledSets.add(InstancesManipulation.getMerged(base.getUnlabeledData()));
+		if(base.getPoolData() != null)
+			unlabeledSets.add(InstancesManipulation.getMerged(base.getPoolData()));
+		for(Instances unlabeledSet : unlabeledSets)
+			for(Instance instance : unlabeledSet)
+				unlabeled.put(Double.parseDouble(InstancesManipulation.getInstanceID(instance)), instance);
+		
+		Instances enlarged = new Instances(labeled, labeled.numInstances() + delta.ids.size());
+		Map<Double, Integer> positions = new HashMap<Double, Integer>();
+		for(Instance instance : labeled){
+			double id = Double.parseDouble(InstancesManipulation.getInstanceID(instance));
+			if(delta.removed.contains(id))
+				continue;
+			positions.put(id, enlarged.numInstances());
+			enlarged.add(instance);
+		}
+		for(int i=0; i<delta.ids.size(); i++){
+			double id = delta.ids.get(i);
+			Integer position = positions.get(id);
+			if(position == null){
+				Instance instance = unlabeled.get(id);
+				if(instance == null)
+					throw new Exception("ERROR: instance " + id + " of the training set delta " + fileName + " not found in the fold data");
+				position = enlarged.numInstances();
+				positions.put(id, position);
+				enlarged.add(instance);
+			}
+			enlarged.instance(position).setClassValue(delta.labels.get(i));
+		}
+		
+		Instances[] result = new Instances[delta.attributeNames.size()];
+		for(int view=0; view<result.length; view++)
+			result[view] = project(enlarged, delta.attributeNames.get(view));
+		return result;
+	}
+	
+	/**
+	 * Keeps only the given attributes of the dataset, in the given order
+	 */
+	private static Instances project(Instances dataset, List<String> attributeNames) throws Exception{
+		StringBuilder indices = new StringBuilder();
+		for(String name : attributeNames){
+			if(dataset.attribute(name) == null)
+				throw new Exception("ERROR: attribute " + name + " of the training set delta not found in the fold data");
+			if(indices.length() > 0)
+				indices.append(",");
+			indices.append(dataset.attribute(name).index() + 1);
+		}
+		Reorder reorder = new Reorder();
+		reorder.setAttributeIndices(indices.toString());
+		reorder.setInputFormat(dataset);
+		Instances projected = Filter.useFilter(dataset, reorder);
+		projected.setClass(projected.attribute(DatasetSettings.getInstance().getClassAttributeName()));
+		return projected;
+	}
+	
+	public int size(){
+		return ids.size();
+	}
+}
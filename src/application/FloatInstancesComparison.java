@@ -0,0 +1,217 @@
+/**
+ * Name: FloatInstancesComparison.java
+ *
+ * Purpose: Runs the shipped experiments with single-precision instances turned off and on and reports the difference of the results
+ *
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ *
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ *
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting
+ * with co-training based techniques. RSSalg Software encompasses the implementation of
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view
+ * datasets published in the paper:
+ *
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013.
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package application;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import resultsToXML.ExperimentResults;
+import resultsToXML.Experiments;
+import resultsToXML.Measure;
+import resultsToXML.ResultsJournal;
+
+/**
+ * Reproducible comparison of the results obtained with and without single-precision instances (see floatInstances in data properties).
+ * <p>
+ * For each properties folder (by default the shipped spambase, kr-vs-kp and mushroom experiments, whose ARFF files are listed in dataFiles in
+ * data properties), the experiments are run twice with the same settings and random seed: once with floatInstances=false and once with
+ * floatInstances=true. The properties are copied to a temporary folder, where only floatInstances and resultFolder in data properties are
+ * changed, so the two runs write their results to separate result folders ({resultFolder}_float_off and {resultFolder}_float_on). The
+ * experiments are run in the given order (by default co-training, which writes the classifier statistics, followed by MajorityVote and RSSalg,
+ * which load them).
+ * <p>
+ * The macro averaged value of each measure is read from the results journals of both runs and the difference is reported next to the standard
+ * deviation over the folds. The program exits with status 1 if any difference exceeds the standard deviation of the run without single-precision
+ * instances, so it can be used as a check.
+ */
+public class FloatInstancesComparison {
+	/**
+	 * Properties folders of the shipped dense datasets
+	 */
+	public static final String[] DEFAULT_FOLDERS = {"./data/spambase/experiment", "./data/kr-vs-kp/experiment", "./data/mushroom/experiment"};
+	/**
+	 * Experiments run in each properties folder (co-training writes the statistics that are loaded by MajorityVote and RSSalg)
+	 */
+	public static final String[] DEFAULT_EXPERIMENTS = {"experiment_Co-training_Random.properties", "experiment_MV.properties", "experiment_RSSalg.properties"};
+
+	/**
+	 * Runs the experiments with the given value of floatInstances
+	 * @param propertiesFolder the folder that contains the properties of the experiment
+	 * @param experiments experiment properties files run in the given order
+	 * @param floatInstances the value of floatInstances in data properties
+	 * @return results read from the results journal of the run
+	 * @throws Exception if there was an error copying the properties or running an experiment
+	 */
+	public static ExperimentResults run(String propertiesFolder, List<String> experiments, boolean floatInstances) throws Exception{
+		File tmpFolder = Files.createTempDirectory("floatInstances").toFile();
+		try{
+			File[] files = new File(propertiesFolder).listFiles();
+			if(files == null)
+				throw new Exception("ERROR: properties folder " + propertiesFolder + " does not exist");
+			for(File file : files)
+				if(file.getName().endsWith(".properties") && !file.getName().equals("data.properties"))
+					Files.copy(file.toPath(), new File(tmpFolder, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			Properties dataProperties = new Properties();
+			InputStream in = new FileInputStream(propertiesFolder + File.separator + "data.properties");
+			try{
+				dataProperties.load(in);
+			}finally{
+				in.close();
+			}
+			String resultFolder = dataProperties.getProperty("resultFolder") + (floatInstances ? "_float_on" : "_float_off");
+			dataProperties.setProperty("resultFolder", resultFolder);
+			dataProperties.setProperty("floatInstances", Boolean.toString(floatInstances));
+			OutputStream out = new FileOutputStream(new File(tmpFolder, "data.properties"));
+			try{
+				dataProperties.store(out, "Copied from " + propertiesFolder + " with floatInstances=" + floatInstances);
+			}finally{
+				out.close();
+			}
+
+			for(String experiment : experiments){
+				System.out.println("Running " + propertiesFolder + " " + experiment + " with floatInstances=" + floatInstances);
+				StartExperiment.setExperiment(tmpFolder.getPath(), experiment);
+				new StartExperiment().run();
+			}
+			return new ResultsJournal(resultFolder).read();
+		}finally{
+			for(File file : tmpFolder.listFiles())
+				file.delete();
+			tmpFolder.delete();
+		}
+	}
+
+	/**
+	 * Reports the difference of the macro averaged measures of the two runs
+	 * @param propertiesFolder the folder the results were obtained for (used in the report)
+	 * @param off results obtained with floatInstances=false
+	 * @param on results obtained with floatInstances=true
+	 * @return the number of measures whose difference exceeds the standard deviation over the folds (in the run with floatInstances=false)
+	 */
+	public static int report(String propertiesFolder, ExperimentResults off, ExperimentResults on){
+		DecimalFormat df = new DecimalFormat("0.###");
+		int exceeded = 0;
+		System.out.println();
+		System.out.println(propertiesFolder + ": floatInstances off -> on (macro averaged)");
+		for(Experiments settings : off.getExperiment()){
+			Experiments onSettings = null;
+			for(Experiments candidate : on.getExperiment())
+				if(candidate.equals(settings))
+					onSettings = candidate;
+			for(Experiments.Experiment experiment : settings.getExperiment()){
+				for(Measure measure : experiment.getMeasures()){
+					String name = "\t" + experiment.getName() + " " + measure.getName() + ": ";
+					Measure onMeasure = null;
+					if(onSettings != null)
+						for(Experiments.Experiment onExperiment : onSettings.getExperiment())
+							if(onExperiment.getName().equals(experiment.getName()))
+								for(Measure candidate : onExperiment.getMeasures())
+									if(candidate.getName().equals(measure.getName()))
+										onMeasure = candidate;
+					if(onMeasure == null){
+						System.out.println(name + "missing in the run with floatInstances=true");
+						exceeded++;
+						continue;
+					}
+					double difference = onMeasure.getMacroAveraged() - measure.getMacroAveraged();
+					boolean withinStdDev = Math.abs(difference) <= measure.getStdDev();
+					if(!withinStdDev)
+						exceeded++;
+					System.out.println(name + df.format(measure.getMacroAveraged()) + " -> " + df.format(onMeasure.getMacroAveraged()) + " (difference " +
+							df.format(difference) + ", standard deviation " + df.format(measure.getStdDev()) + (withinStdDev ? ")" : ", EXCEEDED)"));
+				}
+			}
+		}
+		return exceeded;
+	}
+
+	public static void main(String[] args) {
+		if(args.length == 1 && (args[0].equals("-h") || args[0].equals("--help"))){
+			System.out.println("Usage: ");
+			System.out.println("\tjava -cp RSSalg.jar application.FloatInstancesComparison [<properties_folder> ...] [-e <experiment_properties> ...]");
+			System.out.println("\t\t<properties_folder>: folder containing property files (default: " + Arrays.toString(DEFAULT_FOLDERS) + ")");
+			System.out.println("\t\t<experiment_properties>: experiment properties run in the given order (default: " + Arrays.toString(DEFAULT_EXPERIMENTS) + ")");
+			System.exit(0);
+		}
+
+		List<String> folders = new ArrayList<String>();
+		List<String> experiments = new ArrayList<String>();
+		boolean readingExperiments = false;
+		for(String arg : args){
+			if(arg.equals("-e"))
+				readingExperiments = true;
+			else if(readingExperiments)
+				experiments.add(arg);
+			else
+				folders.add(arg);
+		}
+		if(folders.isEmpty())
+			folders.addAll(Arrays.asList(DEFAULT_FOLDERS));
+		if(experiments.isEmpty())
+			experiments.addAll(Arrays.asList(DEFAULT_EXPERIMENTS));
+
+		try{
+			List<String> compared = new ArrayList<String>();
+			int exceeded = 0;
+			for(String folder : folders){
+				ExperimentResults off = run(folder, experiments, false);
+				ExperimentResults on = run(folder, experiments, true);
+				exceeded += report(folder, off, on);
+				compared.add(folder);
+			}
+			System.out.println();
+			if(exceeded > 0){
+				System.out.println(exceeded + " measures differ by more than the standard deviation over the folds");
+				System.exit(1);
+			}
+			System.out.println("All differences are within the standard deviation over the folds for " + compared);
+		}catch(Exception e){
+			Throwable cause = e;
+			while(cause.getCause() != null) {
+			    cause = cause.getCause();
+			}
+			System.out.println(cause.getMessage());
+			System.exit(1);
+		}
+	}
+}
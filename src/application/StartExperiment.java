@@ -35,7 +35,6 @@ import java.awt.EventQueue;
 import java.awt.Font;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.List;
 import java.util.Random;
@@ -47,7 +46,9 @@ import javax.swing.plaf.FontUIResource;
 import resultsToXML.ExperimentResults;
 import resultsToXML.Experiments;
 import resultsToXML.Measure;
+import resultsToXML.ResultsJournal;
 import setExperiment.CrossValidationSeparator;
+import setExperiment.SplitRangeMerger;
 import algorithms.Algorithm;
 import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
 import algorithms.co_training.CoTrainingData;
@@ -128,8 +129,8 @@ public class StartExperiment {
 		String resultFolder = DatasetSettings.getInstance().getResultFolder();
 		for(int i=0; i<data.length; i++){
 			try {
-				data[i].saveData(resultFolder + File.separator + "fold_" + i + File.separator);										
-			} catch (IOException e) {		
+				data[i].saveData(resultFolder + File.separator + "fold_" + i + File.separator, DatasetSettings.getInstance().isBinaryFolds());										
+			} catch (Exception e) {		
 				e.printStackTrace();
 			}			
 		}		
@@ -163,23 +164,22 @@ public class StartExperiment {
 		String path = DatasetSettings.getInstance().getResultFolder();
 		File subfolder = new File(path + File.separator + "fold_" + fold);
 		System.out.println("Reading " + subfolder.getPath());		
-		return new CoTrainingData(subfolder.getPath(), DatasetSettings.getInstance().getNoViews(), true);
+		CoTrainingData data = new CoTrainingData(subfolder.getPath(), DatasetSettings.getInstance().getNoViews(), true);
+		System.out.printf("Estimated data footprint: %.1f MB%n", data.getFootprint() / (1024.0 * 1024.0));
+		return data;
 	}
 	
 	/**
 	 * Runs the cross-validation experiment
 	 * @throws Exception if:
 	 * <ul>
-	 * <li>There was an error reading/writing the results from/to Results.xml file
+	 * <li>There was an error writing the results to the results journal or rendering Results.xml (see renderResultsOnDemand in experiment properties)
 	 * <li>A feature splitting algorithm is required, but not specified
 	 * <li>There was an error creating the feature split
 	 * <li>There was an error running the algorithm
 	 * </ul>
 	 */
 	private void runCrossvalidation() throws Exception{
-		ExperimentResults results = new ExperimentResults();
-		results.fromXML(DatasetSettings.getInstance().getResultFolder() + File.separator + "Results.xml");
-		
 		List<MeasureIF> measures = ExperimentSettings.getInstance().getMeasures();
 		Algorithm algorithm = ExperimentSettings.getInstance().getAlgorithm();
 		SplitterIF splitter = ExperimentSettings.getInstance().getSplitter();
@@ -188,16 +188,31 @@ public class StartExperiment {
 			noSplits = 1;
 		if (splitter == null && (noSplits > 1)) 
 			throw new Exception("Splitter not specified. Cannot run multiple splits experiment.");		
+		boolean recordClassifiers = ExperimentSettings.getInstance().isWriteClassifiers();		
+		
+		boolean splitRange = ExperimentSettings.getInstance().isSplitRangeSet();
+		int firstSplit = 0;
+		int lastSplit = noSplits - 1;
+		if(splitRange){
+			if(noSplits == 1)
+				throw new Exception("ERROR: splitRange can be used only for experiments that run multiple splits. For RSSalg and MajorityVote, run the "
+						+ "co-training experiment with multiple splits in several jobs, merge the partial statistics and load the merged statistics file.");
+			if(!recordClassifiers)
+				throw new Exception("ERROR: splitRange requires writeClassifiers=true (the job writes its partial statistics for merging).");
+			firstSplit = ExperimentSettings.getInstance().getFirstSplit();
+			lastSplit = ExperimentSettings.getInstance().getLastSplit();
+		}
 		
 		DecimalFormat df = new DecimalFormat("###.#");
 		System.out.println();
 		System.out.println("Starting cross-validation for " + algorithm.getName() + " experiment...");
+		if(splitRange)
+			System.out.println("Running splits " + firstSplit + " to " + lastSplit + " of " + noSplits);
 		System.out.println();
 		int noFolds = getNoFoldsInResultFolder();
 
 		ClassificationResult microAveragedResult = new ClassificationResult(false);
 		double[][] macroAveragedResult = new double[measures.size()][noFolds];
-		boolean recordClassifiers = ExperimentSettings.getInstance().isWriteClassifiers();		
 				
 		for(int i=0; i<noFolds; i++){			
 			System.out.println();
@@ -211,8 +226,23 @@ public class StartExperiment {
 				classifiersTestData = new ClassifierEnsembleList();
 			}
 						
-			for(int split=0; split<noSplits; split++){
+			if(splitRange && splitter != null && i == 0){
+				// splitters that keep track of the created splits (e.g. DifferentRandomSplitsSplitter) need all splits, not only the ones in the range
+				for(int split=0; split<noSplits; split++){
+					CoTrainingData tmpData = new CoTrainingData(data);
+					DatasetSettings.getInstance().restartRandom(i, split);
+					try{
+						splitter.splitDatasets(null, tmpData, DatasetSettings.getInstance().cloneRandom(), split);
+					}catch(Exception e){
+						throw new Exception("ERROR: error creating " + splitter.getName() + " split", e);
+					}
+				}
+			}
+						
+			for(int split=firstSplit; split<=lastSplit; split++){
 				CoTrainingData tmpData = new CoTrainingData(data);
+				if(splitRange) // the outcome of the split must not depend on the splits run before it in this job
+					DatasetSettings.getInstance().restartRandom(i, split);
 				
 				if(splitter != null)
 				try{
@@ -249,9 +279,14 @@ public class StartExperiment {
 					if(splitter != null)
 						fileName += "_" + splitter.getName();
 					fileName += ".xml";
-					FileOutputStream fs = new FileOutputStream(DatasetSettings.getInstance().getResultFolder()+ File.separator + "fold_"+i + File.separator + fileName, false);
-					classifiers.toXML(fs);
-					fs.close();
+					String foldFolder = DatasetSettings.getInstance().getResultFolder()+ File.separator + "fold_"+i;
+					if(splitRange){
+						SplitRangeMerger.writePartial(foldFolder, fileName, classifiers);
+					}else{
+						FileOutputStream fs = new FileOutputStream(foldFolder + File.separator + fileName, false);
+						classifiers.toXML(fs);
+						fs.close();
+					}
 				}
 				
 				if(classifiersTestData != null)
@@ -260,9 +295,14 @@ public class StartExperiment {
 					if(splitter != null)
 						fileName += "_" + splitter.getName();					
 					fileName += ".xml";
-					FileOutputStream fs = new FileOutputStream(DatasetSettings.getInstance().getResultFolder()+ File.separator+"fold_"+i + File.separator + fileName, false);
-					classifiersTestData.toXML(fs);
-					fs.close();
+					String foldFolder = DatasetSettings.getInstance().getResultFolder()+ File.separator + "fold_"+i;
+					if(splitRange){
+						SplitRangeMerger.writePartial(foldFolder, fileName, classifiersTestData);
+					}else{
+						FileOutputStream fs = new FileOutputStream(foldFolder + File.separator + fileName, false);
+						classifiersTestData.toXML(fs);
+						fs.close();
+					}
 				}
 			}catch(Exception e){
 				System.out.println("WARNING: error writing classifier statistics file.");
@@ -274,7 +314,7 @@ public class StartExperiment {
 		System.out.println("Experiment finished.");
 		System.out.println();
 		
-		Experiments experiments = results.findExperimentsByProperties();
+		Experiments experiments = ExperimentResults.createExperimentsByProperties();
 		String expName = algorithm.getName();
 		if(splitter != null)
 			expName += "_" + splitter.getName();
@@ -306,19 +346,58 @@ public class StartExperiment {
 			measure.setMacroAveraged(avgMesure);
 			measure.setStdDev(Math.sqrt(variance));
 		}
-		results.toXML(new FileOutputStream(new File(DatasetSettings.getInstance().getResultFolder() + File.separator + "Results.xml")));
+		if(splitRange){ // results of a part of the splits are not recorded
+			System.out.println();
+			System.out.println("Results for splits " + firstSplit + " to " + lastSplit + " are not written in the results journal");
+			return;
+		}
+		ResultsJournal journal = new ResultsJournal(DatasetSettings.getInstance().getResultFolder());
+		journal.append(experiments);
+		// Results.xml is rewritten after each experiment, unless it is only rendered on demand (e.g. the experiments run concurrently)
+		ExperimentResults results = ExperimentSettings.getInstance().isRenderResultsOnDemand() ? journal.read() : journal.compact();
 		System.out.println();
 		System.out.println(results);
 		
 	}
 	
+	/**
+	 * Merges the partial classifier statistics written by the jobs that run a range of splits (splitRange in experiment properties) 
+	 * into the complete statistics files of each fold
+	 * @throws Exception if the partial statistics are missing, overlap, were created with different settings or could not be read/written
+	 */
+	public void mergeSplitRanges() throws Exception{
+		Algorithm algorithm = ExperimentSettings.getInstance().getAlgorithm();
+		SplitterIF splitter = ExperimentSettings.getInstance().getSplitter();
+		String statisticName = algorithm.getName();
+		if(splitter != null)
+			statisticName += "_" + splitter.getName();
+		
+		SplitRangeMerger merger = new SplitRangeMerger();
+		int noFolds = getNoFoldsInResultFolder();
+		for(int i=0; i<noFolds; i++){
+			String foldFolder = DatasetSettings.getInstance().getResultFolder()+ File.separator + "fold_"+i;
+			merger.merge(foldFolder, "classifiers_" + statisticName + ".xml");
+			merger.merge(foldFolder, "classifiers_test_" + statisticName + ".xml");
+		}
+	}
+	
+	/**
+	 * Renders Results.xml in the result folder from the results journal (see {@link ResultsJournal#compact()})
+	 * @throws Exception if there was an error reading the journal or writing Results.xml
+	 */
+	public void compactResults() throws Exception{
+		ExperimentResults results = new ResultsJournal(DatasetSettings.getInstance().getResultFolder()).compact();
+		System.out.println(results);
+		System.out.println("Results.xml rendered from the results journal in " + DatasetSettings.getInstance().getResultFolder());
+	}
+	
 	public void run() throws Exception{
 		setCrossValidationExperiment();		
 		runCrossvalidation();
 	}
 
 	public static void main(String[] args) {
-		if ((args.length != 0) && (args.length != 2)) {
+		if ((args.length != 0) && (args.length != 2) && !(args.length == 3 && (args[2].equals("merge") || args[2].equals("compact")))) {
 			System.out.println("Usage: ");			
 			System.out.println();
 			System.out.println("1. In console:");
@@ -329,12 +408,33 @@ public class StartExperiment {
 			System.out.println("\tExample:");
 			System.out.println("\t\tjava -jar RSSalg.jar ./data/News2x2/experiment experiment_L.properties");
 			System.out.println();
+			System.out.println("\tjava -jar RSSalg.jar <properties_folder> <experiment_properties> merge");
+			System.out.println("\t\tMerges the partial classifier statistics written by the jobs that run a range of splits (splitRange in <experiment_properties>)");
+			System.out.println();
+			System.out.println("\tjava -jar RSSalg.jar <properties_folder> <experiment_properties> compact");
+			System.out.println("\t\tRenders Results.xml in the result folder from the results journal (Results.journal)");
+			System.out.println();
 			System.out.println("2. Swing application:");
 			System.out.println("\tjava -jar RSSalg.jar");
 			System.exit(0);
 		}else{
 			
-			if(args.length == 2){
+			if(args.length == 3){
+				try{
+					setExperiment(args[0], args[1]);
+					StartExperiment experimentStarter = new StartExperiment();
+					if(args[2].equals("merge"))
+						experimentStarter.mergeSplitRanges();
+					else
+						experimentStarter.compactResults();
+				}catch(Exception e){
+					Throwable cause = e;
+					while(cause.getCause() != null) {
+					    cause = cause.getCause();
+					}
+					System.out.println(cause.getMessage());
+				}
+			}else if(args.length == 2){
 //				setExperiment("./data/News2x2/experiment", "experiment_L.properties");
 //				setExperiment("./data/News2x2/experiment", "experiment_All.properties");
 //				setExperiment("./data/News2x2/experiment", "experiment_RSSalg.properties");
@@ -68,6 +68,35 @@ public class CoTrainingSettings {
 	 * Whether or not should the co-training classifier be evaluated in each iteration (if so, the results will be logged) 
 	 */
 	boolean testEachIteration = false;
+	/**
+	 * Number of unlabeled instances scored in one chunk when the unlabeled data is scanned in chunks (if 0 the unlabeled data is scanned at once). 
+	 * Used only if the pool is not used
+	 */
+	int scanChunkSize = 0;
+	/**
+	 * Number of threads scoring the chunks of unlabeled data
+	 */
+	int scanThreads = 1;
+	/**
+	 * Maximal number of chunks read ahead of the scoring threads
+	 */
+	int scanReadAhead = 2;
+	/**
+	 * Whether the most confident instances are selected approximately, by classifying random samples of unlabeled data. Used only if the pool is not used
+	 */
+	boolean approximateSelection = false;
+	/**
+	 * Number of unlabeled instances classified in the first sampling round of the approximate selection
+	 */
+	int selectionSampleSize = 1000;
+	/**
+	 * Target recall of the exact selection the approximate selection stops sampling at
+	 */
+	double selectionRecall = 0.9;
+	/**
+	 * Whether the approximate selection is compared to the exact selection (the recall is logged)
+	 */
+	boolean logSelectionRecall = false;
 	
 	/**
 	 * Returns a singleton instance of CoTrainingSettings (co-training experiment settings)
@@ -91,6 +120,13 @@ public class CoTrainingSettings {
 		iterations = 1;
 		labelAllUnlabeled = false;
 		testEachIteration = false;
+		scanChunkSize = 0;
+		scanThreads = 1;
+		scanReadAhead = 2;
+		approximateSelection = false;
+		selectionSampleSize = 1000;
+		selectionRecall = 0.9;
+		logSelectionRecall = false;
 		System.out.println("Co-training settings cleared.");
 	}
 	
@@ -172,6 +208,101 @@ public class CoTrainingSettings {
 		this.testEachIteration = testEachIteration;
 	}
 
+	/**
+	 * Returns the number of unlabeled instances scored in one chunk (see {@link algorithms.co_training.ChunkedScanner}). If the unlabeled data is 
+	 * scanned in chunks, only the chunks being read ahead and scored are materialized, so the unlabeled data kept off the heap 
+	 * (see offHeapUnlabeled in data properties) is never held on the heap as a whole. Used only if the pool is not used (poolSize is 0)
+	 * @return the chunk size or 0 if the unlabeled data is scanned at once
+	 */
+	public int getScanChunkSize() {
+		return scanChunkSize;
+	}
+	private void setScanChunkSize(int scanChunkSize) throws Exception {
+		if(scanChunkSize < 0)
+			throw new Exception("ERROR: scanChunkSize must be equal or greater than 0 (trying to set " + scanChunkSize + ")");
+		this.scanChunkSize = scanChunkSize;
+	}
+	
+	/**
+	 * Returns the number of threads scoring the chunks of unlabeled data
+	 * @return the number of scoring threads
+	 */
+	public int getScanThreads() {
+		return scanThreads;
+	}
+	private void setScanThreads(int scanThreads) throws Exception {
+		if(scanThreads < 1)
+			throw new Exception("ERROR: scanThreads must be at least 1 (trying to set " + scanThreads + ")");
+		this.scanThreads = scanThreads;
+	}
+	
+	/**
+	 * Returns the maximal number of chunks of unlabeled data read ahead of the scoring threads (the bound of the read-ahead buffer)
+	 * @return the number of chunks read ahead
+	 */
+	public int getScanReadAhead() {
+		return scanReadAhead;
+	}
+	private void setScanReadAhead(int scanReadAhead) throws Exception {
+		if(scanReadAhead < 1)
+			throw new Exception("ERROR: scanReadAhead must be at least 1 (trying to set " + scanReadAhead + ")");
+		this.scanReadAhead = scanReadAhead;
+	}
+
+	/**
+	 * Returns whether the most confident instances are selected approximately (see {@link algorithms.co_training.ApproximateSelector}): random 
+	 * samples of unlabeled data are classified until the selected instances reach the cutoff estimated from the samples. Used only if the pool 
+	 * is not used (poolSize is 0)
+	 * @return whether the approximate selection is used
+	 */
+	public boolean isApproximateSelection() {
+		return approximateSelection;
+	}
+	private void setApproximateSelection(boolean approximateSelection) {
+		this.approximateSelection = approximateSelection;
+	}
+	
+	/**
+	 * Returns the number of unlabeled instances classified in the first sampling round of the approximate selection (each next round doubles 
+	 * the number of classified instances)
+	 * @return the size of the first sample
+	 */
+	public int getSelectionSampleSize() {
+		return selectionSampleSize;
+	}
+	private void setSelectionSampleSize(int selectionSampleSize) throws Exception {
+		if(selectionSampleSize < 1)
+			throw new Exception("ERROR: selectionSampleSize must be at least 1 (trying to set " + selectionSampleSize + ")");
+		this.selectionSampleSize = selectionSampleSize;
+	}
+	
+	/**
+	 * Returns the target recall of the approximate selection: the sampling stops when, for each class, the number of unclassified instances 
+	 * estimated to be more confident than the selected ones is at most (1 - selectionRecall) x growthSize. A lower target recall means fewer 
+	 * classified instances and a lower recall of the exact selection
+	 * @return the target recall of the exact selection
+	 */
+	public double getSelectionRecall() {
+		return selectionRecall;
+	}
+	private void setSelectionRecall(double selectionRecall) throws Exception {
+		if(selectionRecall <= 0 || selectionRecall > 1)
+			throw new Exception("ERROR: selectionRecall must be in the range (0, 1] (trying to set " + selectionRecall + ")");
+		this.selectionRecall = selectionRecall;
+	}
+	
+	/**
+	 * Returns whether the approximate selection is compared to the exact selection in each iteration of co-training and the recall is logged. 
+	 * Used to tune the approximate selection: all unlabeled instances are classified to obtain the exact selection
+	 * @return whether the recall of the approximate selection is logged
+	 */
+	public boolean isLogSelectionRecall() {
+		return logSelectionRecall;
+	}
+	private void setLogSelectionRecall(boolean logSelectionRecall) {
+		this.logSelectionRecall = logSelectionRecall;
+	}
+
 	/**
 	 * Reads the Co-training settings from properties file
 	 * @param propertiesFile path and file name for the properties file
@@ -207,6 +338,20 @@ public class CoTrainingSettings {
 		}catch(Exception e){
 			// if not specified, don't test each iteration
 		}
+		if(properties.getProperty("scanChunkSize") != null) // if not specified, the default (0: the unlabeled data is scanned at once) is used
+			setScanChunkSize(PropertiesReader.readInt(properties, "scanChunkSize"));
+		if(properties.getProperty("scanThreads") != null) // if not specified, the default (1) is used
+			setScanThreads(PropertiesReader.readInt(properties, "scanThreads"));
+		if(properties.getProperty("scanReadAhead") != null) // if not specified, the default (2) is used
+			setScanReadAhead(PropertiesReader.readInt(properties, "scanReadAhead"));
+		if(properties.getProperty("approximateSelection") != null) // if not specified, the default (false) is used
+			setApproximateSelection(PropertiesReader.readBooleanParam(properties, "approximateSelection"));
+		if(properties.getProperty("selectionSampleSize") != null) // if not specified, the default (1000) is used
+			setSelectionSampleSize(PropertiesReader.readInt(properties, "selectionSampleSize"));
+		if(properties.getProperty("selectionRecall") != null) // if not specified, the default (0.9) is used
+			setSelectionRecall(PropertiesReader.readDoubleParam(properties, "selectionRecall"));
+		if(properties.getProperty("logSelectionRecall") != null) // if not specified, the default (false) is used
+			setLogSelectionRecall(PropertiesReader.readBooleanParam(properties, "logSelectionRecall"));
 
 		String resultFolder = "";
 		try{
@@ -243,5 +388,10 @@ public class CoTrainingSettings {
 		}
 		if(testEachIteration)
 			out.println("\tEach iteration of co-training will be evaluated");
+		if(scanChunkSize > 0 && poolSize == 0)
+			out.println("\tUnlabeled data scanned in chunks of " + scanChunkSize + " instances (scoring threads: " + scanThreads + ", chunks read ahead: " + scanReadAhead + ")");
+		if(approximateSelection && poolSize == 0)
+			out.println("\tApproximate selection of the most confident instances (first sample: " + selectionSampleSize + ", target recall: " + selectionRecall + 
+					(logSelectionRecall ? ", recall of the exact selection logged" : "") + ")");
 	}
 }
@@ -73,8 +73,16 @@ public class DatasetSettings {
 	protected String combinedClassiffierClassName = null; // classificatiom model used for the combined classifier (obtained by merging features from individual views)
 	protected String classAttributeName = null; // name of the class attribute
 	protected String idAttributeName = null; // name of the id attribute (null if the id attribute does not exist)
+	protected boolean binaryFolds = false; // whether the folds are also saved in the binary format that is loaded instead of ARFF
+	protected boolean sparseInstances = false; // whether the loaded instances are converted to the sparse representation (only non-zero values are stored)
+	protected boolean floatInstances = false; // whether the loaded dense instances store their values in single precision
+	protected boolean sharedLabelColumns = false; // whether the views of the loaded data share the id and label columns
+	protected String datasetCacheFolder = null; // folder of the parsed dataset cache shared by the experiments (null if the cache is not used)
+	protected int datasetCacheSize = 1024; // maximum size of the parsed dataset cache in MB
+	protected boolean offHeapUnlabeled = false; // whether the unlabeled data of the fold is kept in the memory-mapped column store instead of on the heap
 
 	private int callsToRandom = 0;
+	private long streamSeed = 42; // seed the current random number stream was started with (differs from randSeed only in split range mode)
 	
 	public static DatasetSettings getInstance() {
 		if(instance == null) {
@@ -99,7 +107,15 @@ public class DatasetSettings {
 		combinedClassiffierClassName = null;
 		classAttributeName = null;
 		idAttributeName = null;
+		binaryFolds = false;
+		sparseInstances = false;
+		floatInstances = false;
+		sharedLabelColumns = false;
+		datasetCacheFolder = null;
+		datasetCacheSize = 1024;
+		offHeapUnlabeled = false;
 		callsToRandom = 0;
+		streamSeed = 42;
 		System.out.println("Data settings cleared.");
 	}
 	
@@ -159,6 +175,7 @@ public class DatasetSettings {
 	}
 	private void setRandSeed(int randSeed) {
 		this.randSeed = randSeed;
+		this.streamSeed = randSeed;
 		this.rand = new Random(randSeed);
 		callsToRandom = 0;
 	}
@@ -170,12 +187,29 @@ public class DatasetSettings {
 	}
 	
 	public void restartRandom(){
+		this.streamSeed = randSeed;
 		this.rand = new Random(randSeed);
 		callsToRandom = 0;
 	}
 	
+	/**
+	 * Restarts the random number generator on a stream determined only by the experiment seed, the fold and the split number. Used when 
+	 * running a range of splits (see splitRange in experiment properties) so that the outcome of a split does not depend on the splits
+	 * that were run before it in the same job
+	 * @param fold fold number
+	 * @param split split number
+	 */
+	public void restartRandom(int fold, int split){
+		long seed = randSeed;
+		seed = 31 * seed + fold;
+		seed = 31 * seed + split;
+		this.streamSeed = seed;
+		this.rand = new Random(seed);
+		callsToRandom = 0;
+	}
+	
 	public Random cloneRandom(){
-		Random tmpRand = new Random(randSeed);
+		Random tmpRand = new Random(streamSeed);
 		for(int i=0; i<callsToRandom; i++){
 			tmpRand.nextInt();
 		}
@@ -272,6 +306,20 @@ public class DatasetSettings {
 		setIdAttributeName(PropertiesReader.readStringParam(properties, "idAttributeName"));		
 		setClassifierClassNames(PropertiesReader.readStringListParam(properties, "classifiers"));
 		setCombinedClassiffierClassName(PropertiesReader.readStringParam(properties, "combinedClassifier"));
+		if(properties.getProperty("binaryFolds") != null) // if not specified, the default (false) is used
+			setBinaryFolds(PropertiesReader.readBooleanParam(properties, "binaryFolds"));
+		if(properties.getProperty("sparseInstances") != null) // if not specified, the default (false) is used
+			setSparseInstances(PropertiesReader.readBooleanParam(properties, "sparseInstances"));
+		if(properties.getProperty("floatInstances") != null) // if not specified, the default (false) is used
+			setFloatInstances(PropertiesReader.readBooleanParam(properties, "floatInstances"));
+		if(properties.getProperty("sharedLabelColumns") != null) // if not specified, the default (false) is used
+			setSharedLabelColumns(PropertiesReader.readBooleanParam(properties, "sharedLabelColumns"));
+		if(properties.getProperty("datasetCacheFolder") != null) // if not specified, the default (null: the cache is not used) is used
+			setDatasetCacheFolder(PropertiesReader.readStringParam(properties, "datasetCacheFolder"));
+		if(properties.getProperty("datasetCacheSize") != null) // if not specified, the default (1024) is used
+			setDatasetCacheSize(PropertiesReader.readInt(properties, "datasetCacheSize"));
+		if(properties.getProperty("offHeapUnlabeled") != null) // if not specified, the default (false) is used
+			setOffHeapUnlabeled(PropertiesReader.readBooleanParam(properties, "offHeapUnlabeled"));
 			
 		if (classifierClassNames.size() > 1 && classifierClassNames.size() != noViews)
 			throw new Exception("Number of classifiers (" + classifierClassNames.size() + ") differs from the number of views (" + noViews + "). Specify a classifier for each view or just one that will be used for all views.");
@@ -285,6 +333,91 @@ public class DatasetSettings {
 		}
 	}
 	
+	/**
+	 * Returns whether the folds are also saved in the binary format (see {@link util.BinaryInstances}). The binary copy of a fold is loaded instead of 
+	 * the ARFF files, which are kept for inspection 
+	 * @return whether the folds are saved in the binary format
+	 */
+	public boolean isBinaryFolds() {
+		return binaryFolds;
+	}
+	private void setBinaryFolds(boolean binaryFolds) {
+		this.binaryFolds = binaryFolds;
+	}
+	
+	/**
+	 * Returns whether the loaded datasets are converted to the sparse representation (see {@link util.InstancesManipulation#toSparse(weka.core.Instances)}). 
+	 * Recommended for bag-of-words datasets stored in the dense ARFF format, where most of the values are zero
+	 * @return whether the instances are converted to the sparse representation
+	 */
+	public boolean isSparseInstances() {
+		return sparseInstances;
+	}
+	private void setSparseInstances(boolean sparseInstances) {
+		this.sparseInstances = sparseInstances;
+	}
+	
+	/**
+	 * Returns whether the loaded dense instances store their attribute values in single precision (see {@link util.InstancesManipulation#toFloat(weka.core.Instances)}). 
+	 * Halves the memory taken by the attribute values; the classifiers see the values rounded to float precision
+	 * @return whether the dense instances are converted to float instances
+	 */
+	public boolean isFloatInstances() {
+		return floatInstances;
+	}
+	private void setFloatInstances(boolean floatInstances) {
+		this.floatInstances = floatInstances;
+	}
+	
+	/**
+	 * Returns whether the views of the loaded co-training data share the id and label columns (see {@link util.InstancesManipulation#bindSharedColumns(weka.core.Instances[])}). 
+	 * Each view stores only its features and an instance is labeled in all views by a single write
+	 * @return whether the views share the id and label columns
+	 */
+	public boolean isSharedLabelColumns() {
+		return sharedLabelColumns;
+	}
+	private void setSharedLabelColumns(boolean sharedLabelColumns) {
+		this.sharedLabelColumns = sharedLabelColumns;
+	}
+	
+	/**
+	 * Returns the folder of the parsed dataset cache (see {@link util.DatasetCache}). Experiments that use the same folder share the parsed datasets 
+	 * @return the cache folder or null if the cache is not used
+	 */
+	public String getDatasetCacheFolder() {
+		return datasetCacheFolder;
+	}
+	private void setDatasetCacheFolder(String datasetCacheFolder) {
+		this.datasetCacheFolder = datasetCacheFolder;
+	}
+	
+	/**
+	 * Returns the maximum size of the parsed dataset cache in MB. The least recently used datasets are evicted when the cache grows beyond it 
+	 * @return the maximum cache size in MB
+	 */
+	public int getDatasetCacheSize() {
+		return datasetCacheSize;
+	}
+	/**
+	 * Returns whether the unlabeled data of the fold is read into the off-heap column store (see {@link util.MappedInstances}) instead of on the heap, 
+	 * so that the unlabeled data can be larger than the heap. The attribute values of the unlabeled instances are kept as floats.
+	 * Recommended for very large unlabeled datasets, together with the preset folds (the cross-validation folds are created on the heap)
+	 * @return whether the unlabeled data is kept off the heap
+	 */
+	public boolean isOffHeapUnlabeled() {
+		return offHeapUnlabeled;
+	}
+	private void setOffHeapUnlabeled(boolean offHeapUnlabeled) {
+		this.offHeapUnlabeled = offHeapUnlabeled;
+	}
+	
+	private void setDatasetCacheSize(int datasetCacheSize) throws Exception {
+		if(datasetCacheSize <= 0)
+			throw new Exception("ERROR: datasetCacheSize should be a positive number of MB");
+		this.datasetCacheSize = datasetCacheSize;
+	}
+	
 	public List<String> getClassifierClassNames() {
 		return classifierClassNames;
 	}
@@ -361,6 +494,18 @@ public class DatasetSettings {
 				dataFiles += fileName + "; ";		
 			out.println("\tData files: " + dataFiles);
 		}
+		if(binaryFolds)
+			out.println("\tFolds saved in the binary format (ARFF copies kept for inspection)");
+		if(sparseInstances)
+			out.println("\tInstances converted to the sparse representation");
+		if(floatInstances)
+			out.println("\tDense instances store the values in single precision");
+		if(sharedLabelColumns)
+			out.println("\tViews share the id and label columns");
+		if(datasetCacheFolder != null)
+			out.println("\tParsed dataset cache: " + datasetCacheFolder + " (max " + datasetCacheSize + " MB)");
+		if(offHeapUnlabeled)
+			out.println("\tUnlabeled data kept off the heap in memory-mapped column stores");
 		
 		String classes = "";
 		for(String className : classNames){
@@ -69,6 +69,10 @@ public class ExperimentSettings {
 	// Number of different splits used with co-training (parameter m in RSSalg) or number of Random Splits. This parameter is specified
 	// only if RSSalg or Co-training wRandom is run (otherwise it is ignored) 
 	protected int noSplits = 1;
+	// Range of splits [firstSplit, lastSplit] run by this job (splitRange property, e.g. splitRange=0-24). If not specified, all splits are run.
+	// Used for running one multiple splits experiment in several jobs whose partial statistics are later merged (see setExperiment.SplitRangeMerger)
+	protected int firstSplit = 0;
+	protected int lastSplit = -1;
 	// The measures to be calculated in the experiment
 	protected List<MeasureIF> measures = new ArrayList<MeasureIF>();
 //	protected String finalClassifierClassName;
@@ -76,6 +80,10 @@ public class ExperimentSettings {
 	protected boolean writeClassifiers = true;
 	protected String ClassifiersFilename = null;
 	protected boolean writeEnlargedCoTrainingSet = false;
+	protected boolean sparseEnlargedTrainingSet = false; // whether the enlarged training sets are written in the sparse ARFF format
+	protected boolean compressEnlargedTrainingSet = false; // whether the enlarged training sets are compressed with gzip (.arff.gz)
+	protected boolean deltaEnlargedTrainingSet = false; // whether the enlarged training sets are written as the changes of the labeled data of the fold (.delta)
+	protected boolean renderResultsOnDemand = false; // whether the results are only appended to the results journal and Results.xml is rendered on demand (false: Results.xml is rewritten after each experiment)
 	// read only for RSSalg
 	protected CandidateEvaluatorIF evaluator = null;
 	protected VoterIF voter = null;
@@ -96,11 +104,17 @@ public class ExperimentSettings {
 		splitter = null;
 		balancedSplit = true;
 		noSplits = 1;
+		firstSplit = 0;
+		lastSplit = -1;
 		measures.clear();
 		loadClassifierStatistic = false;
 		writeClassifiers = true;
 		ClassifiersFilename = null;
 		writeEnlargedCoTrainingSet = false;
+		sparseEnlargedTrainingSet = false;
+		compressEnlargedTrainingSet = false;
+		deltaEnlargedTrainingSet = false;
+		renderResultsOnDemand = false;
 		evaluator = null;
 		voter = null;
 		System.out.println("Experiment settings cleared.");
@@ -130,6 +144,45 @@ public class ExperimentSettings {
 			throw new Exception("There must be at least 1 feature split for co-training. Trying to set " + noSplits + ")");
 		this.noSplits = noSplits;
 	}
+	/**
+	 * Returns the first split run in this job
+	 * @return the first split number
+	 */
+	public int getFirstSplit() {
+		return firstSplit;
+	}
+	/**
+	 * Returns the last split run in this job
+	 * @return the last split number (noSplits-1 if the split range is not specified)
+	 */
+	public int getLastSplit() {
+		if(lastSplit == -1)
+			return noSplits - 1;
+		return lastSplit;
+	}
+	/**
+	 * Whether only a range of splits is run in this job (splitRange property is specified)
+	 * @return true if the split range is specified, false otherwise
+	 */
+	public boolean isSplitRangeSet() {
+		return lastSplit != -1;
+	}
+	private void setSplitRange(String splitRange) throws Exception {
+		String[] bounds = splitRange.trim().split("-");
+		if(bounds.length != 2)
+			throw new Exception("Split range must be specified as first-last (e.g. 0-24). Trying to set " + splitRange);
+		int first, last;
+		try{
+			first = Integer.parseInt(bounds[0].trim());
+			last = Integer.parseInt(bounds[1].trim());
+		}catch(NumberFormatException e){
+			throw new Exception("Split range must be specified as first-last (e.g. 0-24). Trying to set " + splitRange, e);
+		}
+		if(first < 0 || first > last || last >= noSplits)
+			throw new Exception("Split range must be within [0, " + (noSplits-1) + "]. Trying to set " + splitRange);
+		this.firstSplit = first;
+		this.lastSplit = last;
+	}
 	public List<MeasureIF> getMeasures() {
 		return measures;
 	}
@@ -173,6 +226,49 @@ public class ExperimentSettings {
 	private void setWriteEnlargedCoTrainingSet(boolean writeEnlargedCoTrainingSet) {
 		this.writeEnlargedCoTrainingSet = writeEnlargedCoTrainingSet;
 	}
+	public boolean isSparseEnlargedTrainingSet() {
+		return sparseEnlargedTrainingSet;
+	}
+	private void setSparseEnlargedTrainingSet(boolean sparseEnlargedTrainingSet) {
+		this.sparseEnlargedTrainingSet = sparseEnlargedTrainingSet;
+	}
+	public boolean isCompressEnlargedTrainingSet() {
+		return compressEnlargedTrainingSet;
+	}
+	private void setCompressEnlargedTrainingSet(boolean compressEnlargedTrainingSet) {
+		this.compressEnlargedTrainingSet = compressEnlargedTrainingSet;
+	}
+	/**
+	 * Returns the name of the file for the enlarged training set: the given name with the extension .arff or .arff.gz (if the enlarged training 
+	 * sets are compressed)
+	 * @param fileName the name of the file without the extension
+	 * @return the name of the file for the enlarged training set
+	 */
+	public String getEnlargedTrainingSetFileName(String fileName) {
+		return fileName + (compressEnlargedTrainingSet ? ".arff.gz" : ".arff");
+	}
+	/**
+	 * Returns whether the enlarged training sets are written as the changes of the labeled data of the fold instead of the full ARFF files (see 
+	 * {@link algorithms.co_training.TrainingSetDelta})
+	 * @return whether the enlarged training sets are written in the delta format
+	 */
+	public boolean isDeltaEnlargedTrainingSet() {
+		return deltaEnlargedTrainingSet;
+	}
+	private void setDeltaEnlargedTrainingSet(boolean deltaEnlargedTrainingSet) {
+		this.deltaEnlargedTrainingSet = deltaEnlargedTrainingSet;
+	}
+	/**
+	 * Returns whether the results of the experiment are only appended to the results journal, so Results.xml is rendered on demand (see 
+	 * {@link resultsToXML.ResultsJournal#compact()}). Otherwise (default) Results.xml is rewritten from the journal after each experiment
+	 * @return whether Results.xml is rendered only on demand
+	 */
+	public boolean isRenderResultsOnDemand() {
+		return renderResultsOnDemand;
+	}
+	private void setRenderResultsOnDemand(boolean renderResultsOnDemand) {
+		this.renderResultsOnDemand = renderResultsOnDemand;
+	}
 	public VoterIF getVoter() {
 		return voter;
 	}
@@ -218,6 +314,14 @@ public class ExperimentSettings {
 				throw new Exception("Classifiers file name must be specified for loading classifiers", e);
 		}
 		setWriteEnlargedCoTrainingSet(PropertiesReader.readBooleanParam(properties, "writeEnlargedTrainingSet"));
+		if(properties.getProperty("sparseEnlargedTrainingSet") != null) // if not specified, the default (false) is used
+			setSparseEnlargedTrainingSet(PropertiesReader.readBooleanParam(properties, "sparseEnlargedTrainingSet"));
+		if(properties.getProperty("compressEnlargedTrainingSet") != null) // if not specified, the default (false) is used
+			setCompressEnlargedTrainingSet(PropertiesReader.readBooleanParam(properties, "compressEnlargedTrainingSet"));
+		if(properties.getProperty("deltaEnlargedTrainingSet") != null) // if not specified, the default (false) is used
+			setDeltaEnlargedTrainingSet(PropertiesReader.readBooleanParam(properties, "deltaEnlargedTrainingSet"));
+		if(properties.getProperty("renderResultsOnDemand") != null) // if not specified, the default (false) is used
+			setRenderResultsOnDemand(PropertiesReader.readBooleanParam(properties, "renderResultsOnDemand"));
 		
 		try{
 			setVoter((VoterIF) PropertiesReader.readObjectParam(properties, "voter"));
@@ -239,6 +343,12 @@ public class ExperimentSettings {
 			}catch(Exception e){
 				// if not specified, a single split is used 
 			}
+			
+			String splitRange = null;
+			if(properties.getProperty("splitRange") != null) // if not specified, all splits are run
+				splitRange = PropertiesReader.readStringParam(properties, "splitRange");
+			if(splitRange != null && !splitRange.trim().isEmpty())
+				setSplitRange(splitRange);
 		}
 		
 		if(algorithm instanceof RSSalg){
@@ -274,10 +384,16 @@ public class ExperimentSettings {
 		else
 			out.println("\tUsing " + splitter.getClass().getName() + " for feature splitting (" + DatasetSettings.getInstance().getNoViews() + " views, ballanced: " + balancedSplit + ")");
 		out.println("\tRunning " + noSplits + " splits with co-training");	
+		if(isSplitRangeSet())
+			out.println("\tThis job runs splits " + firstSplit + " to " + lastSplit);
 		if(loadClassifierStatistic)
 			out.println("\tLoading classifier statitics from file " + ClassifiersFilename);
 		if(writeClassifiers)
 			out.println("\tWriting classifier statistics");
+		if(writeEnlargedCoTrainingSet && deltaEnlargedTrainingSet)
+			out.println("\tEnlarged training sets written in the delta format");
+		if(renderResultsOnDemand)
+			out.println("\tResults only appended to the results journal (Results.xml rendered by the compact command)");
 		
 	}
 }
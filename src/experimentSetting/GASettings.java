@@ -37,8 +37,10 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.Properties;
 
+import classificationResult.measures.AccuracyMeasure;
 import classificationResult.measures.MeasureIF;
 import util.PropertiesReader;
+import algorithms.RSSalg.GA.ThresholdOptimiserIF;
 
 public class GASettings {
 	private static GASettings instance = null; // Singleton
@@ -52,6 +54,18 @@ public class GASettings {
 	protected boolean logGA = true;
 	protected int noImprovalgenerations = -1;
 	protected MeasureIF optMeasure = null;
+	protected int evaluationThreads = Runtime.getRuntime().availableProcessors(); // number of threads evaluating the candidates of one generation
+	protected int fitnessCacheSize = 10000; // maximal number of evaluated training sets whose fitness is remembered
+	protected boolean persistFitnessCache = false; // whether the remembered fitness values are kept in the fold folder for the later runs
+	protected String thresholdOptimiserClassName = "algorithms.RSSalg.GA.GAThresholdOptimiser";
+	protected boolean racing = false; // whether the candidates are scored on growing parts of the test set and abandoned once they cannot beat the best candidate (accuracy measure only)
+	protected double racingConfidence = 0.95;
+	protected int surrogateBatchSize = 4; // number of candidates chosen in each round of the surrogate-assisted search
+	protected int islands = 4; // number of populations in the island model GA
+	protected int migrationInterval = 5; // number of generations between two migrations of the best candidates in the island model GA
+	protected int checkpointInterval = 0; // number of generations between two checkpoints of the GA state in the fold folder (0: no checkpoints, GAThresholdOptimiser only)
+	protected boolean deferActualFitness = false; // whether the actual fitness of the logged candidates is evaluated in the background
+	protected int actualFitnessTopN = 0; // number of the best candidates of each logged generation whose actual fitness is evaluated in the background (0: all)
 	
 	public static GASettings getInstance() {
 		if(instance == null) {
@@ -74,6 +88,18 @@ public class GASettings {
 		logGA = true;
 		noImprovalgenerations = -1;
 		optMeasure = null;
+		evaluationThreads = Runtime.getRuntime().availableProcessors();
+		fitnessCacheSize = 10000;
+		persistFitnessCache = false;
+		thresholdOptimiserClassName = "algorithms.RSSalg.GA.GAThresholdOptimiser";
+		racing = false;
+		racingConfidence = 0.95;
+		surrogateBatchSize = 4;
+		islands = 4;
+		migrationInterval = 5;
+		checkpointInterval = 0;
+		deferActualFitness = false;
+		actualFitnessTopN = 0;
 		System.out.println("GA settings cleared.");
 	}
 	
@@ -144,6 +170,133 @@ public class GASettings {
 		this.noImprovalgenerations = noImprovalgenerations;
 	}
 
+	public int getEvaluationThreads() {
+		return evaluationThreads;
+	}
+	private void setEvaluationThreads(int evaluationThreads) throws Exception {
+		if (evaluationThreads < 1)
+			throw new Exception("The number of threads for candidate evaluation should be at least 1. Trying to set " + evaluationThreads);
+		this.evaluationThreads = evaluationThreads;
+	}
+
+	public int getFitnessCacheSize() {
+		return fitnessCacheSize;
+	}
+	private void setFitnessCacheSize(int fitnessCacheSize) throws Exception {
+		if (fitnessCacheSize < 1)
+			throw new Exception("The size of the fitness cache should be at least 1. Trying to set " + fitnessCacheSize);
+		this.fitnessCacheSize = fitnessCacheSize;
+	}
+
+	/**
+	 * Returns the number of candidates chosen in each round of the surrogate-assisted search (see {@link algorithms.RSSalg.GA.SurrogateThresholdOptimiser}). 
+	 * The batch size does not depend on the number of evaluation threads, so the search explores the same candidates on any machine
+	 * @return the number of candidates chosen in each round
+	 */
+	public int getSurrogateBatchSize() {
+		return surrogateBatchSize;
+	}
+	private void setSurrogateBatchSize(int surrogateBatchSize) throws Exception {
+		if (surrogateBatchSize < 1)
+			throw new Exception("The number of candidates chosen in each round of the surrogate-assisted search should be at least 1. Trying to set " + surrogateBatchSize);
+		this.surrogateBatchSize = surrogateBatchSize;
+	}
+
+	public boolean isPersistFitnessCache() {
+		return persistFitnessCache;
+	}
+	private void setPersistFitnessCache(boolean persistFitnessCache) {
+		this.persistFitnessCache = persistFitnessCache;
+	}
+
+	/**
+	 * Creates a new instance of the threshold optimiser (a new instance is used in each fold)
+	 * @return the threshold optimiser
+	 * @throws Exception if there was an error creating the threshold optimiser
+	 */
+	public ThresholdOptimiserIF getThresholdOptimiser() throws Exception {
+		Object optimiser = PropertiesReader.getObject(thresholdOptimiserClassName);
+		if(!(optimiser instanceof ThresholdOptimiserIF))
+			throw new Exception("ERROR: class " + thresholdOptimiserClassName + " is not a threshold optimiser");
+		return (ThresholdOptimiserIF) optimiser;
+	}
+	public boolean isRacing() {
+		return racing;
+	}
+	private void setRacing(boolean racing) {
+		this.racing = racing;
+	}
+
+	public double getRacingConfidence() {
+		return racingConfidence;
+	}
+	private void setRacingConfidence(double racingConfidence) throws Exception {
+		if (racingConfidence <= 0 || racingConfidence >= 1)
+			throw new Exception("The racing confidence should be in the range (0, 1). Trying to set " + racingConfidence);
+		this.racingConfidence = racingConfidence;
+	}
+
+	/**
+	 * Returns the number of populations (islands) in the island model GA. The number of islands does not depend on the number of evaluation threads, 
+	 * so the island model GA gives the same result on any machine
+	 * @return the number of islands
+	 */
+	public int getIslands() {
+		return islands;
+	}
+	private void setIslands(int islands) throws Exception {
+		if (islands < 1)
+			throw new Exception("The number of islands should be at least 1. Trying to set " + islands);
+		this.islands = islands;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+	private void setMigrationInterval(int migrationInterval) throws Exception {
+		if (migrationInterval < 1)
+			throw new Exception("The migration interval should be at least 1 generation. Trying to set " + migrationInterval);
+		this.migrationInterval = migrationInterval;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+	private void setCheckpointInterval(int checkpointInterval) throws Exception {
+		if (checkpointInterval < 0)
+			throw new Exception("The checkpoint interval should be a positive number of generations (or 0 for no checkpoints). Trying to set " + checkpointInterval);
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean isDeferActualFitness() {
+		return deferActualFitness;
+	}
+	private void setDeferActualFitness(boolean deferActualFitness) {
+		this.deferActualFitness = deferActualFitness;
+	}
+
+	public int getActualFitnessTopN() {
+		return actualFitnessTopN;
+	}
+	private void setActualFitnessTopN(int actualFitnessTopN) throws Exception {
+		if (actualFitnessTopN < 0)
+			throw new Exception("The number of candidates whose actual fitness is evaluated should be positive (or 0 for all the candidates). Trying to set " + actualFitnessTopN);
+		this.actualFitnessTopN = actualFitnessTopN;
+	}
+	
+	/**
+	 * Returns whether the actual fitness should be evaluated together with the fitness of the candidate (logging is on and the actual fitness is not deferred)
+	 * @return true if the actual fitness should be evaluated with the fitness
+	 */
+	public boolean isActualFitnessEvaluated() {
+		return logGA && !deferActualFitness;
+	}
+
+	private void setThresholdOptimiserClassName(String thresholdOptimiserClassName) throws Exception {
+		this.thresholdOptimiserClassName = thresholdOptimiserClassName;
+		getThresholdOptimiser(); // checking if the class name is valid
+	}
+
 	public void readProperties(String propertiesFile) throws Exception{
 		Properties properties = null;
 		try {
@@ -172,6 +325,35 @@ public class GASettings {
 		}		
 		setOptMeasure(measure);
 		
+		if(properties.getProperty("evaluationThreads") != null) // if not specified, one thread per available processor is used
+			setEvaluationThreads(PropertiesReader.readInt(properties, "evaluationThreads"));
+		if(properties.getProperty("fitnessCacheSize") != null) // if not specified, the default (10000) is used
+			setFitnessCacheSize(PropertiesReader.readInt(properties, "fitnessCacheSize"));
+		if(properties.getProperty("persistFitnessCache") != null) // if not specified, the default (false) is used
+			setPersistFitnessCache(PropertiesReader.readBooleanParam(properties, "persistFitnessCache"));
+		if(properties.getProperty("thresholdOptimiser") != null) // if not specified, GA is used
+			setThresholdOptimiserClassName(PropertiesReader.readStringParam(properties, "thresholdOptimiser"));
+		if(properties.getProperty("racing") != null) // if not specified, the default (false) is used
+			setRacing(PropertiesReader.readBooleanParam(properties, "racing"));
+		if(properties.getProperty("racingConfidence") != null) // if not specified, the default (0.95) is used
+			setRacingConfidence(PropertiesReader.readDoubleParam(properties, "racingConfidence"));
+		if(racing && !(optMeasure instanceof AccuracyMeasure))
+			throw new Exception("ERROR: racing evaluation requires the accuracy optimization measure: the confidence bound holds only for the mean of per-instance scores. Trying to use " + optMeasure.getName());
+		if(properties.getProperty("surrogateBatchSize") != null) // if not specified, the default (4) is used
+			setSurrogateBatchSize(PropertiesReader.readInt(properties, "surrogateBatchSize"));
+		if(properties.getProperty("islands") != null) // if not specified, the default (4) is used
+			setIslands(PropertiesReader.readInt(properties, "islands"));
+		if(properties.getProperty("migrationInterval") != null) // if not specified, the default (5) is used
+			setMigrationInterval(PropertiesReader.readInt(properties, "migrationInterval"));
+		if(properties.getProperty("checkpointInterval") != null) // if not specified, the default (0) is used
+			setCheckpointInterval(PropertiesReader.readInt(properties, "checkpointInterval"));
+		if(checkpointInterval > 0 && !thresholdOptimiserClassName.equals("algorithms.RSSalg.GA.GAThresholdOptimiser"))
+			throw new Exception("ERROR: checkpoints are only written by the GA threshold optimiser (algorithms.RSSalg.GA.GAThresholdOptimiser). Trying to use checkpointInterval " + checkpointInterval + " with " + thresholdOptimiserClassName);
+		if(properties.getProperty("deferActualFitness") != null) // if not specified, the default (false) is used
+			setDeferActualFitness(PropertiesReader.readBooleanParam(properties, "deferActualFitness"));
+		if(properties.getProperty("actualFitnessTopN") != null) // if not specified, the default (0) is used
+			setActualFitnessTopN(PropertiesReader.readInt(properties, "actualFitnessTopN"));
+		
 		String resultFolder = "";
 		try{
 			resultFolder = DatasetSettings.getInstance().getResultFolder();
@@ -190,12 +372,29 @@ public class GASettings {
 	public void printSettings(PrintStream out){
 		out.println("GA SETTINGS:");
 		
+		try{
+			out.println("\tThreshold optimiser: " + getThresholdOptimiser().getName());
+		}catch(Exception e){
+			out.println("\tThreshold optimiser: " + thresholdOptimiserClassName);
+		}
+		if(thresholdOptimiserClassName.equals("algorithms.RSSalg.GA.IslandGAThresholdOptimiser"))
+			out.println("\tIslands: " + getIslands() + ", migration every " + migrationInterval + " generations");
+		if(thresholdOptimiserClassName.equals("algorithms.RSSalg.GA.SurrogateThresholdOptimiser"))
+			out.println("\tCandidates chosen in each round: " + surrogateBatchSize);
 		out.println("\tGeneration size: " + generationSize);		
 		out.println("\tCrossover threshold: " + crossoverTS);		
 		out.println("\tMutation threshold: " + mutationTS);
 		out.println("\tElitism used: " + elitism);
 		out.println("\tTesting threshold: " + (testingTS*100) + "%");
 		out.println("\tLogging on: " + isLogGA());
+		if(logGA && deferActualFitness)
+			out.println("\tActual fitness evaluated in the background for " + (actualFitnessTopN > 0 ? "the best " + actualFitnessTopN : "all") + " logged candidates");
+		out.println("\tThreads evaluating the candidates: " + evaluationThreads);
+		if(racing)
+			out.println("\tRacing evaluation of the candidates with confidence: " + racingConfidence);
+		out.println("\tFitness cache size: " + fitnessCacheSize + (persistFitnessCache ? " (kept in the fold folders)" : ""));
+		if(checkpointInterval > 0)
+			out.println("\tCheckpoint every " + checkpointInterval + " generations (kept in the fold folders)");
 		if(noImprovalgenerations > 0){
 			out.println("\tStopping criteria: no improval in " + noImprovalgenerations + " or reached the maximum of " + iterationNo + " generations");
 		}else
@@ -32,12 +32,14 @@
 package featureSplit;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
 import algorithms.co_training.CoTrainingData;
 import experimentSetting.ExperimentSettings;
+import featureSplit.utils.Feature;
 import featureSplit.utils.FeatureGraph;
 import featureSplit.utils.FeatureSplit;
 
@@ -51,6 +53,14 @@ public class DifferentRandomSplitsSplitter implements SplitterIF {
 	 * A list of already created splits
 	 */
 	List<FeatureSplit> splits = new ArrayList<FeatureSplit>();
+	/**
+	 * The set of already created splits, for checking whether a new split is unique (the splits are hashed by their fingerprints, see {@link FeatureSplit#getFingerprint()})
+	 */
+	Set<FeatureSplit> splitSet = new HashSet<FeatureSplit>();
+	/**
+	 * The features of the data, shared by all created splits
+	 */
+	List<Feature> features = null;
 		
 	/**
 	 * Generates a new (unique) random split of features in the two balanced views
@@ -59,10 +69,12 @@ public class DifferentRandomSplitsSplitter implements SplitterIF {
 	 * @return the new random feature split
 	 */
 	private FeatureSplit generateNewSplit(CoTrainingData data, Random rand){
+		if(features == null)
+			features = RandomSplit.getFeatures(data);
 		while (true){
 			RandomSplit splitter = new RandomSplit();
-			FeatureSplit newSplit = splitter.generateNewSplit(data, rand);
-			boolean splitExists = splits.contains(newSplit);
+			FeatureSplit newSplit = splitter.generateNewSplit(features, rand);
+			boolean splitExists = !splitSet.add(newSplit);
 			if(!splitExists){
 				splits.add(newSplit);				
 				return newSplit;
@@ -1,17 +1,207 @@
+/** 	
+ * Name: MaxIndSplit.java
+ * 
+ * Purpose:  Creates a balanced split of features in two views that are maximally independent given the class.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
 package featureSplit;
 
+import java.util.List;
 import java.util.Random;
 
+import weka.core.Instances;
 import algorithms.co_training.CoTrainingData;
+import featureSplit.utils.Feature;
 import featureSplit.utils.FeatureGraph;
 import featureSplit.utils.FeatureSplit;
+import featureSplit.utils.SplitStatistic;
 
+/**
+ * Creates a balanced split of features in two views that are maximally independent given the class (MaxInd split). The features are the nodes of 
+ * the graph whose edges are weighted by the conditional dependence between the features given the class, measured on the labeled data (see 
+ * {@link FeatureGraph#createConditionalDependenceGraph(weka.core.Instances, List, int)}). The split cuts the graph in two halves so that the sum 
+ * of the cut edges (the dependence between the views) is minimal: starting from a balanced random split (see {@link RandomSplit}), the pairs of 
+ * features from the different views are swapped while the swap lowers the dependence between the views (Kernighan-Lin heuristic). 
+ * <p>
+ * Each split starts from a different random split, so the splitter can be used to create multiple splits (e.g. for RSSalg). The graph is created 
+ * once per fold: the splits of the fold are created from the copies of the fold data that share its labeled views (see 
+ * {@link CoTrainingData#CoTrainingData(CoTrainingData)}), so the graph is reused while the labeled views are the same
+ */
 public class MaxIndSplit implements SplitterIF {
-
+	/**
+	 * Number of threads computing the feature graph
+	 */
+	protected static int GRAPH_THREADS = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Maximum number of the Kernighan-Lin passes over the features
+	 */
+	protected static int MAX_PASSES = 20;
+	
+	/**
+	 * The labeled views the cached graph was created from and their number of instances
+	 */
+	private Instances[] graphSource = null;
+	private int graphSourceSize = -1;
+	/**
+	 * The graph created for the last fold
+	 */
+	private FeatureGraph cachedGraph = null;
+	
+	/**
+	 * Creates a balanced split of features in two views that are maximally independent given the class
+	 * @param graph the conditional dependence graph of the features (see {@link FeatureGraph#createConditionalDependenceGraph(weka.core.Instances, List, int)}), 
+	 * if null it is created from the labeled data
+	 * @param data data to split in the views
+	 * @param rand an instance of random number generator to use (for the initial random split)
+	 * @param splitNo the number of split
+	 * @return the feature split
+	 * @throws Exception if there was an error creating the graph or the split (e.g. a feature of the data is not in the given graph)
+	 */
 	@Override
 	public FeatureSplit splitDatasets(FeatureGraph graph, CoTrainingData data, Random rand, int splitNo) throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		Instances[] source = data.peekLabeledData().clone(); // the views of the fold, before they are replaced by merging
+		data.mergeViews();
+		List<Feature> features = RandomSplit.getFeatures(data);
+		if(graph == null)
+			graph = getGraph(source, data, features);
+		
+		FeatureSplit randomSplit = new RandomSplit().generateNewSplit(features, rand);
+		boolean[] inSecondView = new boolean[graph.getNoNodes()];
+		for(Feature feature : features){
+			int node = graph.getNode(feature);
+			if(node < 0)
+				throw new Exception("ERROR: feature " + feature + " is not in the feature graph");
+			inSecondView[node] = randomSplit.getView(1).featureInView(feature);
+		}
+		
+		minimizeCut(graph, inSecondView);
+		
+		FeatureSplit split = new FeatureSplit(features);
+		for(Feature feature : features)
+			split.addFeatureToView(feature, inSecondView[graph.getNode(feature)] ? 1 : 0);
+		System.out.println("MaxInd split " + splitNo + ": dependence between the views " + new SplitStatistic(graph, split).getSumOfCutEdges() 
+				+ " (random split: " + new SplitStatistic(graph, randomSplit).getSumOfCutEdges() + ")");
+		
+		data.moveAttributes(0, 1, split.getFeatureIndicesForView(1));
+		return split;
+	}
+	
+	/**
+	 * Returns the conditional dependence graph of the features of the data. The graph is created from the merged labeled data and cached: it is 
+	 * reused for the data whose unmerged labeled views are the same objects (with the same number of instances) as the ones the cached graph was 
+	 * created from, i.e. for the other splits of the same fold
+	 * @param source the labeled views of the data before merging
+	 * @param data the data with the merged views
+	 * @param features the features of the data
+	 * @return the feature graph
+	 * @throws Exception if there was an error creating the graph
+	 */
+	private synchronized FeatureGraph getGraph(Instances[] source, CoTrainingData data, List<Feature> features) throws Exception{
+		boolean sameSource = cachedGraph != null && graphSource.length == source.length && graphSourceSize == source[0].numInstances();
+		for(int view=0; sameSource && view<source.length; view++)
+			sameSource = graphSource[view] == source[view];
+		if(!sameSource){
+			cachedGraph = FeatureGraph.createConditionalDependenceGraph(data.peekLabeledData()[0], features, GRAPH_THREADS);
+			graphSource = source;
+			graphSourceSize = source[0].numInstances();
+		}
+		return cachedGraph;
+	}
+	
+	/**
+	 * Swaps the pairs of nodes between the two halves of the graph while the swap lowers the sum of the cut edges. In each pass the node with the largest 
+	 * gain (the sum of its cut edges minus the sum of its uncut edges) is taken from the first half and swapped with the node from the second half 
+	 * that gives the largest reduction of the cut. Each node is swapped at most once per pass; the passes are repeated until a pass does not lower the cut
+	 * @param graph the feature graph
+	 * @param inSecondView for each node: whether it is in the second half (modified in place)
+	 */
+	private void minimizeCut(FeatureGraph graph, boolean[] inSecondView){
+		int noNodes = graph.getNoNodes();
+		double[] gains = new double[noNodes];
+		for(int node=0; node<noNodes; node++)
+			gains[node] = getGain(graph, inSecondView, node);
+		
+		boolean improved = true;
+		for(int pass=0; pass<MAX_PASSES && improved; pass++){
+			improved = false;
+			boolean[] swapped = new boolean[noNodes];
+			while(true){
+				int first = -1;
+				for(int node=0; node<noNodes; node++)
+					if(!swapped[node] && !inSecondView[node] && (first < 0 || gains[node] > gains[first]))
+						first = node;
+				if(first < 0)
+					break;
+				int second = -1;
+				double best = 0;
+				for(int node=0; node<noNodes; node++){
+					if(swapped[node] || !inSecondView[node])
+						continue;
+					double reduction = gains[first] + gains[node] - 2 * graph.getEdge(first, node);
+					if(second < 0 || reduction > best){
+						second = node;
+						best = reduction;
+					}
+				}
+				if(second < 0 || best <= 1e-12)
+					break;
+				
+				inSecondView[first] = true;
+				inSecondView[second] = false;
+				swapped[first] = true;
+				swapped[second] = true;
+				for(int node=0; node<noNodes; node++){
+					if(node == first || node == second)
+						continue;
+					// the edge to the first node is cut if the node is in the first half and uncut if it is in the second half, and vice versa for the second node
+					double change = 2 * (graph.getEdge(node, first) - graph.getEdge(node, second));
+					gains[node] += inSecondView[node] ? -change : change;
+				}
+				gains[first] = getGain(graph, inSecondView, first);
+				gains[second] = getGain(graph, inSecondView, second);
+				improved = true;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the gain of moving the node to the other half: the sum of its cut edges minus the sum of its uncut edges
+	 * @param graph the feature graph
+	 * @param inSecondView for each node: whether it is in the second half
+	 * @param node the node
+	 * @return the gain of moving the node
+	 */
+	private double getGain(FeatureGraph graph, boolean[] inSecondView, int node){
+		double gain = 0;
+		for(int other=0; other<inSecondView.length; other++)
+			if(other != node)
+				gain += inSecondView[other] == inSecondView[node] ? -graph.getEdge(node, other) : graph.getEdge(node, other);
+		return gain;
 	}
 
 	@Override
@@ -58,25 +58,42 @@ public class RandomSplit implements SplitterIF {
 	 * @return the new random feature split
 	 */
 	public FeatureSplit generateNewSplit(CoTrainingData data, Random rand){
-		
-		int idAttIndex = data.getLabeledData()[0].attribute(DatasetSettings.getInstance().getIdAttributeName()).index(); 
-		int classAttIndex = data.getLabeledData()[0].classIndex();		
+		return generateNewSplit(getFeatures(data), rand);
+	}
+	
+	/**
+	 * Returns the features of the data (all attributes of the first view except for the id and the class attribute)
+	 * @param data the data
+	 * @return the features of the data
+	 */
+	public static List<Feature> getFeatures(CoTrainingData data){
+		int idAttIndex = data.peekLabeledData()[0].attribute(DatasetSettings.getInstance().getIdAttributeName()).index(); 
+		int classAttIndex = data.peekLabeledData()[0].classIndex();		
 		
 		List<Feature> features = new ArrayList<Feature>();
-		for(int attInd=0; attInd<data.getLabeledData()[0].numAttributes(); attInd++){
+		for(int attInd=0; attInd<data.peekLabeledData()[0].numAttributes(); attInd++){
 			if(attInd == idAttIndex || attInd == classAttIndex)
 				continue; // skip id and class
-			String featureName = data.getLabeledData()[0].attribute(attInd).name();
+			String featureName = data.peekLabeledData()[0].attribute(attInd).name();
 			int featureInd = attInd+1; // +1 because attribute filters count from 1
 			features.add(new Feature(featureName, featureInd));
 		}
+		return features;
+	}
 	
+	/**
+	 * Generates a new random split of the given features in the two balanced views
+	 * @param features the features to split (see {@link #getFeatures(CoTrainingData)})
+	 * @param rand instance of random number generator to use
+	 * @return the new random feature split
+	 */
+	public FeatureSplit generateNewSplit(List<Feature> features, Random rand){
 		int noAttsInView1 = features.size()/2; 
 		int noAttsInView2 =  features.size() - noAttsInView1;
 		
 		int featuresInView1 = 0;
 		int featuresInView2 = 0;
-		FeatureSplit split = new FeatureSplit();
+		FeatureSplit split = new FeatureSplit(features);
 		
 //		String res = "";
 		for(int i=0; i<features.size(); i++){
@@ -31,38 +31,269 @@
  **/
 package featureSplit.utils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Graph representing the measures between the features in the dataset. A full attribute set can be represented as the feature graph where the 
  * nodes of the graph are the features. The relationship between the feature pair can be calculated by a given measure (e.g. mutual information) 
- * and coded as the edge between the two features where the weight of the edge corresponds to the measure value
+ * and coded as the edge between the two features where the weight of the edge corresponds to the measure value.
+ * <p>
+ * The graph is undirected: the edge weights are kept in a float array that holds the lower triangle of the adjacency matrix (the edge between 
+ * the nodes i &gt; j is at i*(i-1)/2 + j). The nodes are numbered in the order of the features the graph was created with 
  */
 public class FeatureGraph {
 	/**
-	 * feature graph is represented as the map - key: featureName1_featureName2 (it is assumed that the feature names are unique), value: weight of the edge between 
-	 * the two features
+	 * The features represented by the nodes of the graph
+	 */
+	protected List<Feature> features;
+	/**
+	 * Node number of each feature, indexed by the feature index (see {@link Feature#getIndex()}), -1 if the feature is not in the graph
+	 */
+	protected int[] nodes;
+	/**
+	 * Lower triangle of the adjacency matrix
+	 */
+	protected float[] weights;
+	
+	/**
+	 * Creates the graph without edges (all edge weights are 0)
+	 * @param features the features represented by the nodes of the graph
+	 * @throws Exception if there are too many features to keep the edges in one array
+	 */
+	public FeatureGraph(List<Feature> features) throws Exception{
+		long noEdges = (long) features.size() * (features.size() - 1) / 2;
+		if(noEdges > Integer.MAX_VALUE - 8)
+			throw new Exception("ERROR: too many features for the feature graph: " + features.size());
+		this.features = new ArrayList<Feature>(features);
+		int maxIndex = 0;
+		for(Feature feature : features)
+			maxIndex = Math.max(maxIndex, feature.getIndex());
+		nodes = new int[maxIndex + 1];
+		Arrays.fill(nodes, -1);
+		for(int node=0; node<features.size(); node++)
+			nodes[features.get(node).getIndex()] = node;
+		weights = new float[(int) noEdges];
+	}
+	
+	/**
+	 * Returns the number of nodes (features) in the graph
+	 * @return the number of nodes
+	 */
+	public int getNoNodes(){
+		return features.size();
+	}
+	
+	/**
+	 * Returns the feature represented by the node
+	 * @param node the node number
+	 * @return the feature
+	 */
+	public Feature getFeature(int node){
+		return features.get(node);
+	}
+	
+	/**
+	 * Returns the node that represents the feature
+	 * @param feature the feature
+	 * @return the node number or -1 if the feature is not in the graph
+	 */
+	public int getNode(Feature feature){
+		int index = feature.getIndex();
+		return index >= 0 && index < nodes.length ? nodes[index] : -1;
+	}
+	
+	/**
+	 * Returns the index of the edge in the lower triangle, computed in long (the products overflow int for more than 46340 nodes)
+	 */
+	private static int edgeIndex(int node1, int node2){
+		return (int) (node1 > node2 ? (long) node1 * (node1 - 1) / 2 + node2 : (long) node2 * (node2 - 1) / 2 + node1);
+	}
+	
+	/**
+	 * Returns the node that represents the feature
+	 * @throws IllegalArgumentException if the feature is not in the graph
 	 */
-	protected Map<String, Double> graph = new HashMap<String, Double>();
+	private int getExistingNode(Feature feature){
+		int node = getNode(feature);
+		if(node < 0)
+			throw new IllegalArgumentException("ERROR: feature " + feature + " is not in the feature graph");
+		return node;
+	}
+	
+	/**
+	 * Sets the weight of the edge between the two nodes
+	 * @param node1 the first node
+	 * @param node2 the second node (different from the first)
+	 * @param weight the weight of the edge in the graph
+	 */
+	public void setEdge(int node1, int node2, double weight){
+		weights[edgeIndex(node1, node2)] = (float) weight;
+	}
+	
+	/**
+	 * Returns the weight of the edge between the two nodes (0 if the nodes are the same)
+	 * @param node1 the first node
+	 * @param node2 the second node
+	 * @return weight of the edge between the nodes
+	 */
+	public double getEdge(int node1, int node2){
+		if(node1 == node2)
+			return 0;
+		return weights[edgeIndex(node1, node2)];
+	}
 	
 	/**
 	 * Add the weighted edge between the features
-	 * @param feature1 the name of the first feature
-	 * @param feature2 the name of the second feature
+	 * @param feature1 the first feature
+	 * @param feature2 the second feature
 	 * @param weight the weight of the edge in the graph
+	 * @throws IllegalArgumentException if a feature is not in the graph
 	 */
-	public void addEdge(String feature1, String feature2, double weight){
-		graph.put(feature1 + "_" + feature2, weight);
+	public void addEdge(Feature feature1, Feature feature2, double weight){
+		setEdge(getExistingNode(feature1), getExistingNode(feature2), weight);
 	}
 	
 	/**
 	 * Returns the weight of the edge of the graph between the two features
-	 * @param feature1 the name of the first feature
-	 * @param feature2 the name of the second feature
+	 * @param feature1 the first feature
+	 * @param feature2 the second feature
 	 * @return weight of the edge between the features
+	 * @throws IllegalArgumentException if a feature is not in the graph
+	 */
+	public double getEdge(Feature feature1, Feature feature2){
+		return getEdge(getExistingNode(feature1), getExistingNode(feature2));
+	}
+	
+	/**
+	 * Creates the graph of the conditional dependence between the features given the class: the weight of the edge is the conditional mutual 
+	 * information I(f1; f2 | class) (in nats) between the occurrences of the two features (the feature occurs in the instance if its value is 
+	 * not 0 or missing). The occurrences of each feature are collected into a bit set over the instances by one pass over the (sparse) 
+	 * instances, and the co-occurrence counts of the feature pairs are obtained by intersecting the bit sets. The rows of the adjacency matrix 
+	 * are computed in parallel. Instances with the missing class are skipped 
+	 * @param dataset the labeled dataset (the feature index is the attribute index + 1, see {@link Feature})
+	 * @param features the features of the dataset
+	 * @param noThreads number of threads computing the edges
+	 * @return the conditional dependence graph
+	 * @throws Exception if there was an error computing the edges
+	 */
+	public static FeatureGraph createConditionalDependenceGraph(Instances dataset, List<Feature> features, int noThreads) throws Exception{
+		final FeatureGraph graph = new FeatureGraph(features);
+		final int noNodes = graph.getNoNodes();
+		final int noClasses = dataset.numClasses();
+		int noWords = (dataset.numInstances() + 63) / 64;
+		
+		final long[][] occurrences = new long[noNodes][noWords];
+		final long[][] classMembers = new long[noClasses][noWords];
+		final int[] classCounts = new int[noClasses];
+		int noInstances = 0;
+		for(int i=0; i<dataset.numInstances(); i++){
+			Instance instance = dataset.instance(i);
+			if(instance.classIsMissing())
+				continue;
+			int classValue = (int) instance.classValue();
+			classMembers[classValue][i >> 6] |= 1L << i;
+			classCounts[classValue]++;
+			noInstances++;
+			for(int position=0; position<instance.numValues(); position++){
+				int index = instance.index(position) + 1; // +1 because feature indices count from 1
+				double value = instance.valueSparse(position);
+				if(index < graph.nodes.length && graph.nodes[index] >= 0 && value != 0 && !Double.isNaN(value))
+					occurrences[graph.nodes[index]][i >> 6] |= 1L << i;
+			}
+		}
+		if(noInstances == 0)
+			return graph;
+		
+		final int[][] counts = new int[noNodes][noClasses]; // occurrences of the feature within each class
+		for(int node=0; node<noNodes; node++)
+			for(int c=0; c<noClasses; c++)
+				counts[node][c] = countCommon(occurrences[node], classMembers[c], null);
+		
+		final double total = noInstances;
+		final AtomicInteger nextRow = new AtomicInteger(1);
+		Callable<Void> rowTask = new Callable<Void>() {
+			public Void call() throws Exception {
+				int row;
+				while((row = nextRow.getAndIncrement()) < noNodes)
+					for(int column=0; column<row; column++){
+						double information = 0;
+						for(int c=0; c<noClasses; c++){
+							if(classCounts[c] == 0)
+								continue;
+							int both = countCommon(occurrences[row], occurrences[column], classMembers[c]);
+							int rowOnly = counts[row][c] - both;
+							int columnOnly = counts[column][c] - both;
+							int none = classCounts[c] - counts[row][c] - counts[column][c] + both;
+							information += term(both, counts[row][c], counts[column][c], classCounts[c]) 
+									+ term(rowOnly, counts[row][c], classCounts[c] - counts[column][c], classCounts[c])
+									+ term(columnOnly, classCounts[c] - counts[row][c], counts[column][c], classCounts[c])
+									+ term(none, classCounts[c] - counts[row][c], classCounts[c] - counts[column][c], classCounts[c]);
+						}
+						graph.setEdge(row, column, information / total);
+					}
+				return null;
+			}
+		};
+		
+		if(noThreads <= 1){
+			rowTask.call();
+			return graph;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(noThreads);
+		try{
+			List<Future<Void>> rows = new ArrayList<Future<Void>>();
+			for(int i=0; i<noThreads; i++)
+				rows.add(executor.submit(rowTask));
+			for(Future<Void> future : rows){
+				try{
+					future.get();
+				}catch(ExecutionException e){
+					throw new Exception("ERROR: error computing the feature graph", e.getCause());
+				}
+			}
+		}finally{
+			executor.shutdownNow();
+		}
+		return graph;
+	}
+	
+	/**
+	 * Counts the instances in the intersection of the bit sets
+	 * @param first the first bit set
+	 * @param second the second bit set
+	 * @param third the third bit set (null if only two bit sets are intersected)
+	 * @return the number of instances in the intersection
+	 */
+	private static int countCommon(long[] first, long[] second, long[] third){
+		int count = 0;
+		for(int word=0; word<first.length; word++)
+			count += Long.bitCount(third == null ? first[word] & second[word] : first[word] & second[word] & third[word]);
+		return count;
+	}
+	
+	/**
+	 * One term of the mutual information between the two features within the class: n(a,b) * log(n(a,b) * n / (n(a) * n(b))). The terms summed over 
+	 * the values a and b and over the classes and divided by the number of instances give the conditional mutual information
+	 * @param joint number of instances of the class with the value a of the first and the value b of the second feature, n(a,b)
+	 * @param first number of instances of the class with the value a of the first feature, n(a)
+	 * @param second number of instances of the class with the value b of the second feature, n(b)
+	 * @param classCount number of instances of the class, n
+	 * @return the term of the mutual information
 	 */
-	public double getEdge(String feature1, String feature2){
-		return graph.get(feature1 + "_" + feature2);
+	private static double term(int joint, int first, int second, int classCount){
+		if(joint == 0)
+			return 0;
+		return joint * Math.log((double) joint * classCount / ((double) first * second));
 	}
 }
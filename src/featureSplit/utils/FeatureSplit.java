@@ -31,7 +31,8 @@
  **/
 package featureSplit.utils;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -41,7 +42,19 @@ public class FeatureSplit {
 	/**
 	 * The set of views of the whole feature set
 	 */
-	protected Set<View> views = new HashSet<View>();
+	protected List<View> views = new ArrayList<View>();
+	/**
+	 * All features of the data, shared by the views of the split (see {@link View})
+	 */
+	protected List<Feature> features;
+	
+	/**
+	 * Creates an empty feature split of the given features
+	 * @param features all features of the data (see {@link featureSplit.RandomSplit#getFeatures}). The list is shared with the views, not copied
+	 */
+	public FeatureSplit(List<Feature> features){
+		this.features = features;
+	}
 	
 	/**
 	 * Adds a view to the feature split
@@ -72,14 +85,10 @@ public class FeatureSplit {
 	public void addFeatureToView(Feature feature, int viewNo){
 		View view = getView(viewNo);
 		if(view == null){ // view not found, add new view
-			view = new View(viewNo);
-			view.addFeature(feature);
+			view = new View(viewNo, features);
 			views.add(view);
-		}else{
-			views.remove(view);
-			view.addFeature(feature);
-			views.add(view); 
 		}
+		view.addFeature(feature);
 	}
 	
 	/**
@@ -107,6 +116,18 @@ public class FeatureSplit {
 		return null;
 	}
 	
+	/**
+	 * Returns the 64-bit fingerprint of the feature split, combined from the fingerprints of its views (see {@link View#getFingerprint()}) 
+	 * regardless of the view order. Equal feature splits have the same fingerprint
+	 * @return the fingerprint of the feature split
+	 */
+	public long getFingerprint(){
+		long fingerprint = 0;
+		for(View view : views)
+			fingerprint += View.mix(view.getFingerprint());
+		return fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		String res = "Views: " + "\n";
@@ -116,14 +137,12 @@ public class FeatureSplit {
 	}
 
 	/**
-	 * Generates a hash code based on the view set of the feature split
+	 * Generates a hash code based on the view set of the feature split (its fingerprint)
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((views == null) ? 0 : views.hashCode());
-		return result;
+		long fingerprint = getFingerprint();
+		return (int) (fingerprint ^ (fingerprint >>> 32));
 	}
 
 	/**
@@ -139,20 +158,19 @@ public class FeatureSplit {
 		if (getClass() != obj.getClass())
 			return false;
 		FeatureSplit other = (FeatureSplit) obj;
-		if (views == null) {
-			if (other.views != null)
-				return false;
-		} else if (!views.equals(other.views)){
+		if (views.size() != other.views.size() || getFingerprint() != other.getFingerprint())
 			return false;
-		}
+		for(View view : views)
+			if(!other.views.contains(view))
+				return false;
 		return true;
 	}
 
 	/**
-	 * Returns the set of views that describe a feature split
-	 * @return the set of views of the feature split
+	 * Returns the views that describe a feature split
+	 * @return the views of the feature split
 	 */
-	public Set<View> getViews() {
+	public List<View> getViews() {
 		return views;
 	}
 	
@@ -31,9 +31,7 @@
  **/
 package featureSplit.utils;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Object that aggregates the measures of cutting the dataset in multiple views. A full attribute set can be represented as the feature graph, see 
@@ -69,30 +67,36 @@ public class SplitStatistic {
 	 * Creates the new instance of SplitSatistic: given the feature graph and the feature split calculates the measures of applying the feature split
 	 * @param graph the feature graph
 	 * @param split the feature split to be applied on the graph
+	 * @throws Exception if a feature of the split is not in the graph
 	 */
-	public SplitStatistic(FeatureGraph graph, FeatureSplit split){
-		
-		// copy the list of the views (in order not to modify the feature split)
-		List<View> views = new ArrayList<View>();
-		views.addAll(split.getViews());
+	public SplitStatistic(FeatureGraph graph, FeatureSplit split) throws Exception{
+		List<View> views = split.getViews();
 		
 		sumOfCutEdges2Views = new double[views.size()][views.size()];
 		sumOfEdgesView = new double[views.size()];
 		viewNumbers = new int[views.size()];
 		
+		// nodes of the graph that represent the features of each view
+		int[][] nodes = new int[views.size()][];
 		for(int i=0; i<views.size(); i++){
 			viewNumbers[i] = views.get(i).getViewNo();
-			// features from the ith view
-			Set<Feature> features_i = views.get(i).features;
+			List<Feature> features = views.get(i).getFeatures();
+			nodes[i] = new int[features.size()];
+			for(int f=0; f<features.size(); f++){
+				nodes[i][f] = graph.getNode(features.get(f));
+				if(nodes[i][f] < 0)
+					throw new Exception("ERROR: feature " + features.get(f) + " is not in the feature graph");
+			}
+		}
+		
+		for(int i=0; i<views.size(); i++){
 			// sum of cut edges between the ith and the ith view (same view) is 0  
 			sumOfCutEdges2Views[i][i] = 0;
 			// calculate the sum of edges within the ith view 
-			calcInterEdgesViewSum(graph, features_i, i);
+			calcInterEdgesViewSum(graph, nodes[i], i);
 			//calculate the sum of cut edges between the ith view and all other views
-			for(int j=i+1; j<views.size(); j++){
-				Set<Feature> features_j = views.get(j).features; // features of the second view
-				calcIntraEdgesViewSum(graph, features_i, features_j, i, j);
-			}
+			for(int j=i+1; j<views.size(); j++)
+				calcIntraEdgesViewSum(graph, nodes[i], nodes[j], i, j);
 		}
 		
 	}
@@ -100,33 +104,31 @@ public class SplitStatistic {
 	/**
 	 * Calculates the sum of cut edges between the two views 
 	 * @param graph the feature graph
-	 * @param features_v1 features of the first view
-	 * @param features_v2 features of the second view
+	 * @param nodes_v1 nodes of the features of the first view
+	 * @param nodes_v2 nodes of the features of the second view
 	 * @param v1 index of the first view
 	 * @param v2 index of the second view
 	 */
-	private void calcIntraEdgesViewSum(FeatureGraph graph, Set<Feature> features_v1, Set<Feature> features_v2, int v1, int v2){		
+	private void calcIntraEdgesViewSum(FeatureGraph graph, int[] nodes_v1, int[] nodes_v2, int v1, int v2){		
 		double sumCutEdges12 = 0; // the total sum of edges between the views
-		for(Feature feature1 : features_v1)
-			for(Feature feature2 : features_v2){
-				sumCutEdges12 += graph.getEdge(feature1.getName(), feature2.getName());
-			}
+		for(int node1 : nodes_v1)
+			for(int node2 : nodes_v2)
+				sumCutEdges12 += graph.getEdge(node1, node2);
 		sumOfCutEdges2Views[v1][v2] = sumCutEdges12;
 		sumOfCutEdges2Views[v2][v1] = sumCutEdges12;
 		sumOfCutEdges += sumCutEdges12; // enlarge the total sum of cut edges
 	}
 	
 	/**
-	 * Calculates the sum of edges within the view
+	 * Calculates the sum of edges within the view (each edge is counted once)
 	 * @param graph the feature graph
-	 * @param features features in the view
+	 * @param nodes nodes of the features in the view
 	 * @param view view index in sumOfEdgesView array
 	 */
-	private void calcInterEdgesViewSum(FeatureGraph graph, Set<Feature> features, int view){
-		for(Feature feature1 : features)
-			for(Feature feature2 : features){
-				sumOfEdgesView[view] += graph.getEdge(feature1.getName(), feature2.getName());
-			}
+	private void calcInterEdgesViewSum(FeatureGraph graph, int[] nodes, int view){
+		for(int i=0; i<nodes.length; i++)
+			for(int j=0; j<i; j++)
+				sumOfEdgesView[view] += graph.getEdge(nodes[i], nodes[j]);
 	}
 
 	/**
@@ -31,11 +31,18 @@
  **/
 package featureSplit.utils;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
- * Represents one view of the data - a subset of the complete feature set that describes the data 
+ * Represents one view of the data - a subset of the complete feature set that describes the data. The features are identified by their index 
+ * in the dataset that contains features from all views (see {@link Feature}): the feature subset is kept as a bit set of the feature indices 
+ * together with its 64-bit fingerprint, so the views can be compared without comparing the feature names. The {@link Feature} objects are not kept 
+ * per view: the view refers to the feature list of the data shared by all views and splits (see {@link featureSplit.RandomSplit#getFeatures}) and 
+ * derives its features from the bit set
  */
 public class View {
 	/**
@@ -43,23 +50,36 @@ public class View {
 	 */
 	protected int viewNo;
 	/**
-	 * The set of features in the view
+	 * All features of the data, shared by the views (the features in the view are the ones whose indices are in {@link #featureIndices})
 	 */
-	protected Set<Feature> features = new HashSet<Feature>();
+	protected List<Feature> features;
+	/**
+	 * The indices of the features in the view
+	 */
+	protected BitSet featureIndices = new BitSet();
+	/**
+	 * Fingerprint of the feature subset: combination of the hashes of the feature indices that does not depend on the order the features were added in
+	 */
+	protected long fingerprint = 0;
 
 	/**
 	 * Creates a new instance of the view
 	 * @param viewNo view number in the feature split (one feature split contains multiple views)
+	 * @param features all features of the data the view selects its features from (the list is shared, not copied)
 	 */
-	public View(int viewNo) {
+	public View(int viewNo, List<Feature> features) {
 		this.viewNo = viewNo;
+		this.features = features;
 	}
 	/**
-	 * Adds a feature to the view
+	 * Adds a feature to the view. A feature that is already in the view is ignored
 	 * @param feature a new feature
 	 */
 	public void addFeature(Feature feature){
-		features.add(feature);
+		if(featureIndices.get(feature.getIndex()))
+			return;
+		featureIndices.set(feature.getIndex());
+		fingerprint += mix(feature.getIndex());
 	}
 	/**
 	 * Checks whether the view contains the feature
@@ -67,7 +87,7 @@ public class View {
 	 * @return true if feature belongs to the view, false otherwise
 	 */
 	public boolean featureInView(Feature feature){
-		return features.contains(feature);
+		return featureIndices.get(feature.getIndex());
 	}
 	/**
 	 * Returns the view number in the feature split (one feature split contains multiple views)
@@ -77,11 +97,15 @@ public class View {
 		return viewNo;
 	}
 	/**
-	 * Returns the set of features in the view
-	 * @return the set of features in the view
+	 * Returns the features in the view, in the order of the features of the data
+	 * @return the features in the view
 	 */
-	public Set<Feature> getFeatures() {
-		return features;
+	public List<Feature> getFeatures() {
+		List<Feature> res = new ArrayList<Feature>(featureIndices.cardinality());
+		for(Feature feature : features)
+			if(featureIndices.get(feature.getIndex()))
+				res.add(feature);
+		return res;
 	}
 	/**
 	 * Returns the indices (original feature indices in the dataset that contains features from all views) of the features in this view
@@ -89,29 +113,31 @@ public class View {
 	 */
 	public Set<Integer> getFeatureIndices(){
 		Set<Integer> res = new HashSet<Integer>();
-		for(Feature feature : features){
-			res.add(feature.getIndex());
-		}
+		for(int index = featureIndices.nextSetBit(0); index >= 0; index = featureIndices.nextSetBit(index + 1))
+			res.add(index);
 		return res;
 	}
+	/**
+	 * Returns the 64-bit fingerprint of the feature subset. Views that contain the same feature subset have the same fingerprint
+	 * @return the fingerprint of the view
+	 */
+	public long getFingerprint(){
+		return fingerprint;
+	}
 	@Override
 	public String toString() {
 		String res = "Features in view " + viewNo + ": ";
-		for(Feature feature : features)
+		for(Feature feature : getFeatures())
 			res += feature + "; ";
 		return res;
 	}
 	/**
-	 * Generates the hashCode based on the feature set the view contains. Does not consider the number of the view - the two views that contain the exact same 
-	 * feature subset are equal, although their assigned numbers may be different 
+	 * Generates the hashCode based on the feature set the view contains (its fingerprint). Does not consider the number of the view - the two views 
+	 * that contain the exact same feature subset are equal, although their assigned numbers may be different 
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((features == null) ? 0 : features.hashCode());
-		return result;
+		return (int) (fingerprint ^ (fingerprint >>> 32));
 	}
 	
 	/**
@@ -127,11 +153,18 @@ public class View {
 		if (getClass() != obj.getClass())
 			return false;
 		View other = (View) obj;
-		if (features == null) {
-			if (other.features != null)
-				return false;
-		} else if (!features.equals(other.features))
-			return false;
-		return true;
+		return fingerprint == other.fingerprint && featureIndices.equals(other.featureIndices);
+	}
+	
+	/**
+	 * Scrambles the bits of the value (one step of the SplitMix64 generator), so the sums of the scrambled values rarely collide
+	 * @param value the value to scramble
+	 * @return the scrambled value
+	 */
+	static long mix(long value){
+		value += 0x9e3779b97f4a7c15L;
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
 	}
 }
@@ -79,20 +79,27 @@ public class ExperimentResults {
 		marshaller.marshal(this, stream);
 	}
 	
+	/**
+	 * Adds the results read from the XML file. A missing file is treated as empty results
+	 * @param filename the results file (e.g. Results.xml)
+	 * @throws JAXBException if the file exists, but could not be read
+	 */
 	public void fromXML(String filename) throws JAXBException{
-		try{
-			JAXBContext context = JAXBContext.newInstance(ExperimentResults.class);
-			Unmarshaller unmarshaller = context.createUnmarshaller();
-			ExperimentResults er = (ExperimentResults) unmarshaller.unmarshal(new File(filename));
-			for(Experiments e : er.experiments){
-				addExperiments(e);
-			}
-		}catch(Exception e){
-			
+		if(!new File(filename).exists())
+			return;
+		JAXBContext context = JAXBContext.newInstance(ExperimentResults.class);
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		ExperimentResults er = (ExperimentResults) unmarshaller.unmarshal(new File(filename));
+		for(Experiments e : er.experiments){
+			addExperiments(e);
 		}
 	}
 	
-	public Experiments findExperimentsByProperties(){
+	/**
+	 * Creates the experiments object with the settings of the current experiment (number of iterations, number of splits, class names and growth size)
+	 * @return experiments object without results
+	 */
+	public static Experiments createExperimentsByProperties(){
 		Experiments newExp = new Experiments();
 		newExp.setNoIterations(CoTrainingSettings.getInstance().getIterations());
 		newExp.setNoSplits(ExperimentSettings.getInstance().getNoSplits());
@@ -101,14 +108,44 @@ public class ExperimentResults {
 		for(String className : DatasetSettings.getInstance().getClassNames())
 			growthSize.add(CoTrainingSettings.getInstance().getGrowthSize(className));
 		newExp.setGrowthSize(growthSize);
-		
+		return newExp;
+	}
+	
+	public Experiments findExperimentsByProperties(){
+		return findExperiments(createExperimentsByProperties());
+	}
+	
+	/**
+	 * Returns the experiments with the same settings as the given experiments object. If they don't exist, experiments with these settings are added
+	 * @param settings experiments object holding the settings (its results are ignored)
+	 * @return experiments with the given settings
+	 */
+	public Experiments findExperiments(Experiments settings){
 		for(Experiments currExp : this.experiments){
-			if(currExp.equals(newExp))
+			if(currExp.equals(settings))
 				return currExp;
 		}
-		experiments.add(newExp);
+		experiments.add(settings.copySettings());
 		return experiments.get(experiments.size()-1);
 	}
+	
+	/**
+	 * Adds the results recorded in the results journal (see {@link ResultsJournal}). The results replace the existing results of the same experiment 
+	 * and measure
+	 * @param record the settings of the experiment with the obtained results
+	 */
+	public void addRecord(Experiments record){
+		Experiments currExp = findExperiments(record);
+		for(Experiments.Experiment experiment : record.getExperiment()){
+			Experiments.Experiment currExperiment = currExp.findExperiment(experiment.getName());
+			for(Measure measure : experiment.getMeasures()){
+				Measure currMeasure = currExperiment.findMeasure(measure.getName());
+				currMeasure.setMicroAveraged(measure.getMicroAveraged());
+				currMeasure.setMacroAveraged(measure.getMacroAveraged());
+				currMeasure.setStdDev(measure.getStdDev());
+			}
+		}
+	}
 
 	@Override
 	public String toString() {
@@ -90,6 +90,19 @@ public class Experiments {
 		this.experiment.add(newExperiment);
 	}
 	
+	/**
+	 * Creates the copy of the settings (number of iterations, number of splits, class names and growth size) without the results 
+	 * @return experiments object with the same settings
+	 */
+	public Experiments copySettings(){
+		Experiments copy = new Experiments();
+		copy.setNoIterations(noIterations);
+		copy.setNoSplits(noSplits);
+		copy.setClassNames(new ArrayList<String>(classNames));
+		copy.setGrowthSize(new ArrayList<Integer>(growthSize));
+		return copy;
+	}
+	
 	public Experiments.Experiment findExperiment(String name){
 		for(Experiments.Experiment e : this.experiment)
 			if(e.name.equals(name))
@@ -0,0 +1,238 @@
+/** 	
+ * Name: ResultsJournal.java
+ * 
+ * Purpose: Append-only journal of the experiment results, safe for concurrent processes, rendered into Results.xml on demand
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package resultsToXML;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Append-only journal of the experiment results (Results.journal in the result folder). 
+ * <p>
+ * Each finished experiment appends one record: a single line holding the XML of an {@link Experiments} element with the settings of the experiment 
+ * and the measured results. Records are appended while holding an exclusive lock on the journal file, so several experiments (processes) can 
+ * write their results to the same result folder at the same time without losing updates, and the journal never has to be rewritten. A record that 
+ * was only partially written (e.g. the process was killed) is skipped with a warning.
+ * <p>
+ * Results.xml is a view of the journal rendered by {@link #compact()}: the records are replayed in order and the later results of the same 
+ * experiment and measure replace the earlier ones. An existing Results.xml written before the journal was used is imported as the first records of 
+ * a new journal.
+ */
+public class ResultsJournal {
+	public static final String JOURNAL_FILE = "Results.journal";
+	public static final String RESULTS_FILE = "Results.xml";
+	private static final String CHARSET = "UTF-8";
+	
+	private File journalFile;
+	private File resultsFile;
+	private JAXBContext context;
+	
+	/**
+	 * Creates the journal of the result folder
+	 * @param resultFolder the result folder of the experiment
+	 * @throws Exception if the JAXB context could not be created
+	 */
+	public ResultsJournal(String resultFolder) throws Exception{
+		journalFile = new File(resultFolder, JOURNAL_FILE);
+		resultsFile = new File(resultFolder, RESULTS_FILE);
+		context = JAXBContext.newInstance(ExperimentResults.class);
+	}
+	
+	/**
+	 * Appends the results of the experiment to the journal
+	 * @param record the settings of the experiment with the obtained results
+	 * @throws Exception if there was an error writing the journal
+	 */
+	public void append(Experiments record) throws Exception{
+		byte[] line = toLine(record);
+		RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+		try{
+			FileChannel channel = file.getChannel();
+			FileLock lock = channel.lock();
+			try{
+				if(channel.size() == 0)
+					importResults(channel);
+				else if(endsWithPartialRecord(channel))
+					write(channel, new byte[]{'\n'});
+				write(channel, line);
+				channel.force(false);
+			}finally{
+				lock.release();
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error writing the results journal " + journalFile, e);
+		}finally{
+			file.close();
+		}
+	}
+	
+	/**
+	 * Replays the journal
+	 * @return results of all experiments recorded in the journal
+	 * @throws Exception if there was an error reading the journal
+	 */
+	public ExperimentResults read() throws Exception{
+		ExperimentResults results = new ExperimentResults();
+		if(!journalFile.exists())
+			return results;
+		RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+		try{
+			FileChannel channel = file.getChannel();
+			FileLock lock = channel.lock();
+			try{
+				replay(channel, results);
+			}finally{
+				lock.release();
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error reading the results journal " + journalFile, e);
+		}finally{
+			file.close();
+		}
+		return results;
+	}
+	
+	/**
+	 * Renders Results.xml from the journal. The journal stays locked until Results.xml is replaced, so the concurrent experiments cannot replace it 
+	 * with an older view 
+	 * @return results of all experiments recorded in the journal
+	 * @throws Exception if there was an error reading the journal or writing Results.xml
+	 */
+	public ExperimentResults compact() throws Exception{
+		ExperimentResults results = new ExperimentResults();
+		RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+		File tmpFile = new File(resultsFile.getPath() + ".tmp");
+		try{
+			FileChannel channel = file.getChannel();
+			FileLock lock = channel.lock();
+			try{
+				if(channel.size() == 0)
+					importResults(channel);
+				replay(channel, results);
+				
+				FileOutputStream out = new FileOutputStream(tmpFile);
+				try{
+					results.toXML(out);
+				}finally{
+					out.close();
+				}
+				if(!tmpFile.renameTo(resultsFile) && !(resultsFile.delete() && tmpFile.renameTo(resultsFile)))
+					throw new Exception("could not rename " + tmpFile + " to " + resultsFile);
+			}finally{
+				lock.release();
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error rendering " + resultsFile + " from the results journal", e);
+		}finally{
+			file.close();
+			if(tmpFile.exists())
+				tmpFile.delete();
+		}
+		return results;
+	}
+	
+	/**
+	 * Imports the results from Results.xml written before the journal was used (one record per experiment) into the empty journal 
+	 */
+	private void importResults(FileChannel channel) throws Exception{
+		ExperimentResults results = new ExperimentResults();
+		try{
+			results.fromXML(resultsFile.getPath());
+		}catch(Exception e){
+			System.out.println("WARNING: could not import the existing results from " + resultsFile + ": " + e.getMessage());
+			return;
+		}
+		for(Experiments experiments : results.getExperiment())
+			for(Experiments.Experiment experiment : experiments.getExperiment()){
+				Experiments record = experiments.copySettings();
+				record.addExperiment(experiment);
+				write(channel, toLine(record));
+			}
+	}
+	
+	private void replay(FileChannel channel, ExperimentResults results) throws Exception{
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		channel.position(0);
+		while(buffer.hasRemaining() && channel.read(buffer) != -1);
+		String[] lines = new String(buffer.array(), 0, buffer.position(), CHARSET).split("\n");
+		
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		for(int lineNo=0; lineNo<lines.length; lineNo++){
+			if(lines[lineNo].trim().isEmpty())
+				continue;
+			try{
+				Experiments record = unmarshaller.unmarshal(new StreamSource(new StringReader(lines[lineNo])), Experiments.class).getValue();
+				results.addRecord(record);
+			}catch(Exception e){
+				System.out.println("WARNING: skipping the corrupt record at line " + (lineNo+1) + " of the results journal " + journalFile);
+			}
+		}
+	}
+	
+	private byte[] toLine(Experiments record) throws Exception{
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, CHARSET);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		marshaller.marshal(new JAXBElement<Experiments>(new QName("Experiments"), Experiments.class, record), out);
+		out.write('\n');
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Returns whether the last record was not completely written (it does not end with the new line)
+	 */
+	private boolean endsWithPartialRecord(FileChannel channel) throws Exception{
+		ByteBuffer last = ByteBuffer.allocate(1);
+		channel.read(last, channel.size() - 1);
+		return last.get(0) != '\n';
+	}
+	
+	private void write(FileChannel channel, byte[] bytes) throws Exception{
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		channel.position(channel.size());
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+	}
+}
@@ -0,0 +1,226 @@
+/** 	
+ * Name: SplitRangeMerger.java
+ * 
+ * Purpose: Writes and merges the partial classifier statistics of the jobs that run only a range of splits.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package setExperiment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import algorithms.RSSalg.resultStatistic.ClassifierEnsemble;
+import algorithms.RSSalg.resultStatistic.ClassifierEnsembleList;
+import algorithms.RSSalg.resultStatistic.PartialClassifierEnsembleList;
+import experimentSetting.CVSettings;
+import experimentSetting.CoTrainingSettings;
+import experimentSetting.DatasetSettings;
+import experimentSetting.ExperimentSettings;
+
+/**
+ * Writes and merges the partial classifier statistics of the jobs that run only a range of splits (splitRange property in experiment properties).
+ * <p>
+ * Each job writes its statistics in the file named after the complete statistics file with the range appended (e.g. 
+ * classifiers_CoTraining_DifferentRandomSplits_splits_0-24.xml). Merging checks that the ranges of all partial statistics in the fold
+ * are non-overlapping and cover all splits, that each partial statistics holds every split of its range exactly once, and that all of 
+ * them were created with the same settings and random generator seed as the current experiment. The merged statistics is written in the complete statistics file (e.g. classifiers_CoTraining_DifferentRandomSplits.xml)
+ * which can then be loaded in RSSalg and MajorityVote experiments.
+ */
+public class SplitRangeMerger {
+	/**
+	 * Lines of the printed settings that are not relevant for the settings fingerprint (locations of the files, the range run by the job and the 
+	 * settings that change only how the data is stored or cached, not the results)
+	 */
+	private static final String[] IGNORED_SETTINGS = {"\tResult folder: ", "\tLoading experiment from: ", "\tThis job runs splits ", 
+		"\tFolds saved in the binary format", "\tViews share the id and label columns", "\tParsed dataset cache: "};
+	/**
+	 * Printed settings line with the locations of the data files: only the file names are used for the settings fingerprint, so the jobs that read 
+	 * the same dataset from different mount points can be merged
+	 */
+	private static final String DATA_FILES_SETTING = "\tData files: ";
+	
+	/**
+	 * Returns the fingerprint of the current data, cross-validation, co-training and experiment settings. Jobs whose partial statistics
+	 * are merged must have the same fingerprint. The data files are identified by their names, not by their locations.
+	 * @return SHA-1 of the printed settings
+	 * @throws Exception if there was an error calculating the fingerprint
+	 */
+	public static String getSettingsFingerprint() throws Exception{
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(buffer, true, "UTF-8");
+		DatasetSettings.getInstance().printSettings(out);
+		CVSettings.getInstance().printSettings(out);
+		CoTrainingSettings.getInstance().printSettings(out);
+		ExperimentSettings.getInstance().printSettings(out);
+		out.close();
+		
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		for(String line : buffer.toString("UTF-8").split("\\r?\\n")){
+			boolean ignore = false;
+			for(String prefix : IGNORED_SETTINGS)
+				if(line.startsWith(prefix))
+					ignore = true;
+			if(line.startsWith(DATA_FILES_SETTING)){
+				line = DATA_FILES_SETTING;
+				for(String fileName : DatasetSettings.getInstance().getFileNames())
+					line += new File(fileName).getName() + "; ";
+			}
+			if(!ignore)
+				digest.update((line + "\n").getBytes("UTF-8"));
+		}
+		
+		StringBuilder fingerprint = new StringBuilder();
+		for(byte b : digest.digest())
+			fingerprint.append(String.format("%02x", b));
+		return fingerprint.toString();
+	}
+	
+	/**
+	 * Returns the name of the file holding the partial statistics for the given range of splits
+	 * @param fileName name of the complete statistics file (e.g. classifiers_CoTraining_DifferentRandomSplits.xml)
+	 * @param firstSplit the first split in the range
+	 * @param lastSplit the last split in the range
+	 * @return the name of the partial statistics file 
+	 */
+	public static String getPartialFileName(String fileName, int firstSplit, int lastSplit){
+		return getPartialFilePrefix(fileName) + firstSplit + "-" + lastSplit + ".xml";
+	}
+	
+	private static String getPartialFilePrefix(String fileName){
+		if(fileName.endsWith(".xml"))
+			fileName = fileName.substring(0, fileName.length() - ".xml".length());
+		return fileName + "_splits_";
+	}
+	
+	/**
+	 * Writes the statistics created by the job that runs the range of splits set in the experiment settings 
+	 * @param foldFolder folder of the fold
+	 * @param fileName name of the complete statistics file
+	 * @param classifiers statistics created by the job
+	 * @throws Exception if there was an error writing the file
+	 */
+	public static void writePartial(String foldFolder, String fileName, ClassifierEnsembleList classifiers) throws Exception{
+		ExperimentSettings experimentSettings = ExperimentSettings.getInstance();
+		PartialClassifierEnsembleList partial = new PartialClassifierEnsembleList(experimentSettings.getFirstSplit(), experimentSettings.getLastSplit(), 
+				experimentSettings.getNoSplits(), DatasetSettings.getInstance().getRandSeed(), getSettingsFingerprint(), classifiers);
+		FileOutputStream fs = new FileOutputStream(foldFolder + File.separator + getPartialFileName(fileName, partial.getFirstSplit(), partial.getLastSplit()), false);
+		partial.toXML(fs);
+		fs.close();
+	}
+	
+	/**
+	 * Merges all partial statistics of the fold into the complete statistics file
+	 * @param foldFolder folder of the fold
+	 * @param fileName name of the complete statistics file
+	 * @throws Exception if:
+	 * <ul>
+	 * <li>there are no partial statistics for the file in the fold folder 
+	 * <li>partial statistics were created with the different settings or random generator seed
+	 * <li>ranges of the partial statistics overlap or do not cover all splits
+	 * <li>partial statistics do not contain each split of its range exactly once
+	 * <li>there was an error reading/writing the statistics
+	 * </ul>
+	 */
+	public void merge(String foldFolder, String fileName) throws Exception{
+		final String prefix = getPartialFilePrefix(fileName);
+		File[] files = new File(foldFolder).listFiles();
+		List<PartialClassifierEnsembleList> partials = new ArrayList<PartialClassifierEnsembleList>();
+		if(files != null)
+			for(File file : files){
+				if(file.getName().startsWith(prefix) && file.getName().endsWith(".xml")){
+					PartialClassifierEnsembleList partial = new PartialClassifierEnsembleList();
+					try{
+						partial.fromXML(file.getPath());
+					}catch(Exception e){
+						throw new Exception("ERROR: error reading partial statistics " + file.getPath(), e);
+					}
+					partials.add(partial);
+				}
+			}
+		if(partials.isEmpty())
+			throw new Exception("ERROR: no partial statistics " + prefix + "*.xml found in " + foldFolder);
+		
+		String settings = getSettingsFingerprint();
+		int randSeed = DatasetSettings.getInstance().getRandSeed();
+		int noSplits = ExperimentSettings.getInstance().getNoSplits();
+		for(PartialClassifierEnsembleList partial : partials){
+			String name = getPartialFileName(fileName, partial.getFirstSplit(), partial.getLastSplit());
+			if(!settings.equals(partial.getSettings()))
+				throw new Exception("ERROR: " + name + " in " + foldFolder + " was created with different experiment settings");
+			if(randSeed != partial.getRandSeed())
+				throw new Exception("ERROR: " + name + " in " + foldFolder + " was created with random seed " + partial.getRandSeed() + " (expected " + randSeed + ")");
+			if(noSplits != partial.getNoSplits())
+				throw new Exception("ERROR: " + name + " in " + foldFolder + " was created for " + partial.getNoSplits() + " splits (expected " + noSplits + ")");
+			if(partial.getLastSplit() < partial.getFirstSplit())
+				throw new Exception("ERROR: " + name + " in " + foldFolder + " has an empty split range");
+			boolean[] present = new boolean[partial.getLastSplit() - partial.getFirstSplit() + 1];
+			for(ClassifierEnsemble ensemble : partial.getEnsembles()){
+				if(ensemble.getId() < partial.getFirstSplit() || ensemble.getId() > partial.getLastSplit())
+					throw new Exception("ERROR: " + name + " in " + foldFolder + " contains the statistics for split " + ensemble.getId());
+				if(present[ensemble.getId() - partial.getFirstSplit()])
+					throw new Exception("ERROR: " + name + " in " + foldFolder + " contains the statistics for split " + ensemble.getId() + " more than once");
+				present[ensemble.getId() - partial.getFirstSplit()] = true;
+			}
+			if(partial.getEnsembles().size() != present.length)
+				throw new Exception("ERROR: " + name + " in " + foldFolder + " contains the statistics for " + partial.getEnsembles().size() + " splits (expected " + present.length + ")");
+		}
+		
+		Collections.sort(partials, new Comparator<PartialClassifierEnsembleList>() {
+			public int compare(PartialClassifierEnsembleList p1, PartialClassifierEnsembleList p2) {
+				return Integer.compare(p1.getFirstSplit(), p2.getFirstSplit());
+			}
+		});
+		
+		int nextSplit = 0;
+		ClassifierEnsembleList merged = new ClassifierEnsembleList();
+		for(PartialClassifierEnsembleList partial : partials){
+			if(partial.getFirstSplit() < nextSplit)
+				throw new Exception("ERROR: split ranges overlap in " + foldFolder + ": " + getPartialFileName(fileName, partial.getFirstSplit(), partial.getLastSplit()) 
+						+ " starts before split " + nextSplit);
+			if(partial.getFirstSplit() > nextSplit)
+				throw new Exception("ERROR: missing partial statistics for splits " + nextSplit + "-" + (partial.getFirstSplit()-1) + " in " + foldFolder);
+			for(ClassifierEnsemble ensemble : partial.getEnsembles())
+				merged.addClassifier(ensemble);
+			nextSplit = partial.getLastSplit() + 1;
+		}
+		if(nextSplit != noSplits)
+			throw new Exception("ERROR: missing partial statistics for splits " + nextSplit + "-" + (noSplits-1) + " in " + foldFolder);
+		
+		FileOutputStream fs = new FileOutputStream(foldFolder + File.separator + fileName, false);
+		merged.toXML(fs);
+		fs.close();
+		System.out.println("Merged " + partials.size() + " partial statistics into " + foldFolder + File.separator + fileName);
+	}
+}
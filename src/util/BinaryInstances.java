@@ -0,0 +1,409 @@
+/** 	
+ * Name: BinaryInstances.java
+ * 
+ * Purpose: Compact binary storage of WEKA Instances (header, dense or sparse value columns and the id column) loaded by memory-mapping.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import experimentSetting.DatasetSettings;
+
+/**
+ * Reads and writes WEKA Instances in a compact binary format. Parsing the ARFF text is the most expensive part of loading a fold, especially for the 
+ * text datasets with thousands of attributes, while the binary file is memory-mapped and its columns are copied directly into the instances.
+ * <p>
+ * The file consists of:
+ * <ul>
+ * <li> the length and the modification time of the source ARFF file (-1 if the dataset was not written from a file, see {@link #isUpToDate(File, File)})
+ * <li> the header: the relation name, the attributes (type, name, nominal/string values or date format), the class index and the index of the id attribute
+ * <li> the weights of the instances
+ * <li> the id column (if the dataset has the id attribute, see idAttributeName in data properties)
+ * <li> the values of the remaining attributes: either one column per attribute (dense layout) or the non-zero values of each instance (sparse layout, 
+ * used if the dataset contains SparseInstance objects; the type of each instance is kept)
+ * </ul>
+ */
+public class BinaryInstances {
+	/**
+	 * "RSSB": marks the file as the binary dataset 
+	 */
+	private static final int MAGIC = 0x52535342;
+	private static final int VERSION = 2; // 2: the length and the modification time of the source file are kept after the version
+	
+	private static final byte NUMERIC = 0;
+	private static final byte NOMINAL = 1;
+	private static final byte STRING = 2;
+	private static final byte DATE = 3;
+	
+	private static final byte DENSE = 0;
+	private static final byte SPARSE = 1;
+	
+	/**
+	 * Writes the dataset to the binary file
+	 * @param fileName the file to write
+	 * @param instances the dataset
+	 * @throws Exception if there was an error writing the file or the dataset contains relational attributes (not supported)
+	 */
+	public static void write(String fileName, Instances instances) throws Exception{
+		write(fileName, instances, null);
+	}
+	
+	/**
+	 * Writes the dataset to the binary copy of the source file. The length and the modification time of the source file are kept in the binary 
+	 * file, so the binary copy is used only while the source file is unchanged (see {@link #isUpToDate(File, File)})
+	 * @param fileName the file to write
+	 * @param instances the dataset
+	 * @param source the source file of the dataset (null if the dataset was not written from a file)
+	 * @throws Exception if there was an error writing the file or the dataset contains relational attributes (not supported)
+	 */
+	public static void write(String fileName, Instances instances, File source) throws Exception{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(source == null ? -1 : source.length());
+			out.writeLong(source == null ? -1 : source.lastModified());
+			writeString(out, instances.relationName());
+			
+			int idIndex = getIdIndex(instances);
+			out.writeInt(instances.numAttributes());
+			out.writeInt(instances.classIndex());
+			out.writeInt(idIndex);
+			for(int att=0; att<instances.numAttributes(); att++)
+				writeAttribute(out, instances.attribute(att));
+			
+			int numInstances = instances.numInstances();
+			boolean sparse = false;
+			for(int i=0; i<numInstances && !sparse; i++)
+				sparse = InstancesManipulation.isSparse(instances.instance(i));
+			out.writeInt(numInstances);
+			out.writeByte(sparse ? SPARSE : DENSE);
+			for(int i=0; i<numInstances; i++)
+				out.writeDouble(instances.instance(i).weight());
+			if(idIndex != -1)
+				for(int i=0; i<numInstances; i++)
+					out.writeDouble(instances.instance(i).value(idIndex));
+			
+			if(sparse){
+				for(int i=0; i<numInstances; i++) // a dataset can mix sparse and dense instances
+					out.writeByte(InstancesManipulation.isSparse(instances.instance(i)) ? SPARSE : DENSE);
+				int nonZero = 0;
+				for(int i=0; i<numInstances; i++){
+					Instance instance = instances.instance(i);
+					out.writeInt(nonZero);
+					for(int pos=0; pos<instance.numValues(); pos++)
+						if(instance.index(pos) != idIndex)
+							nonZero++;
+				}
+				out.writeInt(nonZero);
+				for(int i=0; i<numInstances; i++){
+					Instance instance = instances.instance(i);
+					for(int pos=0; pos<instance.numValues(); pos++)
+						if(instance.index(pos) != idIndex)
+							out.writeInt(instance.index(pos));
+				}
+				for(int i=0; i<numInstances; i++){
+					Instance instance = instances.instance(i);
+					for(int pos=0; pos<instance.numValues(); pos++)
+						if(instance.index(pos) != idIndex)
+							out.writeDouble(instance.valueSparse(pos));
+				}
+			}else{
+				for(int att=0; att<instances.numAttributes(); att++){
+					if(att == idIndex)
+						continue;
+					for(int i=0; i<numInstances; i++)
+						out.writeDouble(instances.instance(i).value(att));
+				}
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error writing the binary dataset " + fileName, e);
+		}finally{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Reads the dataset from the binary file written by {@link #write(String, Instances)}. The file is memory-mapped and the columns are read in bulk
+	 * @param fileName the file to read
+	 * @return the dataset (with the class index that it was written with)
+	 * @throws Exception if there was an error reading the file or the file is not a binary dataset
+	 */
+	public static Instances read(String fileName) throws Exception{
+		RandomAccessFile file = null;
+		try{
+			file = new RandomAccessFile(fileName, "r");
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != MAGIC)
+				throw new Exception("not a binary dataset");
+			int version = buffer.getInt();
+			if(version != VERSION)
+				throw new Exception("unsupported version " + version);
+			buffer.getLong(); // the length and the modification time of the source file
+			buffer.getLong();
+			String relationName = readString(buffer);
+			
+			int numAttributes = buffer.getInt();
+			int classIndex = buffer.getInt();
+			int idIndex = buffer.getInt();
+			ArrayList<Attribute> attributes = new ArrayList<Attribute>(numAttributes);
+			for(int att=0; att<numAttributes; att++)
+				attributes.add(readAttribute(buffer));
+			
+			int numInstances = buffer.getInt();
+			byte layout = buffer.get();
+			double[] weights = readDoubles(buffer, numInstances);
+			double[] ids = idIndex == -1 ? null : readDoubles(buffer, numInstances);
+			
+			Instances instances = new Instances(relationName, attributes, numInstances);
+			instances.setClassIndex(classIndex);
+			if(layout == SPARSE){
+				byte[] rowLayout = new byte[numInstances];
+				buffer.get(rowLayout);
+				int[] rowStart = readInts(buffer, numInstances + 1);
+				int[] indices = readInts(buffer, rowStart[numInstances]);
+				double[] values = readDoubles(buffer, rowStart[numInstances]);
+				for(int i=0; i<numInstances; i++){
+					int from = rowStart[i];
+					int to = rowStart[i + 1];
+					int idPos = -1; // position of the id value among the instance values (the indices are sorted)
+					if(ids != null){
+						idPos = from;
+						while(idPos < to && indices[idPos] < idIndex)
+							idPos++;
+					}
+					int numValues = to - from + (ids != null ? 1 : 0);
+					int[] instanceIndices = new int[numValues];
+					double[] instanceValues = new double[numValues];
+					int pos = 0;
+					for(int j=from; j<=to; j++){
+						if(j == idPos){
+							instanceIndices[pos] = idIndex;
+							instanceValues[pos++] = ids[i];
+						}
+						if(j < to){
+							instanceIndices[pos] = indices[j];
+							instanceValues[pos++] = values[j];
+						}
+					}
+					if(rowLayout[i] == SPARSE)
+						instances.add(new SparseInstance(weights[i], instanceValues, instanceIndices, numAttributes));
+					else{
+						double[] row = new double[numAttributes];
+						for(int j=0; j<numValues; j++)
+							row[instanceIndices[j]] = instanceValues[j];
+						instances.add(new DenseInstance(weights[i], row));
+					}
+				}
+			}else{
+				double[][] rows = new double[numInstances][numAttributes];
+				for(int att=0; att<numAttributes; att++){
+					double[] column = att == idIndex ? ids : readDoubles(buffer, numInstances);
+					for(int i=0; i<numInstances; i++)
+						rows[i][att] = column[i];
+				}
+				for(int i=0; i<numInstances; i++)
+					instances.add(new DenseInstance(weights[i], rows[i]));
+			}
+			return instances;
+		}catch(Exception e){
+			throw new Exception("ERROR: error reading the binary dataset " + fileName, e);
+		}finally{
+			if(file != null)
+				file.close();
+		}
+	}
+	
+	/**
+	 * Returns the index of the id attribute or -1 if the dataset does not have one
+	 */
+	private static int getIdIndex(Instances instances){
+		String idAttributeName = DatasetSettings.getInstance().getIdAttributeName();
+		if(idAttributeName == null || instances.attribute(idAttributeName) == null)
+			return -1;
+		Attribute idAttribute = instances.attribute(idAttributeName);
+		return idAttribute.isNumeric() ? idAttribute.index() : -1;
+	}
+	
+	private static void writeAttribute(DataOutputStream out, Attribute attribute) throws Exception{
+		if(attribute.isRelationValued())
+			throw new Exception("relational attribute " + attribute.name() + " is not supported");
+		byte type = attribute.isDate() ? DATE : attribute.isString() ? STRING : attribute.isNominal() ? NOMINAL : NUMERIC;
+		out.writeByte(type);
+		writeString(out, attribute.name());
+		if(type == NOMINAL || type == STRING){
+			out.writeInt(attribute.numValues());
+			for(int i=0; i<attribute.numValues(); i++)
+				writeString(out, attribute.value(i));
+		}else if(type == DATE)
+			writeString(out, attribute.getDateFormat());
+	}
+	
+	private static Attribute readAttribute(ByteBuffer buffer) throws Exception{
+		byte type = buffer.get();
+		String name = readString(buffer);
+		switch(type){
+		case NUMERIC:
+			return new Attribute(name);
+		case NOMINAL:
+			int numValues = buffer.getInt();
+			List<String> values = new ArrayList<String>(numValues);
+			for(int i=0; i<numValues; i++)
+				values.add(readString(buffer));
+			return new Attribute(name, values);
+		case STRING:
+			Attribute attribute = new Attribute(name, (List<String>) null);
+			int numStrings = buffer.getInt();
+			for(int i=0; i<numStrings; i++)
+				attribute.addStringValue(readString(buffer));
+			return attribute;
+		case DATE:
+			return new Attribute(name, readString(buffer));
+		default:
+			throw new Exception("unknown type of attribute " + name);
+		}
+	}
+	
+	private static void writeString(DataOutputStream out, String value) throws Exception{
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer buffer) throws Exception{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+	
+	private static double[] readDoubles(ByteBuffer buffer, int length){
+		double[] values = new double[length];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8 * length);
+		return values;
+	}
+	
+	private static int[] readInts(ByteBuffer buffer, int length){
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * length);
+		return values;
+	}
+	
+	/**
+	 * Returns whether the dataset can be stored in the binary format (relational attributes are not supported)
+	 * @param instances the dataset
+	 * @return true if the dataset can be written by {@link #write(String, Instances)}
+	 */
+	public static boolean isSupported(Instances instances){
+		for(int att=0; att<instances.numAttributes(); att++)
+			if(instances.attribute(att).isRelationValued())
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Returns whether the binary copy was written from the current content of the source file: the length and the modification time of the source 
+	 * file must be equal to the ones kept in the binary copy (used to prefer the binary copy of the dataset unless the ARFF file was changed or 
+	 * replaced afterwards, even by a file with an older modification time). If the source file does not exist, the existing binary copy is used
+	 * @param file the binary copy
+	 * @param source the source file
+	 * @return true if the binary copy can be used instead of the source file
+	 */
+	static boolean isUpToDate(File file, File source){
+		return file.exists() && (!source.exists() || isWrittenFrom(file, MAGIC, VERSION, source));
+	}
+	
+	/**
+	 * Returns whether the file starts with the given marker and version followed by the length and the modification time of the source file
+	 * (the layout shared by the binary datasets and the column stores, see {@link ColumnStore})
+	 * @param file the file
+	 * @param magic the marker of the format
+	 * @param version the current version of the format
+	 * @param source the source file
+	 * @return true if the file was written from the current content of the source file
+	 */
+	static boolean isWrittenFrom(File file, int magic, int version, File source){
+		DataInputStream in = null;
+		try{
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == magic && in.readInt() == version && in.readLong() == source.length() && in.readLong() == source.lastModified();
+		}catch(IOException e){
+			return false;
+		}finally{
+			try{
+				if(in != null)
+					in.close();
+			}catch(IOException e){
+				// ignore
+			}
+		}
+	}
+	
+	/**
+	 * Returns whether the file is the binary dataset written in the current version of the format (the files written in the older versions are 
+	 * not read, the dataset is parsed again)
+	 * @param file the file
+	 * @return true if the file can be read by {@link #read(String)}
+	 */
+	static boolean isCurrentVersion(File file){
+		DataInputStream in = null;
+		try{
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == MAGIC && in.readInt() == VERSION;
+		}catch(IOException e){
+			return false;
+		}finally{
+			try{
+				if(in != null)
+					in.close();
+			}catch(IOException e){
+				// ignore
+			}
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/** 	
+ * Name: ColumnStore.java
+ * 
+ * Purpose: Off-heap, memory-mapped columnar storage of a dataset (dense float columns or sparse CSR rows) built by streaming the ARFF file.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+import experimentSetting.DatasetSettings;
+
+/**
+ * Off-heap columnar storage of a dataset: the values are kept in a memory-mapped file and only the header of the dataset is held on the heap, so the 
+ * size of the dataset is limited by the disk rather than by the heap. The rows are exposed to WEKA through {@link MappedInstances}.
+ * <p>
+ * The file (extension .col) is built by streaming the ARFF file row by row (see {@link #build(String, String)}) and consists of:
+ * <ul>
+ * <li> the length and the modification time of the ARFF file the store was built from (see {@link #isUpToDate(File, File)})
+ * <li> the ARFF header of the dataset
+ * <li> the weights and the ids of the instances (doubles)
+ * <li> the values of the remaining attributes as floats: either one column per attribute (dense layout) or the non-zero values of each row with 
+ * their attribute indices (sparse CSR layout, used if the ARFF file contains sparse instances, e.g. bag-of-words datasets)
+ * </ul>
+ * Only numeric and nominal attributes are supported. Values are stored as floats, which halves the size of the file; the ids are kept exactly. 
+ * The file is mapped in chunks, so it can be larger than 2GB.
+ */
+public class ColumnStore {
+	/**
+	 * "RSSC": marks the file as the column store 
+	 */
+	private static final int MAGIC = 0x52535343;
+	private static final int VERSION = 2; // 2: the length and the modification time of the ARFF file are kept after the version
+	private static final int HEADER_POS = 28; // the ARFF header follows the marker, the version, the source length and time and the header length
+	private static final int DENSE = 0;
+	private static final int SPARSE = 1;
+	private static final int CHUNK_BITS = 30; // 1GB chunks (a multiple of 8, so no value crosses the chunk border)
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	
+	private Instances header;
+	private int numRows;
+	private int idIndex;
+	private boolean sparse;
+	private long weightsPos, idsPos, densePos, offsetsPos, indicesPos, valuesPos;
+	private MappedByteBuffer[] chunks;
+	
+	private ColumnStore(){
+	}
+	
+	/**
+	 * Builds the column store from the ARFF file. The ARFF file is read twice (counting and writing) one row at a time, so the dataset is never held 
+	 * on the heap. The store is written to a temporary file in the same folder that replaces the store file only when it is complete, so a reader 
+	 * (e.g. another job loading the same fold) never opens a partially written store
+	 * @param arffFile the ARFF file
+	 * @param storeFile the column store file to write
+	 * @throws Exception if there was an error reading the ARFF file or writing the store, the dataset has no id attribute (see idAttributeName in data 
+	 * properties) or contains attributes other than numeric and nominal
+	 */
+	public static void build(String arffFile, String storeFile) throws Exception{
+		File tmpFile = null;
+		try{
+			File source = new File(arffFile);
+			long sourceLength = source.length(); // taken before reading, so a change during the build makes the store outdated
+			long sourceModified = source.lastModified();
+			ArffLoader loader = new ArffLoader();
+			loader.setSource(source);
+			Instances structure = loader.getStructure();
+			int idIndex = checkHeader(structure);
+			
+			// count the rows and the non-zero values
+			int numRows = 0;
+			long nonZero = 0;
+			boolean sparse = false;
+			Instance instance;
+			while((instance = loader.getNextInstance(structure)) != null){
+				numRows++;
+				sparse |= instance instanceof weka.core.SparseInstance;
+				for(int pos=0; pos<instance.numValues(); pos++)
+					if(instance.index(pos) != idIndex && instance.valueSparse(pos) != 0)
+						nonZero++;
+			}
+			
+			ColumnStore store = new ColumnStore();
+			store.header = new Instances(structure, 0);
+			store.numRows = numRows;
+			store.idIndex = idIndex;
+			store.sparse = sparse;
+			byte[] headerBytes = store.header.toString().getBytes("UTF-8");
+			long length = store.layout(headerBytes.length, structure.numAttributes(), nonZero);
+			
+			File target = new File(storeFile).getAbsoluteFile();
+			tmpFile = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+			RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+			try{
+				file.setLength(length);
+				store.map(file.getChannel(), FileChannel.MapMode.READ_WRITE, length);
+				MappedByteBuffer first = store.chunks[0];
+				first.putInt(0, MAGIC);
+				first.putInt(4, VERSION);
+				first.putLong(8, sourceLength);
+				first.putLong(16, sourceModified);
+				first.putInt(24, headerBytes.length);
+				for(int i=0; i<headerBytes.length; i++)
+					first.put(HEADER_POS + i, headerBytes[i]);
+				long pos = align(HEADER_POS + headerBytes.length);
+				store.putInt(pos, numRows);
+				store.putInt(pos + 4, structure.numAttributes());
+				store.putInt(pos + 8, idIndex);
+				store.putInt(pos + 12, sparse ? SPARSE : DENSE);
+				store.putLong(pos + 16, nonZero);
+				
+				loader.reset();
+				loader.setSource(new File(arffFile));
+				structure = loader.getStructure();
+				int row = 0;
+				long value = 0;
+				while((instance = loader.getNextInstance(structure)) != null){
+					store.putDouble(store.weightsPos + 8L * row, instance.weight());
+					store.putDouble(store.idsPos + 8L * row, instance.value(idIndex));
+					if(sparse){
+						store.putLong(store.offsetsPos + 8L * row, value);
+						for(int p=0; p<instance.numValues(); p++)
+							if(instance.index(p) != idIndex && instance.valueSparse(p) != 0){
+								store.putInt(store.indicesPos + 4L * value, instance.index(p));
+								store.putFloat(store.valuesPos + 4L * value, (float) instance.valueSparse(p));
+								value++;
+							}
+					}else{
+						for(int att=0; att<structure.numAttributes(); att++)
+							store.putFloat(store.densePos + 4L * ((long) att * numRows + row), (float) instance.value(att));
+					}
+					row++;
+				}
+				if(sparse)
+					store.putLong(store.offsetsPos + 8L * row, value);
+				for(MappedByteBuffer chunk : store.chunks)
+					chunk.force();
+			}finally{
+				file.close();
+			}
+			Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}catch(Exception e){
+			throw new Exception("ERROR: error building the column store " + storeFile + " from " + arffFile, e);
+		}finally{
+			if(tmpFile != null && tmpFile.exists())
+				tmpFile.delete();
+		}
+	}
+	
+	/**
+	 * Opens the column store written by {@link #build(String, String)}
+	 * @param storeFile the column store file
+	 * @return the column store (the file is mapped read-only)
+	 * @throws Exception if there was an error reading the file or the file is not a column store
+	 */
+	public static ColumnStore open(String storeFile) throws Exception{
+		try{
+			RandomAccessFile file = new RandomAccessFile(storeFile, "r");
+			try{
+				ColumnStore store = new ColumnStore();
+				long length = file.length();
+				store.map(file.getChannel(), FileChannel.MapMode.READ_ONLY, length);
+				MappedByteBuffer first = store.chunks[0];
+				if(first.getInt(0) != MAGIC)
+					throw new Exception("not a column store");
+				if(first.getInt(4) != VERSION)
+					throw new Exception("unsupported version " + first.getInt(4));
+				byte[] headerBytes = new byte[first.getInt(24)];
+				for(int i=0; i<headerBytes.length; i++)
+					headerBytes[i] = first.get(HEADER_POS + i);
+				store.header = new Instances(new StringReader(new String(headerBytes, "UTF-8")));
+				long pos = align(HEADER_POS + headerBytes.length);
+				store.numRows = store.getInt(pos);
+				int numAttributes = store.getInt(pos + 4);
+				store.idIndex = store.getInt(pos + 8);
+				store.sparse = store.getInt(pos + 12) == SPARSE;
+				if(store.layout(headerBytes.length, numAttributes, store.getLong(pos + 16)) != length)
+					throw new Exception("the file is truncated");
+				return store;
+			}finally{
+				file.close(); // the mapping stays valid
+			}
+		}catch(Exception e){
+			throw new Exception("ERROR: error opening the column store " + storeFile, e);
+		}
+	}
+	
+	/**
+	 * Returns whether the column store of the ARFF file exists and was built from the current content of the ARFF file (the length and the 
+	 * modification time of the ARFF file are equal to the ones kept in the store) 
+	 */
+	static boolean isUpToDate(File storeFile, File arffFile){
+		return storeFile.exists() && (!arffFile.exists() || BinaryInstances.isWrittenFrom(storeFile, MAGIC, VERSION, arffFile));
+	}
+	
+	private static int checkHeader(Instances structure) throws Exception{
+		Attribute idAttribute = structure.attribute(DatasetSettings.getInstance().getIdAttributeName());
+		if(idAttribute == null)
+			throw new Exception("the dataset has no id attribute '" + DatasetSettings.getInstance().getIdAttributeName() + "'");
+		for(int att=0; att<structure.numAttributes(); att++)
+			if(!structure.attribute(att).isNumeric() && !structure.attribute(att).isNominal() || structure.attribute(att).isDate())
+				throw new Exception("attribute " + structure.attribute(att).name() + " is not numeric or nominal");
+		return idAttribute.index();
+	}
+	
+	/**
+	 * Computes the positions of the sections of the file
+	 * @return the length of the file
+	 */
+	private long layout(int headerLength, int numAttributes, long nonZero){
+		weightsPos = align(HEADER_POS + headerLength) + 24;
+		idsPos = weightsPos + 8L * numRows;
+		long end = idsPos + 8L * numRows;
+		if(sparse){
+			offsetsPos = end;
+			indicesPos = offsetsPos + 8L * (numRows + 1);
+			valuesPos = align(indicesPos + 4L * nonZero);
+			end = valuesPos + 4L * nonZero;
+		}else{
+			densePos = end;
+			end = densePos + 4L * numAttributes * numRows;
+		}
+		return align(end);
+	}
+	
+	private static long align(long pos){
+		return (pos + 7) & ~7L;
+	}
+	
+	private void map(FileChannel channel, FileChannel.MapMode mode, long length) throws Exception{
+		chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+		for(int i=0; i<chunks.length; i++){
+			long start = (long) i << CHUNK_BITS;
+			chunks[i] = channel.map(mode, start, Math.min(length - start, 1L << CHUNK_BITS));
+		}
+	}
+	
+	private int getInt(long pos){
+		return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+	}
+	private long getLong(long pos){
+		return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+	}
+	private float getFloat(long pos){
+		return chunks[(int) (pos >>> CHUNK_BITS)].getFloat((int) (pos & CHUNK_MASK));
+	}
+	private double getDouble(long pos){
+		return chunks[(int) (pos >>> CHUNK_BITS)].getDouble((int) (pos & CHUNK_MASK));
+	}
+	private void putInt(long pos, int value){
+		chunks[(int) (pos >>> CHUNK_BITS)].putInt((int) (pos & CHUNK_MASK), value);
+	}
+	private void putLong(long pos, long value){
+		chunks[(int) (pos >>> CHUNK_BITS)].putLong((int) (pos & CHUNK_MASK), value);
+	}
+	private void putFloat(long pos, float value){
+		chunks[(int) (pos >>> CHUNK_BITS)].putFloat((int) (pos & CHUNK_MASK), value);
+	}
+	private void putDouble(long pos, double value){
+		chunks[(int) (pos >>> CHUNK_BITS)].putDouble((int) (pos & CHUNK_MASK), value);
+	}
+	
+	/**
+	 * Returns the header of the dataset (without the instances and the class set)
+	 * @return the header
+	 */
+	public Instances getHeader() {
+		return header;
+	}
+	public int numRows() {
+		return numRows;
+	}
+	public int numAttributes() {
+		return header.numAttributes();
+	}
+	public int getIdIndex() {
+		return idIndex;
+	}
+	/**
+	 * Returns whether the values are stored in the sparse CSR layout (only non-zero values of each row)
+	 * @return true for the sparse layout, false for the dense columns
+	 */
+	public boolean isSparse() {
+		return sparse;
+	}
+	public double getWeight(int row){
+		return getDouble(weightsPos + 8L * row);
+	}
+	public double getId(int row){
+		return getDouble(idsPos + 8L * row);
+	}
+	/**
+	 * Returns the value of the attribute in the dense layout
+	 * @param attribute index of the attribute
+	 * @param row the row
+	 * @return the value (NaN if missing)
+	 */
+	public double getValue(int attribute, int row){
+		return getFloat(densePos + 4L * ((long) attribute * numRows + row));
+	}
+	/**
+	 * Returns the position of the first non-zero value of the row in the sparse layout. The values of the row are at positions 
+	 * getRowStart(row) to getRowStart(row + 1) - 1
+	 * @param row the row
+	 * @return the position of the first value
+	 */
+	public long getRowStart(int row){
+		return getLong(offsetsPos + 8L * row);
+	}
+	/**
+	 * Returns the attribute index of the non-zero value in the sparse layout
+	 */
+	public int getIndexAt(long pos){
+		return getInt(indicesPos + 4L * pos);
+	}
+	/**
+	 * Returns the non-zero value in the sparse layout
+	 */
+	public double getValueAt(long pos){
+		return getFloat(valuesPos + 4L * pos);
+	}
+}
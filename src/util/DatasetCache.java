@@ -0,0 +1,183 @@
+/** 	
+ * Name: DatasetCache.java
+ * 
+ * Purpose: On-disk cache of parsed, class-set and ID-tagged datasets shared by all experiments, keyed by the content of the source ARFF file.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileFilter;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import weka.core.Instances;
+import experimentSetting.DatasetSettings;
+
+/**
+ * On-disk cache of parsed datasets. Each experiment re-parses the same data files (and the fold files of preset experiments) and re-applies the 
+ * AddID filter; with the cache the dataset is parsed and tagged with id once and then loaded from its binary copy (see {@link BinaryInstances}).
+ * <p>
+ * The cached dataset is keyed by the SHA-1 of the content of the source ARFF file and the settings that change the loaded dataset (the class 
+ * attribute name, the id attribute name and whether the instances are converted to the sparse representation), so the cache folder can be shared 
+ * by all experiments (see datasetCacheFolder in data properties). A changed file gets a new key and the stale entry is eventually evicted: 
+ * when the total size of the cache exceeds datasetCacheSize, the least recently used entries are deleted. Entries are written to a temporary 
+ * file and renamed, so concurrent experiments never read a partially written entry.
+ * <p>
+ * The cache never fails the experiment: if an entry cannot be read or written, a warning is printed and the ARFF file is parsed.
+ */
+public class DatasetCache {
+	private static final String EXTENSION = ".bin";
+	private static final String KEY_VERSION = "1"; // change when the cached content changes for the same key
+	
+	/**
+	 * Returns whether the cache is used (see datasetCacheFolder in data properties)
+	 * @return true if the cache folder is set
+	 */
+	public static boolean isEnabled(){
+		return DatasetSettings.getInstance().getDatasetCacheFolder() != null;
+	}
+	
+	/**
+	 * Returns the cache key of the ARFF file: SHA-1 of its content and the settings that change the loaded dataset
+	 * @param fileName the ARFF file
+	 * @return the cache key
+	 * @throws Exception if there was an error reading the file
+	 */
+	public static String getKey(String fileName) throws Exception{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		InputStream in = new BufferedInputStream(new FileInputStream(fileName), 1 << 16);
+		try{
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while((read = in.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		}finally{
+			in.close();
+		}
+		DatasetSettings dataSettings = DatasetSettings.getInstance();
+		String settings = KEY_VERSION + "\n" + dataSettings.getClassAttributeName() + "\n" + dataSettings.getIdAttributeName() + "\n" 
+				+ dataSettings.isSparseInstances() + "\n" + dataSettings.isFloatInstances();
+		digest.update(settings.getBytes("UTF-8"));
+		
+		StringBuilder key = new StringBuilder();
+		for(byte b : digest.digest())
+			key.append(String.format("%02x", b));
+		return key.toString();
+	}
+	
+	/**
+	 * Loads the cached dataset with the class set and the id attribute
+	 * @param key the cache key (see {@link #getKey(String)})
+	 * @return the cached dataset or null if the dataset is not cached
+	 */
+	public static Instances get(String key){
+		File file = getFile(key);
+		if(!file.exists())
+			return null;
+		try{
+			Instances dataset = InstancesManipulation.readBinary(file.getPath(), true);
+			file.setLastModified(System.currentTimeMillis()); // most recently used
+			return dataset;
+		}catch(Exception e){
+			System.out.println("WARNING: could not read the cached dataset " + file + ", the dataset will be parsed again: " + e.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+	
+	/**
+	 * Stores the dataset in the cache and evicts the least recently used entries if the cache exceeds its size
+	 * @param key the cache key (see {@link #getKey(String)})
+	 * @param dataset the dataset with the class set and the id attribute
+	 */
+	public static void put(String key, Instances dataset){
+		if(!BinaryInstances.isSupported(dataset))
+			return;
+		File folder = new File(DatasetSettings.getInstance().getDatasetCacheFolder());
+		File tmpFile = null;
+		try{
+			if(!folder.exists() && !folder.mkdirs() && !folder.exists())
+				throw new Exception("could not create the folder");
+			tmpFile = File.createTempFile(key, ".tmp", folder);
+			BinaryInstances.write(tmpFile.getPath(), dataset);
+			File file = getFile(key);
+			if(!tmpFile.renameTo(file) && !file.exists())
+				throw new Exception("could not rename " + tmpFile + " to " + file);
+		}catch(Exception e){
+			System.out.println("WARNING: could not cache the dataset in " + folder + ": " + e.getMessage());
+		}finally{
+			if(tmpFile != null && tmpFile.exists())
+				tmpFile.delete();
+		}
+		evict();
+	}
+	
+	/**
+	 * Deletes the least recently used entries until the total size of the cache is within datasetCacheSize. The most recently used entry is always kept 
+	 */
+	private static void evict(){
+		File[] files = new File(DatasetSettings.getInstance().getDatasetCacheFolder()).listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().endsWith(EXTENSION);
+			}
+		});
+		if(files == null)
+			return;
+		final long[] lastModified = new long[files.length];
+		for(int i=0; i<files.length; i++) // read once: the entries can be touched by concurrent experiments while sorting
+			lastModified[i] = files[i].lastModified();
+		Integer[] order = new Integer[files.length];
+		for(int i=0; i<order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Long.compare(lastModified[i2], lastModified[i1]);
+			}
+		});
+		
+		long maxSize = DatasetSettings.getInstance().getDatasetCacheSize() * 1024L * 1024L;
+		long size = 0;
+		for(int i=0; i<order.length; i++){
+			File file = files[order[i]];
+			size += file.length();
+			if(i > 0 && size > maxSize && file.delete())
+				System.out.println("Evicted dataset " + file.getName() + " from the dataset cache");
+		}
+	}
+	
+	private static File getFile(String key){
+		return new File(DatasetSettings.getInstance().getDatasetCacheFolder(), key + EXTENSION);
+	}
+}
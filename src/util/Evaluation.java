@@ -54,7 +54,7 @@ public class Evaluation {
 	 * 		   attribute set than the one that describes the instance 
 	 */
 	public static ClassifiedInstance classifyInstance(Classifier classifier, Instance instanceToClassify) throws Exception{
-		String instanceId = InstancesManipulation.getInstanceID(instanceToClassify);
+		double instanceId = InstancesManipulation.getInstanceIdValue(instanceToClassify);
 		double actualLabel = instanceToClassify.classValue(); // index of the actual class			
 		
 		String actualLabelStr = null;
@@ -77,7 +77,7 @@ public class Evaluation {
 			throw new Exception("ERROR: error while classifying instance " + instanceId, e);
 		}
 				
-		return new ClassifiedInstance(Double.parseDouble(instanceId), confidences, actualLabelStr);
+		return new ClassifiedInstance(instanceId, confidences, actualLabelStr);
 	}
 	
 	/**
@@ -98,7 +98,7 @@ public class Evaluation {
 			throw new Exception("ERROR: error classifying the instance: the number of views and classifiers trained on those views must be the same (classifiers: " 
 									+ classifiers.size() + " views: " + instanceToClassify.length + ")");
 			
-		String instanceId = InstancesManipulation.getInstanceID(instanceToClassify[0]);
+		double instanceId = InstancesManipulation.getInstanceIdValue(instanceToClassify[0]);
 		double actualLabel = instanceToClassify[0].classValue(); // index of the actual class			
 		
 		String actualLabelStr = "?";
@@ -142,7 +142,7 @@ public class Evaluation {
 			throw new Exception("ERROR: error while classifying instance " + instanceId, e);
 		}
 	
-		return new ClassifiedInstance(Double.parseDouble(instanceId), confidences, actualLabelStr);
+		return new ClassifiedInstance(instanceId, confidences, actualLabelStr);
 	}
 	
 	/**
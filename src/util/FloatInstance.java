@@ -0,0 +1,190 @@
+/** 	
+ * Name: FloatInstance.java
+ * 
+ * Purpose: WEKA instance that stores the attribute values in single precision (float) and widens them to double on access.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import weka.core.AbstractInstance;
+import weka.core.Instance;
+import weka.core.Utils;
+
+/**
+ * Dense instance that keeps its attribute values in a float array, halving the memory taken by the values of a {@link weka.core.DenseInstance}. 
+ * The values are widened to double when they are read (e.g. by the classifier), so the classifiers see the values rounded to float precision. 
+ * Missing values (NaN), nominal value indices and integer values up to 2^24 (e.g. instance ids) are stored exactly.
+ * <br>
+ * As in {@link weka.core.DenseInstance}, the copies of the instance share the value array until one of them is modified
+ */
+public class FloatInstance extends AbstractInstance {
+	private static final long serialVersionUID = 1L;
+	
+	protected float[] values;
+	
+	/**
+	 * Creates the float instance with the weight and the values of the given instance (the values are rounded to float precision). 
+	 * The values of a float instance are shared with the new instance (they are copied on modification). The dataset is not set
+	 * @param instance instance to copy
+	 */
+	public FloatInstance(Instance instance){
+		if(instance instanceof FloatInstance){
+			values = ((FloatInstance) instance).values;
+		}else{
+			values = new float[instance.numAttributes()];
+			for(int i=0; i<values.length; i++)
+				values[i] = (float) instance.value(i);
+		}
+		m_Weight = instance.weight();
+		m_Dataset = null;
+	}
+	
+	/**
+	 * Creates the float instance with the given weight and values (the values are rounded to float precision)
+	 * @param weight instance weight
+	 * @param attValues attribute values
+	 */
+	public FloatInstance(double weight, double[] attValues){
+		values = new float[attValues.length];
+		for(int i=0; i<values.length; i++)
+			values[i] = (float) attValues[i];
+		m_Weight = weight;
+		m_Dataset = null;
+	}
+	
+	private FloatInstance(double weight, float[] values){
+		this.values = values;
+		m_Weight = weight;
+		m_Dataset = null;
+	}
+	
+	@Override
+	public Object copy() {
+		FloatInstance result = new FloatInstance(this);
+		result.m_Dataset = m_Dataset;
+		return result;
+	}
+
+	@Override
+	public int index(int position) {
+		return position;
+	}
+
+	@Override
+	public Instance mergeInstance(Instance inst) {
+		float[] merged = new float[values.length + inst.numAttributes()];
+		System.arraycopy(values, 0, merged, 0, values.length);
+		for(int i=0; i<inst.numAttributes(); i++)
+			merged[values.length + i] = (float) inst.value(i);
+		return new FloatInstance(1.0, merged);
+	}
+
+	@Override
+	public int numAttributes() {
+		return values.length;
+	}
+
+	@Override
+	public int numValues() {
+		return values.length;
+	}
+
+	@Override
+	public void replaceMissingValues(double[] array) {
+		if(array == null || array.length != values.length)
+			throw new IllegalArgumentException("Unequal number of attributes!");
+		freshValues();
+		for(int i=0; i<values.length; i++)
+			if(Float.isNaN(values[i]))
+				values[i] = (float) array[i];
+	}
+
+	@Override
+	public void setValue(int attIndex, double value) {
+		freshValues();
+		values[attIndex] = (float) value;
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		setValue(indexOfIndex, value);
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		double[] result = new double[values.length];
+		for(int i=0; i<values.length; i++)
+			result[i] = values[i];
+		return result;
+	}
+
+	@Override
+	public String toStringNoWeight() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<values.length; i++){
+			if(i > 0)
+				text.append(",");
+			text.append(toString(i));
+		}
+		return text.toString();
+	}
+
+	@Override
+	public double value(int attIndex) {
+		return values[attIndex];
+	}
+	
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		return values[indexOfIndex];
+	}
+
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+		float[] newValues = new float[values.length - 1];
+		System.arraycopy(values, 0, newValues, 0, position);
+		System.arraycopy(values, position + 1, newValues, position, values.length - position - 1);
+		values = newValues;
+	}
+
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+		float[] newValues = new float[values.length + 1];
+		System.arraycopy(values, 0, newValues, 0, position);
+		newValues[position] = (float) Utils.missingValue();
+		System.arraycopy(values, position, newValues, position + 1, values.length - position);
+		values = newValues;
+	}
+	
+	/**
+	 * Copies the value array before the modification, as it might be shared with the copies of the instance
+	 */
+	private void freshValues(){
+		values = values.clone();
+	}
+}
@@ -31,18 +31,30 @@
  **/
 package util;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import algorithms.co_training.CoTrainingData;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.AddID;
 import weka.filters.unsupervised.attribute.Remove;
@@ -52,19 +64,57 @@ import experimentSetting.DatasetSettings;
  * Different utility functions for manipulating WEKA Instances object   
  */
 public class InstancesManipulation {
+	protected static int DENSE_INSTANCE_OVERHEAD = 48; // instance object, values array header and the reference in the dataset 
+	protected static int FLOAT_INSTANCE_OVERHEAD = 48; // instance object, values array header and the reference in the dataset
+	protected static int SPARSE_INSTANCE_OVERHEAD = 72; // instance object, values and indices array headers and the reference in the dataset
+	protected static int VIEW_INSTANCE_OVERHEAD = 80; // instance object, values array header, the reference in the dataset, the row in the shared columns and the own id and label
 	
 	
 	/**
-	 * Writes the dataset to an ARFF file
-	 * @param fileName path to dataset file
-	 * @param instances dataset to write to an ARFF file    
-	 * @throws IOException if the file cannot be written to the desired location (e.g. the folder is missing)
+	 * Writes the dataset to the ARFF file (see {@link #writeArff(String, Instances, boolean)}). The instances are written in the format they are 
+	 * stored in (sparse or dense)
+	 * @param fileName the name of the output file
+	 * @param instances the dataset to write
+	 * @throws IOException if there was an error writing the file
 	 */
 	public static void writeArff(String fileName, Instances instances) throws IOException {
-		FileWriter out = new FileWriter(fileName);
-		out.write(instances.toString());
-		out.flush();
-		out.close();
+		writeArff(fileName, instances, false);
+	}
+	
+	/**
+	 * Writes the dataset to the ARFF file. The header is written first and then the instances one by one through a buffer, so the whole dataset is never 
+	 * held in memory as a single String. The file is compressed with gzip if its name ends with ".gz"
+	 * @param fileName the name of the output file
+	 * @param instances the dataset to write
+	 * @param sparse if true, all instances are written in the sparse format (only the non-zero values), otherwise the instances are written in the 
+	 * format they are stored in. Datasets with string attributes are always written in the format they are stored in (the first value of a string 
+	 * attribute would be lost in the sparse format)
+	 * @throws IOException if there was an error writing the file
+	 */
+	public static void writeArff(String fileName, Instances instances, boolean sparse) throws IOException {
+		OutputStream stream = new FileOutputStream(fileName);
+		if(fileName.endsWith(".gz"))
+			stream = new GZIPOutputStream(stream, 1 << 16);
+		Writer out = new BufferedWriter(new OutputStreamWriter(stream), 1 << 16);
+		try{
+			if(sparse)
+				for(int att=0; att<instances.numAttributes(); att++)
+					if(instances.attribute(att).isString())
+						sparse = false;
+			out.write(new Instances(instances, 0).toString()); // the header 
+			for(int i=0; i<instances.numInstances(); i++){
+				if(i > 0)
+					out.write('\n');
+				Instance instance = instances.instance(i);
+				if(sparse && !isSparse(instance)){
+					instance = new SparseInstance(instance);
+					instance.setDataset(instances);
+				}
+				out.write(instance.toString());
+			}
+		}finally{
+			out.close();
+		}
 	}
 	
 	/**
@@ -82,7 +132,8 @@ public class InstancesManipulation {
 	}
 	
 	/**
-	 * Reads the dataset from ARFF file and tags it with id if necessary
+	 * Reads the dataset from ARFF file and tags it with id if necessary. If the parsed dataset cache is used (see {@link DatasetCache}), the dataset 
+	 * with the class set and the id attribute is loaded from the cache and the ARFF file is parsed only if it is not cached
 	 * @param filename path to dataset file
 	 * @param setClassAndID if true, sets the class and id attributes  
 	 * @return the loaded dataset  
@@ -94,34 +145,354 @@ public class InstancesManipulation {
 	 * </ul>
 	 */
 	public static Instances readArff(String filename, boolean setClassAndID) throws Exception{		
+		String cacheKey = null;
+		if(setClassAndID && DatasetCache.isEnabled() && new File(filename).isFile()){
+			cacheKey = DatasetCache.getKey(filename);
+			Instances cached = DatasetCache.get(cacheKey);
+			if(cached != null)
+				return cached;
+		}
+		
 		Instances dataset;
 		try {
-			dataset = new Instances(new FileReader(filename));
+			if(filename.endsWith(".gz"))
+				dataset = new Instances(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename)))));
+			else
+				dataset = new Instances(new BufferedReader(new FileReader(filename)));
 		} catch (Exception e) {			
 			throw new IOException("Problem reading dataset: '" + filename + "' file not found.");
 		}
 
-		if(setClassAndID){
+		if(DatasetSettings.getInstance().isSparseInstances())
+			dataset = toSparse(dataset);
+		if(setClassAndID)
+			dataset = setClassAndID(dataset);
+		if(DatasetSettings.getInstance().isFloatInstances())
+			dataset = toFloat(dataset);
+		if(cacheKey != null)
+			DatasetCache.put(cacheKey, dataset);
+		return dataset;
+	}
+	
+	/**
+	 * Reads the dataset from the binary file (see {@link BinaryInstances}) and tags it with id if necessary
+	 * @param filename path to the binary dataset file
+	 * @param setClassAndID if true, sets the class and id attributes (otherwise the class is not set, as for the datasets read from ARFF)
+	 * @return the loaded dataset
+	 * @throws Exception
+	 * <ul>
+	 * <li> there was an error reading the file
+	 * <li> class attribute is missing (there is no attribute in the dataset that matches the name of the class attribute given in the data properties)
+	 * <li> adding an id attribute failed
+	 * </ul> 
+	 */
+	public static Instances readBinary(String filename, boolean setClassAndID) throws Exception{
+		Instances dataset = BinaryInstances.read(filename);
+		dataset.setClassIndex(-1);
+		if(DatasetSettings.getInstance().isSparseInstances())
+			dataset = toSparse(dataset);
+		if(setClassAndID)
+			dataset = setClassAndID(dataset);
+		if(DatasetSettings.getInstance().isFloatInstances())
+			dataset = toFloat(dataset);
+		return dataset;
+	}
+	
+	/**
+	 * Reads the dataset saved by {@link #writeDataset(String, Instances, boolean)}: the binary copy of the ARFF file (the file with the same name and 
+	 * the extension .bin) is read if it exists, is written in the current version of the binary format and the ARFF file has the length and the 
+	 * modification time recorded in the binary copy when it was written, otherwise the ARFF file is read
+	 * @param filename path to the ARFF dataset file
+	 * @param setClassAndID if true, sets the class and id attributes
+	 * @return the loaded dataset
+	 * @throws Exception if there was an error reading the dataset, setting the class or adding the id attribute
+	 */
+	public static Instances readDataset(String filename, boolean setClassAndID) throws Exception{
+		File binaryFile = new File(getBinaryFileName(filename));
+		if(BinaryInstances.isUpToDate(binaryFile, new File(filename)) && BinaryInstances.isCurrentVersion(binaryFile))
+			return readBinary(binaryFile.getPath(), setClassAndID);
+		return readArff(filename, setClassAndID);
+	}
+	
+	/**
+	 * Writes the dataset in ARFF format and, optionally, its binary copy for fast loading (see {@link #readDataset(String, boolean)}). 
+	 * An outdated binary copy is deleted if the binary copy is not written
+	 * @param filename path to the ARFF dataset file
+	 * @param instances the dataset to write
+	 * @param binary whether to write the binary copy
+	 * @throws Exception if there was an error writing the files
+	 */
+	public static void writeDataset(String filename, Instances instances, boolean binary) throws Exception{
+		writeArff(filename, instances);
+		File binaryFile = new File(getBinaryFileName(filename));
+		if(binary && BinaryInstances.isSupported(instances))
+			BinaryInstances.write(binaryFile.getPath(), instances, new File(filename));
+		else if(binaryFile.exists() && !binaryFile.delete())
+			throw new IOException("Problem deleting the outdated binary dataset: '" + binaryFile + "'");
+	}
+	
+	/**
+	 * Reads the dataset into the off-heap column store (see {@link ColumnStore} and {@link MappedInstances}): the column store file (the file with the 
+	 * same name and the extension .col) is built by streaming the ARFF file if it does not exist or the ARFF file was changed since it was built. 
+	 * The ARFF file should contain the id attribute (e.g. the data of the fold saved by {@link CoTrainingData#saveData(String)})
+	 * @param filename path to the ARFF dataset file
+	 * @param setClass if true, sets the class attribute
+	 * @return the dataset backed by the column store
+	 * @throws Exception
+	 * <ul>
+	 * <li> there was an error reading the ARFF file or building the column store
+	 * <li> class attribute is missing (there is no attribute in the dataset that matches the name of the class attribute given in the data properties)
+	 * </ul>
+	 */
+	public static Instances readMapped(String filename, boolean setClass) throws Exception{
+		File storeFile = new File((filename.endsWith(".arff") ? filename.substring(0, filename.length() - ".arff".length()) : filename) + ".col");
+		if(!ColumnStore.isUpToDate(storeFile, new File(filename)))
+			ColumnStore.build(filename, storeFile.getPath());
+		Instances dataset = new MappedInstances(ColumnStore.open(storeFile.getPath()));
+		if(setClass){
 			Attribute classAttribute = dataset.attribute(DatasetSettings.getInstance().getClassAttributeName());
-			if (classAttribute == null) {
-				throw new Exception("Problem setting class attribute: no attribute with name '" + DatasetSettings.getInstance().getClassAttributeName() + "'");	
-			}
+			if (classAttribute == null)
+				throw new Exception("Problem setting class attribute: no attribute with name '" + DatasetSettings.getInstance().getClassAttributeName() + "'");
 			dataset.setClass(classAttribute);
-		
-			if(shouldGenerateID(dataset))
-				try{
-					dataset = addIdAttribute(dataset);
-				}catch (Exception e) {
-					throw new Exception("Problem adding 'ID' attribute: " + e.getMessage());
-				}		
 		}
 		return dataset;
 	}
+	
+	private static String getBinaryFileName(String filename){
+		return (filename.endsWith(".arff") ? filename.substring(0, filename.length() - ".arff".length()) : filename) + ".bin";
+	}
+	
+	/**
+	 * Converts all instances of the dataset to the sparse representation ({@link SparseInstance}) that stores only the non-zero values. The 
+	 * conversion is done in place. Datasets with string attributes are left as they are (the first value of a string attribute would be lost 
+	 * when the sparse instances are written to ARFF). Datasets backed by the column store (see {@link MappedInstances}) are left as they are 
+	 * @param dataset the dataset to convert
+	 * @return the converted dataset
+	 */
+	public static Instances toSparse(Instances dataset){
+		if(dataset instanceof MappedInstances)
+			return dataset;
+		for(int att=0; att<dataset.numAttributes(); att++)
+			if(dataset.attribute(att).isString()){
+				System.out.println("WARNING: dataset '" + dataset.relationName() + "' has string attributes and will not be converted to the sparse representation");
+				return dataset;
+			}
+		for(int i=0; i<dataset.numInstances(); i++)
+			if(!isSparse(dataset.instance(i)))
+				dataset.set(i, new SparseInstance(dataset.instance(i)));
+		return dataset;
+	}
+	
+	/**
+	 * Converts the dense instances of the dataset to float instances ({@link FloatInstance}) that store the values in single precision. The 
+	 * conversion is done in place, sparse instances are left as they are. The dataset is left as it is if some instance id is not exactly 
+	 * representable in float (ids above 2^24), as the instances are found by their ids. Datasets backed by the column store (see 
+	 * {@link MappedInstances}) are left as they are (the column store already keeps the values in single precision)
+	 * @param dataset the dataset to convert
+	 * @return the converted dataset
+	 */
+	public static Instances toFloat(Instances dataset){
+		if(dataset instanceof MappedInstances)
+			return dataset;
+		String idName = DatasetSettings.getInstance().getIdAttributeName();
+		Attribute idAttribute = idName == null ? null : dataset.attribute(idName);
+		if(idAttribute != null)
+			for(int i=0; i<dataset.numInstances(); i++){
+				double id = dataset.instance(i).value(idAttribute);
+				if(!Double.isNaN(id) && (float) id != id){
+					System.out.println("WARNING: dataset '" + dataset.relationName() + "' has instance ids that cannot be stored in single precision and will not be converted to float instances");
+					return dataset;
+				}
+			}
+		for(int i=0; i<dataset.numInstances(); i++){
+			Instance instance = dataset.instance(i);
+			if(!isSparse(instance) && !isFloat(instance))
+				dataset.set(i, new FloatInstance(instance));
+		}
+		return dataset;
+	}
+	
+	/**
+	 * Converts the instances created by a WEKA filter back to float instances if the filtered dataset holds float instances (the filters 
+	 * create dense instances with double values)
+	 * @param input the filtered dataset
+	 * @param output the dataset created by the filter
+	 * @return the output dataset with the dense instances converted to float instances if the input holds float instances
+	 */
+	private static Instances keepFloat(Instances input, Instances output){
+		if(input.numInstances() == 0 || !isFloat(input.instance(0)))
+			return output;
+		for(int i=0; i<output.numInstances(); i++)
+			if(!isSparse(output.instance(i)))
+				output.set(i, new FloatInstance(output.instance(i)));
+		return output;
+	}
+	
+	/**
+	 * Returns whether the instance stores only its non-zero values ({@link SparseInstance} or the sparse {@link ViewInstance})
+	 * @param instance the instance
+	 * @return whether the instance is sparse
+	 */
+	public static boolean isSparse(Instance instance){
+		return instance instanceof SparseInstance || (instance instanceof ViewInstance && ((ViewInstance) instance).isSparse());
+	}
+	
+	/**
+	 * Returns whether the instance stores its values in single precision ({@link FloatInstance} or the {@link ViewInstance} created from it)
+	 * @param instance the instance
+	 * @return whether the instance stores the values in single precision
+	 */
+	public static boolean isFloat(Instance instance){
+		return instance instanceof FloatInstance || (instance instanceof ViewInstance && ((ViewInstance) instance).isFloat());
+	}
+	
+	/**
+	 * Binds the instances of the views of the dataset to the id and label columns shared by all views (see {@link SharedColumns}): each instance is 
+	 * replaced by the {@link ViewInstance} that stores only the features of the view and reads its id and label from the shared row, so relabeling the 
+	 * instance (see {@link #setLabel(Instances[], int, String)}) writes the label once for all views. Binding the views again gives them new columns. 
+	 * The views are left as they are if they are not aligned (the same number of instances with the same ids and labels in all views) or are backed 
+	 * by the column store (see {@link MappedInstances})
+	 * @param views different views of the dataset (each element from the array is one view)
+	 */
+	public static void bindSharedColumns(Instances[] views){
+		if(views == null || views.length == 0)
+			return;
+		int noInstances = views[0].numInstances();
+		int[] idIndex = new int[views.length];
+		for(int v=0; v<views.length; v++){
+			if(views[v] instanceof MappedInstances || views[v].numInstances() != noInstances)
+				return;
+			idIndex[v] = getIdIndex(views[v]);
+		}
+		SharedColumns columns = new SharedColumns(noInstances);
+		for(int i=0; i<noInstances; i++){
+			Instance instance = views[0].instance(i);
+			double id = instance.value(idIndex[0]);
+			double label = instance.value(views[0].classIndex());
+			for(int v=1; v<views.length; v++)
+				if(!sameValue(views[v].instance(i).value(idIndex[v]), id) || !sameValue(views[v].instance(i).value(views[v].classIndex()), label)){
+					System.out.println("WARNING: views of dataset '" + views[0].relationName() + "' are not aligned and will not share the id and label columns");
+					return;
+				}
+			columns.addRow(id, label);
+		}
+		for(int v=0; v<views.length; v++){
+			SharedColumns.Binding binding = new SharedColumns.Binding(columns, views[v].classIndex(), idIndex[v]);
+			for(int i=0; i<noInstances; i++){
+				views[v].set(i, new ViewInstance(views[v].instance(i), binding, i));
+				((ViewInstance) views[v].instance(i)).bindRow(binding, i); // the dataset stores a private copy of the instance
+			}
+		}
+	}
+	
+	/**
+	 * Binds the copies of the instance added to the views of the dataset to a new row of the id and label columns shared by the views (see 
+	 * {@link #bindSharedColumns(Instances[])}): a copy of the {@link ViewInstance} is private (keeps its own id and label), so the instance added to each view would 
+	 * otherwise be labeled separately. The instance is left as it is if the views are not made of {@link ViewInstance} objects
+	 * @param views different views of the dataset (each element from the array is one view)
+	 * @param instanceIndex index of the added instance
+	 */
+	public static void shareRow(Instances[] views, int instanceIndex){
+		SharedColumns.Binding[] bindings = new SharedColumns.Binding[views.length];
+		boolean bound = instanceIndex > 0; // bind to the columns shared by the first instance of the views
+		for(int v=0; v<views.length; v++){
+			if(views[v] instanceof MappedInstances || !(views[v].instance(instanceIndex) instanceof ViewInstance))
+				return;
+			if(bound){
+				Instance first = views[v].instance(0);
+				bound = first instanceof ViewInstance && !((ViewInstance) first).isPrivate();
+				if(bound){
+					bindings[v] = ((ViewInstance) first).getBinding();
+					bound = bindings[v].getColumns() == bindings[0].getColumns();
+				}
+			}
+		}
+		if(!bound){ // the views do not share columns yet, the instance starts new columns
+			SharedColumns columns = new SharedColumns(views[0].numInstances());
+			for(int v=0; v<views.length; v++){
+				SharedColumns.Binding binding = ((ViewInstance) views[v].instance(instanceIndex)).getBinding();
+				bindings[v] = new SharedColumns.Binding(columns, binding.getClassPosition(), binding.getIdPosition());
+			}
+		}
+		ViewInstance added = (ViewInstance) views[0].instance(instanceIndex);
+		int row = bindings[0].getColumns().addRow(added.getSharedId(), added.getSharedLabel());
+		for(int v=0; v<views.length; v++)
+			((ViewInstance) views[v].instance(instanceIndex)).bindRow(bindings[v], row);
+	}
+	
+	private static boolean sameValue(double value1, double value2){
+		return value1 == value2 || (Double.isNaN(value1) && Double.isNaN(value2));
+	}
+	
+	/**
+	 * Estimates the number of bytes the instances of the dataset take on the heap: the attribute values of a dense instance or the non-zero 
+	 * values and their indices of a sparse instance, plus the object headers and references (the attribute information is shared and not counted). 
+	 * For the dataset backed by the column store only the part held on the heap is counted (see {@link MappedInstances#getHeapFootprint()})
+	 * @param dataset the dataset
+	 * @return estimated heap footprint of the dataset in bytes
+	 */
+	public static long estimateFootprint(Instances dataset){
+		return estimateFootprint(dataset, new HashSet<SharedColumns>());
+	}
+	
+	/**
+	 * Estimates the number of bytes the instances of the dataset take on the heap (see {@link #estimateFootprint(Instances)}). The id and label 
+	 * columns shared by the views (see {@link #bindSharedColumns(Instances[])}) are counted once: the columns already in the given set are skipped
+	 * @param dataset the dataset
+	 * @param counted the shared columns already counted, the columns counted for this dataset are added
+	 * @return estimated heap footprint of the dataset in bytes
+	 */
+	public static long estimateFootprint(Instances dataset, Set<SharedColumns> counted){
+		if(dataset instanceof MappedInstances)
+			return ((MappedInstances) dataset).getHeapFootprint();
+		long bytes = 0;
+		for(int i=0; i<dataset.numInstances(); i++){
+			Instance instance = dataset.instance(i);
+			if(instance instanceof ViewInstance){
+				ViewInstance viewInstance = (ViewInstance) instance;
+				int noFeatures = viewInstance.numValues() - viewInstance.getBinding().getNoShared();
+				if(viewInstance.isSparse())
+					bytes += VIEW_INSTANCE_OVERHEAD + 16 + 12L * noFeatures; // indices array header, double value + int index
+				else
+					bytes += VIEW_INSTANCE_OVERHEAD + (viewInstance.isFloat() ? 4L : 8L) * noFeatures;
+				if(!viewInstance.isPrivate() && counted.add(viewInstance.getBinding().getColumns()))
+					bytes += 48 + 16L * viewInstance.getBinding().getColumns().size(); // columns object and array headers, id and label of each row
+			}else if(instance instanceof SparseInstance)
+				bytes += SPARSE_INSTANCE_OVERHEAD + 12L * instance.numValues(); // double value + int index
+			else if(instance instanceof FloatInstance)
+				bytes += FLOAT_INSTANCE_OVERHEAD + 4L * instance.numValues();
+			else
+				bytes += DENSE_INSTANCE_OVERHEAD + 8L * instance.numValues();
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Sets the class attribute (see classAttributeName in data properties) and tags the dataset with id if necessary 
+	 * @param dataset the dataset
+	 * @return the dataset with the class set and the id attribute
+	 * @throws Exception if the class attribute is missing or adding an id attribute failed
+	 */
+	private static Instances setClassAndID(Instances dataset) throws Exception{
+		Attribute classAttribute = dataset.attribute(DatasetSettings.getInstance().getClassAttributeName());
+		if (classAttribute == null) {
+			throw new Exception("Problem setting class attribute: no attribute with name '" + DatasetSettings.getInstance().getClassAttributeName() + "'");	
+		}
+		dataset.setClass(classAttribute);
+	
+		if(shouldGenerateID(dataset))
+			try{
+				dataset = addIdAttribute(dataset);
+			}catch (Exception e) {
+				throw new Exception("Problem adding 'ID' attribute: " + e.getMessage());
+			}		
+		return dataset;
+	}
 
 	/**
-	 * Tags the dataset with default id attribute (numeric, range [0, number_of_instances])
-	 * @param instances the dataset    
-	 * @return dataset with added id attribute
+	 * Tags the instances with id (adds a new attribute that represents the id of each instance)
+	 * @param instances dataset to tag
+	 * @return tagged dataset
 	 * @throws Exception if adding the id attribute failed
 	 */
 	private static Instances addIdAttribute(Instances instances) throws Exception{
@@ -170,6 +541,7 @@ public class InstancesManipulation {
 	public static void moveInstance(Instances[] sourceDataset, Instances[] destinationDataset, int instanceIndex){
 		for(int view=0; view < sourceDataset.length; view++)
 			moveInstance(sourceDataset[view], destinationDataset[view], instanceIndex);		
+		shareRow(destinationDataset, destinationDataset[0].numInstances() - 1);
 	}
 	
 	/**
@@ -221,12 +593,16 @@ public class InstancesManipulation {
 	}
 	
 	/**
-	 * Clones the dataset (deep copy)
+	 * Clones the dataset (deep copy). The copy of the dataset backed by the column store shares the store (see {@link MappedInstances#copy()})
 	 * @param instances dataset to be cloned
 	 * @return newly created dataset      
 	 */
 	public static Instances cloneDataset(Instances instances){
+		if(instances instanceof MappedInstances)
+			return ((MappedInstances) instances).copy();
 		Instances result = new Instances(instances);
+		if(result.numInstances() > 0 && result.instance(0) instanceof ViewInstance)
+			bindSharedColumns(new Instances[]{result}); // the copied instances share new columns instead of a private row each
 		return result;
 	}
 	
@@ -237,8 +613,16 @@ public class InstancesManipulation {
 	 */
 	public static Instances[] cloneDataset(Instances[] instances){
 		Instances result[] = new Instances[instances.length];
-		for(int i=0; i<instances.length; i++)
-			result[i] = cloneDataset(instances[i]);				
+		boolean shared = false;
+		for(int i=0; i<instances.length; i++){
+			if(instances[i] instanceof MappedInstances)
+				result[i] = ((MappedInstances) instances[i]).copy();
+			else
+				result[i] = new Instances(instances[i]);
+			shared |= result[i].numInstances() > 0 && result[i].instance(0) instanceof ViewInstance;
+		}
+		if(shared)
+			bindSharedColumns(result); // the copied instances share new columns instead of a private row each
 		return result;
 	}
 	
@@ -258,8 +642,11 @@ public class InstancesManipulation {
 	 * @param destinationDataset dataset to move to      
 	 */
 	public static void moveAllInstances(Instances[] sourceDataset, Instances[] destinationDataset){
+		int first = destinationDataset[0].numInstances();
 		for(int view = 0; view < sourceDataset.length; view++)
 			moveAllInstances(sourceDataset[view], destinationDataset[view]);	
+		for(int i=first; i<destinationDataset[0].numInstances(); i++)
+			shareRow(destinationDataset, i);
 	}
 	
 	/**
@@ -311,8 +698,54 @@ public class InstancesManipulation {
 	 * @return instance id 
 	 */
 	public static String getInstanceID(Instance instance){
-		Attribute idAtt = instance.dataset().attribute(DatasetSettings.getInstance().getIdAttributeName());
-		return ""+ instance.value(idAtt);
+		return ""+ getInstanceIdValue(instance);
+	}
+	
+	/**
+	 * Returns the value of instance id attribute
+	 * @param instance instance
+	 * @return instance id
+	 */
+	public static double getInstanceIdValue(Instance instance){
+		return instance.value(getIdIndex(instance.dataset()));
+	}
+	
+	/**
+	 * Returns the index of the id attribute in the dataset. WEKA finds the attribute by name by comparing it to the name of each attribute, so the 
+	 * loops over the instances of the dataset should find the index once instead of resolving the id for each instance by {@link #getInstanceID(Instance)}
+	 * @param dataset the dataset
+	 * @return index of the id attribute
+	 */
+	public static int getIdIndex(Instances dataset){
+		return dataset.attribute(DatasetSettings.getInstance().getIdAttributeName()).index();
+	}
+	
+	/**
+	 * Labels the instance in all views of the dataset. The label is resolved once (all views share the class attribute values) and the class value is 
+	 * written to the instance in each view, or once to the row of the instance if the views share the label column (see {@link #bindSharedColumns(Instances[])})
+	 * @param dataset different views of the dataset (each element from the array is one view)
+	 * @param instanceIndex index of the instance to label
+	 * @param label the label to assign
+	 * @throws IllegalArgumentException if the label is not a value of the class attribute
+	 */
+	public static void setLabel(Instances[] dataset, int instanceIndex, String label){
+		int classValue = dataset[0].classAttribute().indexOfValue(label);
+		if(classValue == -1)
+			throw new IllegalArgumentException("Value not defined.");
+		SharedColumns written = null; // the row of the instance is shared by the views, write it once
+		int writtenRow = -1;
+		for(Instances view : dataset){
+			Instance instance = view.instance(instanceIndex);
+			if(instance instanceof ViewInstance && !((ViewInstance) instance).isPrivate()){
+				ViewInstance viewInstance = (ViewInstance) instance;
+				if(viewInstance.getBinding().getColumns() != written || viewInstance.getRow() != writtenRow){
+					viewInstance.setSharedLabel(classValue);
+					written = viewInstance.getBinding().getColumns();
+					writtenRow = viewInstance.getRow();
+				}
+			}else
+				instance.setClassValue(classValue);
+		}
 	}
 	
 	/**
@@ -322,8 +755,12 @@ public class InstancesManipulation {
 	 * @return instance index in the given dataset or -1 if not found 
 	 */
 	public static int findInstance(Instances dataset, String instanceId){
+		if(dataset instanceof MappedInstances)
+			return ((MappedInstances) dataset).indexOfId(Double.parseDouble(instanceId));
+		int idIndex = getIdIndex(dataset);
+		double id = Double.parseDouble(instanceId);
 		for(int i=0; i<dataset.numInstances(); i++)
-			if( getInstanceID(dataset.instance(i)).equals(instanceId))
+			if(dataset.instance(i).value(idIndex) == id)
 				return i;
 		return -1;
 	}
@@ -411,6 +848,13 @@ public class InstancesManipulation {
 	 * @return dataset with attributes from both datasets
 	 */
 	public static Instances mergeAttributes(Instances dataset1, Instances dataset2){
+		if(dataset1 instanceof MappedInstances && dataset2 instanceof MappedInstances){ // merge the headers and keep the values in the column stores
+			try{
+				return MappedInstances.derive(mergeAttributes(new Instances(dataset1, 0), new Instances(dataset2, 0)), (MappedInstances) dataset1, (MappedInstances) dataset2);
+			}catch(Exception e){
+				throw new IllegalStateException("ERROR: error merging the attributes of memory-mapped datasets", e);
+			}
+		}
 		Instances tmpDataset1 = cloneDataset(dataset1);
 		Instances tmpDataset2 = cloneDataset(dataset2);
 		
@@ -421,11 +865,26 @@ public class InstancesManipulation {
 		int idAttIndex = tmpDataset2.attribute(DatasetSettings.getInstance().getIdAttributeName()).index();		
 		tmpDataset2.deleteAttributeAt(idAttIndex);
 		
-		tmpDataset1 = Instances.mergeInstances(tmpDataset1, tmpDataset2);
+		tmpDataset1 = mergeInstances(tmpDataset1, tmpDataset2);
 		tmpDataset1.setClass(tmpDataset1.attribute(DatasetSettings.getInstance().getClassAttributeName()));
 		return tmpDataset1;
 	}
 	
+	/**
+	 * Merges the instances of two datasets (see {@link Instances#mergeInstances(Instances, Instances)}) without densifying them: WEKA keeps the 
+	 * representation of the instance from the first dataset, so a dense instance from the first dataset is converted to the sparse representation 
+	 * before merging if the matching instance from the second dataset is sparse. The merged instance is sparse if any of the two is sparse
+	 * @param first the first dataset (its instances might be converted to the sparse representation)
+	 * @param second the second dataset
+	 * @return dataset with attributes from both datasets
+	 */
+	private static Instances mergeInstances(Instances first, Instances second){
+		for(int i=0; i<first.numInstances() && i<second.numInstances(); i++)
+			if(isSparse(second.instance(i)) && !isSparse(first.instance(i)))
+				first.set(i, new SparseInstance(first.instance(i)));
+		return Instances.mergeInstances(first, second);
+	}
+	
 	/**
 	 * Returns the total number of attributes in all views (class and id attribute are included in this count).
 	 * @param instances different views of the dataset
@@ -446,6 +905,8 @@ public class InstancesManipulation {
 	 * @throws Exception if there was an error removing the attributes
 	 */
 	public static Instances removeAllAttributes(Instances instances) throws Exception{
+		if(instances instanceof MappedInstances)
+			return MappedInstances.derive(removeAllAttributes(new Instances(instances, 0)), (MappedInstances) instances);
 		Remove removeFilter = new Remove();
 		int classAttIndex = instances.classIndex() + 1; // filter starts indexing from 1, not 0
 		int idIndex = instances.attribute(DatasetSettings.getInstance().getIdAttributeName()).index() + 1;
@@ -456,7 +917,7 @@ public class InstancesManipulation {
 		removeFilter.setInvertSelection(true);
 		try{
 			removeFilter.setInputFormat(instances);
-			return Filter.useFilter(instances, removeFilter);
+			return keepFloat(instances, Filter.useFilter(instances, removeFilter));
 		}catch(Exception e){
 			throw new Exception("ERROR: error removing all attributes from the dataset", e);
 		}
@@ -483,6 +944,8 @@ public class InstancesManipulation {
 		if(invertSelection){
 			attIndices += "," + (instances.classIndex()+1); // +1 because filter counts from 1 not 0
 		}
+		if(instances instanceof MappedInstances)
+			return MappedInstances.derive(removeAttributes(new Instances(instances, 0), indices, invertSelection), (MappedInstances) instances);
 		
 		Remove removeFilter = new Remove();
 		removeFilter.setAttributeIndices(attIndices);
@@ -490,7 +953,7 @@ public class InstancesManipulation {
 		
 		try{
 			removeFilter.setInputFormat(instances);
-			return Filter.useFilter(instances, removeFilter);
+			return keepFloat(instances, Filter.useFilter(instances, removeFilter));
 		}catch(Exception e){
 			throw new Exception("ERROR: error removing all attributes from the dataset", e);
 		}
@@ -505,6 +968,9 @@ public class InstancesManipulation {
 	 * @throws Exception if there was an error copying the attributes (e.g. maximum attribute index is n and one of the supplied attribute indices is greater than n)
 	 */
 	public static Instances copyAttributes(Instances origin, Instances destination, Set<Integer> indices) throws Exception{
+		if(origin instanceof MappedInstances && destination instanceof MappedInstances)
+			return MappedInstances.derive(copyAttributes(new Instances(origin, 0), new Instances(destination, 0), indices), 
+					(MappedInstances) destination, (MappedInstances) origin);
 		Instances tmpOrigin = cloneDataset(origin);
 		
 		// keep the given attributes in tmpOrigin
@@ -514,7 +980,7 @@ public class InstancesManipulation {
 		int classAttIndex = destination.classIndex();
 		destination.setClassIndex(-1);		
 		destination.deleteAttributeAt(classAttIndex);
-		destination = Instances.mergeInstances(destination, tmpOrigin);
+		destination = mergeInstances(destination, tmpOrigin);
 		String className = DatasetSettings.getInstance().getClassAttributeName();
 		destination.setClass(destination.attribute(className));
 		return destination;
@@ -540,9 +1006,10 @@ public class InstancesManipulation {
 		Map<Double, String> tmpPredictions = new HashMap<Double, String>();
 		tmpPredictions.putAll(predictions);
 		
+		int idIndex = getIdIndex(data.getLabeledData()[0]);
 		for(int i=0; i<data.getLabeledData()[0].size(); i++){
 			Instance inst = data.getLabeledData()[0].get(i);
-			double instID = Double.parseDouble(getInstanceID(inst));
+			double instID = inst.value(idIndex);
 			
 			if(!tmpPredictions.containsKey(instID)){ // instance is not found in predictions -> should be removed from the labeled data
 				for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++)
@@ -552,24 +1019,19 @@ public class InstancesManipulation {
 				// check label and re-label if necessary
 				String label = tmpPredictions.get(instID);
 				String currentLabel = getLabel(inst);
-				if(!currentLabel.equals(label)){
-					for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++)
-						data.getLabeledData()[viewInd].instance(i).setClassValue(label); // re-label instance in each view
-				}
+				if(!currentLabel.equals(label))
+					setLabel(data.getLabeledData(), i, label); // re-label instance in each view
 				tmpPredictions.remove(instID); // instance found an re-labeled, remove it from predictions. This is to check whether all instances for labeling are found
 			}
 		}
 		// search for the remaining instances that should be in the training set.
+		idIndex = getIdIndex(data.getUnlabeledData()[0]);
 		for(int i=0; i<data.getUnlabeledData()[0].size(); i++){
-			Instance inst = data.getUnlabeledData()[0].get(i);
-			double instID = Double.parseDouble(getInstanceID(inst));
+			double instID = data.getUnlabeledData()[0].get(i).value(idIndex);
 			if(tmpPredictions.containsKey(instID)){ // label and move to labeled
 				String label = tmpPredictions.get(instID);
-				for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++){
-					data.getUnlabeledData()[viewInd].instance(i).setClassValue(label);
-					data.getLabeledData()[viewInd].add(data.getUnlabeledData()[viewInd].instance(i));
-					data.getUnlabeledData()[viewInd].delete(i);
-				}
+				moveInstance(data.getUnlabeledData(), data.getLabeledData(), i);
+				setLabel(data.getLabeledData(), data.getLabeledData()[0].numInstances() - 1, label); // label the added copy (the unlabeled instance might be materialized on access)
 				i--;
 				tmpPredictions.remove(instID);
 			}
@@ -628,17 +1090,16 @@ public class InstancesManipulation {
 			data.setTestData(removeAllInstances(data.getTestData()));
 		}
 		
+		int idIndex = getIdIndex(data.getLabeledData()[0]);
 		for(int i=0; i<data.getLabeledData()[0].size(); i++){
 			Instance inst = data.getLabeledData()[0].get(i);
-			double instID = Double.parseDouble(getInstanceID(inst));
+			double instID = inst.value(idIndex);
 			if(tmpPredictions.containsKey(instID)){				
 				// check label and relabel if necessary
 				String label = tmpPredictions.get(instID);
 				String currentLabel = getLabel(inst);
-				if(!currentLabel.equals(label)){
-					for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++)
-						data.getLabeledData()[viewInd].instance(i).setClassValue(label);
-				}
+				if(!currentLabel.equals(label))
+					setLabel(data.getLabeledData(), i, label);
 				// move to test data
 				for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++){
 					data.getTestData()[viewInd].add(inst);
@@ -647,16 +1108,13 @@ public class InstancesManipulation {
 			}
 		}
 		
+		idIndex = getIdIndex(data.getUnlabeledData()[0]);
 		for(int i=0; i<data.getUnlabeledData()[0].size(); i++){
-			Instance inst = data.getUnlabeledData()[0].get(i);
-			double instID = Double.parseDouble(getInstanceID(inst));
+			double instID = data.getUnlabeledData()[0].get(i).value(idIndex);
 			if(tmpPredictions.containsKey(instID)){ // label and move to test
 				String label = tmpPredictions.get(instID);
-				for(int viewInd= 0; viewInd < data.getLabeledData().length; viewInd++){
-					data.getUnlabeledData()[viewInd].instance(i).setClassValue(label);
-					data.getTestData()[viewInd].add(data.getUnlabeledData()[viewInd].instance(i));
-					data.getUnlabeledData()[viewInd].delete(i);
-				}
+				moveInstance(data.getUnlabeledData(), data.getTestData(), i);
+				setLabel(data.getTestData(), data.getTestData()[0].numInstances() - 1, label); // label the added copy (the unlabeled instance might be materialized on access)
 				i--;
 				tmpPredictions.remove(instID);
 			}
@@ -0,0 +1,477 @@
+/** 	
+ * Name: MappedInstances.java
+ * 
+ * Purpose: WEKA Instances adapter over the off-heap column stores: rows are materialized on demand, so only the row references are kept on the heap.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Dataset whose instances are kept off the heap in one or more column stores (see {@link ColumnStore}). The dataset holds only its header and, 
+ * for each instance, the reference to the row of the store (4 bytes); the instance is materialized as a {@link DenseInstance} or a 
+ * {@link SparseInstance} (if the store is sparse) each time it is accessed, so the WEKA classifiers can be applied to the instances as usual.
+ * <p>
+ * Instances can be deleted and added. Added instances (e.g. the instances moved back from the pool) are kept on the heap until they are deleted 
+ * or replaced; their positions on the heap are then reused by the next added instances. The attributes of the 
+ * dataset can come from several stores that hold the same rows (e.g. the views of the unlabeled data): the datasets with the changed attribute 
+ * set (see {@link #derive(Instances, MappedInstances...)}) and copies of the dataset (see {@link #copy()}) share the stores.
+ * <p>
+ * The materialized instance is a copy: changing it does not change the dataset. Operations that rearrange the attributes in place 
+ * (e.g. {@link #deleteAttributeAt(int)}) and the WEKA operations that work directly on the list of instances (e.g. sorting) are not supported. 
+ */
+public class MappedInstances extends Instances {
+	private static final long serialVersionUID = 1L;
+	
+	private ColumnStore[] stores;
+	private int[] storeOf; // store of each attribute
+	private int[] columnOf; // column of each attribute in its store
+	private int[][] attributeOf; // for each store: the attribute index of each column (-1 if the column is not used)
+	private boolean sparse; // whether the materialized instances are sparse
+	/**
+	 * The row of the store for each instance, or -(k+1) for the k-th instance kept on the heap
+	 */
+	private int[] rows;
+	private int numRows;
+	private List<Instance> heapRows = new ArrayList<Instance>();
+	/**
+	 * Positions in {@link #heapRows} released by the deleted or replaced instances (null entries), reused by the next added instances
+	 */
+	private List<Integer> freeHeapRows = new ArrayList<Integer>();
+	
+	/**
+	 * Creates the dataset over all rows and attributes of the column store
+	 * @param store the column store
+	 */
+	public MappedInstances(ColumnStore store){
+		super(store.getHeader(), 0);
+		int[] columns = new int[store.numAttributes()];
+		for(int att=0; att<columns.length; att++)
+			columns[att] = att;
+		init(new ColumnStore[]{store}, new int[columns.length], columns);
+		numRows = store.numRows();
+		rows = new int[numRows];
+		for(int i=0; i<numRows; i++)
+			rows[i] = i;
+	}
+	
+	private MappedInstances(Instances header, ColumnStore[] stores, int[] storeOf, int[] columnOf){
+		super(header, 0);
+		init(stores, storeOf, columnOf);
+	}
+	
+	private void init(ColumnStore[] stores, int[] storeOf, int[] columnOf){
+		this.stores = stores;
+		this.storeOf = storeOf;
+		this.columnOf = columnOf;
+		attributeOf = new int[stores.length][];
+		for(int s=0; s<stores.length; s++){
+			attributeOf[s] = new int[stores[s].numAttributes()];
+			Arrays.fill(attributeOf[s], -1);
+			sparse |= stores[s].isSparse();
+		}
+		for(int att=0; att<storeOf.length; att++)
+			attributeOf[storeOf[att]][columnOf[att]] = att;
+	}
+	
+	/**
+	 * Creates the copy of the dataset. The copy shares the column stores, only the row references (and the instances kept on the heap) are copied
+	 * @return the copy
+	 */
+	public MappedInstances copy(){
+		MappedInstances copy = new MappedInstances(this, stores, storeOf, columnOf);
+		copy.rows = Arrays.copyOf(rows, Math.max(numRows, 1));
+		copy.numRows = numRows;
+		for(Instance instance : heapRows){
+			Instance instanceCopy = null;
+			if(instance != null){
+				instanceCopy = (Instance) instance.copy();
+				instanceCopy.setDataset(copy);
+			}
+			copy.heapRows.add(instanceCopy);
+		}
+		copy.freeHeapRows.addAll(freeHeapRows);
+		return copy;
+	}
+	
+	/**
+	 * Creates the dataset with the given header over the same instances as the source datasets. Each attribute of the header is taken from the first 
+	 * source dataset that has the attribute with the same name. Used to apply the operations that change the attribute set (e.g. removing attributes, 
+	 * merging views) without materializing the instances: the operation is applied to the empty headers and the result is derived from the sources
+	 * @param header the attributes (and the class) of the new dataset
+	 * @param sources the datasets that contain the attributes of the header. All sources must contain the same instances in the same order
+	 * @return the new dataset
+	 * @throws Exception if an attribute is missing in the sources or the sources contain different instances
+	 */
+	public static MappedInstances derive(Instances header, MappedInstances... sources) throws Exception{
+		Map<ColumnStore, Integer> storeIndex = new IdentityHashMap<ColumnStore, Integer>();
+		List<ColumnStore> stores = new ArrayList<ColumnStore>();
+		int[] storeOf = new int[header.numAttributes()];
+		int[] columnOf = new int[header.numAttributes()];
+		int[] sourceOf = new int[header.numAttributes()];
+		int[] sourceAttribute = new int[header.numAttributes()];
+		for(int att=0; att<header.numAttributes(); att++){
+			String name = header.attribute(att).name();
+			sourceOf[att] = -1;
+			for(int s=0; s<sources.length && sourceOf[att] == -1; s++)
+				if(sources[s].attribute(name) != null){
+					sourceOf[att] = s;
+					sourceAttribute[att] = sources[s].attribute(name).index();
+				}
+			if(sourceOf[att] == -1)
+				throw new Exception("ERROR: attribute " + name + " not found in the memory-mapped datasets");
+			MappedInstances source = sources[sourceOf[att]];
+			ColumnStore store = source.stores[source.storeOf[sourceAttribute[att]]];
+			if(!storeIndex.containsKey(store)){
+				storeIndex.put(store, stores.size());
+				stores.add(store);
+			}
+			storeOf[att] = storeIndex.get(store);
+			columnOf[att] = source.columnOf[sourceAttribute[att]];
+		}
+		
+		MappedInstances result = new MappedInstances(new Instances(header, 0), stores.toArray(new ColumnStore[stores.size()]), storeOf, columnOf);
+		int numRows = sources[0].numRows;
+		result.rows = new int[Math.max(numRows, 1)];
+		for(int i=0; i<numRows; i++){
+			boolean onHeap = false;
+			for(MappedInstances source : sources){
+				if(source.numRows != numRows)
+					throw new Exception("ERROR: memory-mapped datasets with different numbers of instances cannot be combined");
+				onHeap |= source.rows[i] < 0;
+				if(source.rows[i] >= 0 && source.rows[i] != sources[0].rows[i])
+					throw new Exception("ERROR: memory-mapped datasets with different instances cannot be combined");
+			}
+			if(onHeap){ // build the instance from the values of the sources
+				double[] values = new double[header.numAttributes()];
+				double weight = sources[0].get(i).weight();
+				for(int att=0; att<values.length; att++)
+					values[att] = sources[sourceOf[att]].get(i).value(sourceAttribute[att]);
+				Instance instance = result.sparse ? new SparseInstance(weight, values) : new DenseInstance(weight, values);
+				instance.setDataset(result);
+				result.heapRows.add(instance);
+				result.rows[i] = -result.heapRows.size();
+			}else
+				result.rows[i] = sources[0].rows[i];
+		}
+		result.numRows = numRows;
+		return result;
+	}
+	
+	/**
+	 * Materializes the instance stored in the given row
+	 */
+	private Instance materialize(int row){
+		if(row < 0)
+			return heapRows.get(-row - 1);
+		Instance instance;
+		if(sparse){
+			int numValues = 0;
+			int[] indices = new int[16];
+			double[] values = new double[16];
+			for(int s=0; s<stores.length; s++){
+				ColumnStore store = stores[s];
+				int idAttribute = attributeOf[s][store.getIdIndex()];
+				if(idAttribute != -1){
+					if(numValues == indices.length){
+						indices = Arrays.copyOf(indices, 2 * numValues);
+						values = Arrays.copyOf(values, 2 * numValues);
+					}
+					indices[numValues] = idAttribute;
+					values[numValues++] = store.getId(row);
+				}
+				if(store.isSparse()){
+					long end = store.getRowStart(row + 1);
+					for(long pos=store.getRowStart(row); pos<end; pos++){
+						int att = attributeOf[s][store.getIndexAt(pos)];
+						if(att == -1)
+							continue;
+						if(numValues == indices.length){
+							indices = Arrays.copyOf(indices, 2 * numValues);
+							values = Arrays.copyOf(values, 2 * numValues);
+						}
+						indices[numValues] = att;
+						values[numValues++] = store.getValueAt(pos);
+					}
+				}else{
+					for(int column=0; column<store.numAttributes(); column++){
+						int att = attributeOf[s][column];
+						if(att == -1 || column == store.getIdIndex())
+							continue;
+						double value = store.getValue(column, row);
+						if(value == 0)
+							continue;
+						if(numValues == indices.length){
+							indices = Arrays.copyOf(indices, 2 * numValues);
+							values = Arrays.copyOf(values, 2 * numValues);
+						}
+						indices[numValues] = att;
+						values[numValues++] = value;
+					}
+				}
+			}
+			sortByIndex(indices, values, numValues);
+			instance = new SparseInstance(stores[0].getWeight(row), Arrays.copyOf(values, numValues), Arrays.copyOf(indices, numValues), numAttributes());
+		}else{
+			double[] values = new double[numAttributes()];
+			for(int att=0; att<values.length; att++){
+				ColumnStore store = stores[storeOf[att]];
+				values[att] = columnOf[att] == store.getIdIndex() ? store.getId(row) : store.getValue(columnOf[att], row);
+			}
+			instance = new DenseInstance(stores[0].getWeight(row), values);
+		}
+		instance.setDataset(this);
+		return instance;
+	}
+	
+	private static void sortByIndex(int[] indices, double[] values, int length){
+		for(int i=1; i<length; i++){ // insertion sort: the values of each store are already sorted
+			int index = indices[i];
+			double value = values[i];
+			int j = i - 1;
+			while(j >= 0 && indices[j] > index){
+				indices[j + 1] = indices[j];
+				values[j + 1] = values[j];
+				j--;
+			}
+			indices[j + 1] = index;
+			values[j + 1] = value;
+		}
+	}
+	
+	/**
+	 * Returns the position of the instance with the given id without materializing the instances
+	 * @param id the id of the instance
+	 * @return the position of the instance or -1 if the dataset does not contain it
+	 */
+	public int indexOfId(double id){
+		int idAttribute = attribute(experimentSetting.DatasetSettings.getInstance().getIdAttributeName()).index();
+		ColumnStore store = stores[storeOf[idAttribute]];
+		for(int i=0; i<numRows; i++){
+			double instanceId = rows[i] < 0 ? heapRows.get(-rows[i] - 1).value(idAttribute) : store.getId(rows[i]);
+			if(instanceId == id)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the estimated number of bytes the dataset takes on the heap: the row references and the instances kept on the heap (the instances 
+	 * deleted from the dataset are released and not counted)
+	 * @return the estimated heap footprint in bytes
+	 */
+	public long getHeapFootprint(){
+		long bytes = 4L * rows.length + 8L * heapRows.size();
+		for(Instance instance : heapRows)
+			if(instance != null)
+				bytes += 48 + 12L * instance.numValues();
+		return bytes;
+	}
+	
+	/**
+	 * Keeps the copy of the instance on the heap, in a released position if there is one
+	 * @return the row reference of the instance
+	 */
+	private int addHeapRow(Instance instance){
+		Instance copy = (Instance) instance.copy();
+		copy.setDataset(this);
+		if(freeHeapRows.isEmpty()){
+			heapRows.add(copy);
+			return -heapRows.size();
+		}
+		int position = freeHeapRows.remove(freeHeapRows.size() - 1);
+		heapRows.set(position, copy);
+		return -position - 1;
+	}
+	
+	/**
+	 * Releases the instance kept on the heap when it is deleted from the dataset or replaced (rows of the store are not affected)
+	 */
+	private void releaseRow(int row){
+		if(row < 0){
+			heapRows.set(-row - 1, null);
+			freeHeapRows.add(-row - 1);
+		}
+	}
+	
+	private void ensureCapacity(int capacity){
+		if(rows.length < capacity)
+			rows = Arrays.copyOf(rows, Math.max(capacity, 2 * rows.length));
+	}
+	
+	private void checkIndex(int index){
+		if(index < 0 || index >= numRows)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numRows);
+	}
+	
+	@Override
+	public int numInstances() {
+		return numRows;
+	}
+	@Override
+	public int size() {
+		return numRows;
+	}
+	@Override
+	public Instance instance(int index) {
+		return get(index);
+	}
+	@Override
+	public Instance get(int index) {
+		checkIndex(index);
+		return materialize(rows[index]);
+	}
+	@Override
+	public Instance firstInstance() {
+		return numRows == 0 ? null : get(0);
+	}
+	@Override
+	public Instance lastInstance() {
+		return numRows == 0 ? null : get(numRows - 1);
+	}
+	@Override
+	public boolean add(Instance instance) {
+		add(numRows, instance);
+		return true;
+	}
+	@Override
+	public void add(int index, Instance instance) {
+		if(index < 0 || index > numRows)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numRows);
+		int row = addHeapRow(instance);
+		ensureCapacity(numRows + 1);
+		System.arraycopy(rows, index, rows, index + 1, numRows - index);
+		rows[index] = row;
+		numRows++;
+	}
+	@Override
+	public Instance set(int index, Instance instance) {
+		Instance old = get(index);
+		int row = addHeapRow(instance);
+		releaseRow(rows[index]);
+		rows[index] = row;
+		return old;
+	}
+	@Override
+	public void delete(int index) {
+		checkIndex(index);
+		releaseRow(rows[index]);
+		System.arraycopy(rows, index + 1, rows, index, numRows - index - 1);
+		numRows--;
+	}
+	@Override
+	public Instance remove(int index) {
+		Instance instance = get(index);
+		delete(index);
+		return instance;
+	}
+	@Override
+	public void delete() {
+		numRows = 0;
+		heapRows.clear();
+		freeHeapRows.clear();
+	}
+	@Override
+	public void swap(int i, int j) {
+		checkIndex(i);
+		checkIndex(j);
+		int row = rows[i];
+		rows[i] = rows[j];
+		rows[j] = row;
+	}
+	@Override
+	public double sumOfWeights() {
+		double sum = 0;
+		for(int i=0; i<numRows; i++)
+			sum += get(i).weight();
+		return sum;
+	}
+	@Override
+	public Enumeration<Instance> enumerateInstances() {
+		return new Enumeration<Instance>() {
+			private int next = 0;
+			@Override
+			public boolean hasMoreElements() {
+				return next < numRows;
+			}
+			@Override
+			public Instance nextElement() {
+				if(next >= numRows)
+					throw new NoSuchElementException();
+				return get(next++);
+			}
+		};
+	}
+	@Override
+	protected void copyInstances(int from, Instances dest, int num) {
+		for(int i=0; i<num; i++)
+			dest.add(get(from + i));
+	}
+	@Override
+	protected String stringWithoutHeader() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<numRows; i++){
+			text.append(get(i).toString());
+			if(i < numRows - 1)
+				text.append('\n');
+		}
+		return text.toString();
+	}
+	@Override
+	public void deleteAttributeAt(int position) {
+		throw new UnsupportedOperationException("deleting attributes of a memory-mapped dataset in place is not supported");
+	}
+	@Override
+	public void insertAttributeAt(weka.core.Attribute att, int position) {
+		throw new UnsupportedOperationException("inserting attributes into a memory-mapped dataset in place is not supported");
+	}
+	@Override
+	public void sort(int attIndex) {
+		throw new UnsupportedOperationException("sorting a memory-mapped dataset is not supported");
+	}
+	@Override
+	public void stratify(int numFolds) {
+		throw new UnsupportedOperationException("stratifying a memory-mapped dataset is not supported");
+	}
+	@Override
+	public void deleteWithMissing(int attIndex) {
+		throw new UnsupportedOperationException("deleting instances with missing values from a memory-mapped dataset is not supported");
+	}
+}
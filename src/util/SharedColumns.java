@@ -0,0 +1,183 @@
+/** 	
+ * Name: SharedColumns.java
+ * 
+ * Purpose: The id and label columns of a dataset shared by all of its views.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The id and label (class value) columns of the instances of a dataset, shared by all views of the dataset (see {@link ViewInstance}). Each instance 
+ * occupies one row: the instances that represent the same instance in different views refer to the same row, so the instance is labeled in all views 
+ * by a single write to the label column (see {@link InstancesManipulation#setLabel(weka.core.Instances[], int, String)}). 
+ * <p>
+ * The columns only grow: the rows of the instances removed from the dataset are not reused
+ */
+public class SharedColumns implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	protected double[] ids;
+	protected double[] labels;
+	protected int size = 0;
+	
+	/**
+	 * Creates the empty columns
+	 * @param capacity initial number of rows
+	 */
+	public SharedColumns(int capacity){
+		ids = new double[Math.max(capacity, 1)];
+		labels = new double[Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Adds a row to the columns
+	 * @param id instance id
+	 * @param label class value of the instance
+	 * @return the number of the added row
+	 */
+	public int addRow(double id, double label){
+		if(size == ids.length){
+			ids = Arrays.copyOf(ids, size * 2);
+			labels = Arrays.copyOf(labels, size * 2);
+		}
+		ids[size] = id;
+		labels[size] = label;
+		return size++;
+	}
+	
+	/**
+	 * Returns the number of rows
+	 * @return number of rows
+	 */
+	public int size(){
+		return size;
+	}
+	
+	public double getId(int row){
+		return ids[row];
+	}
+	public void setId(int row, double id){
+		ids[row] = id;
+	}
+	public double getLabel(int row){
+		return labels[row];
+	}
+	public void setLabel(int row, double label){
+		labels[row] = label;
+	}
+	
+	/**
+	 * Binding of one view of the dataset to the shared columns: positions of the class and the id attribute in the view, whose values are read from 
+	 * the shared columns. The remaining attributes of the view are the features, stored by each instance (see {@link ViewInstance}). A feature is 
+	 * addressed by its index among the features, i.e. the attribute index without the class and id positions. The private instances (see 
+	 * {@link ViewInstance#isPrivate()}) keep the binding only for the positions, the columns are not read  
+	 */
+	public static class Binding implements Serializable {
+		private static final long serialVersionUID = 1L;
+		
+		protected final SharedColumns columns;
+		protected final int classPosition;
+		protected final int idPosition;
+		/** the lower and the higher of the class and id positions, -1 if missing */
+		protected final int first, second;
+		
+		/**
+		 * Creates the binding of the view to the columns
+		 * @param columns the shared columns
+		 * @param classPosition index of the class attribute in the view (-1 if the view has no class attribute)
+		 * @param idPosition index of the id attribute in the view (-1 if the view has no id attribute)
+		 */
+		public Binding(SharedColumns columns, int classPosition, int idPosition){
+			this.columns = columns;
+			this.classPosition = classPosition;
+			this.idPosition = idPosition;
+			int low = Math.min(classPosition, idPosition);
+			int high = Math.max(classPosition, idPosition);
+			first = low >= 0 ? low : high;
+			second = low >= 0 ? high : -1;
+		}
+		
+		public SharedColumns getColumns(){
+			return columns;
+		}
+		public int getClassPosition(){
+			return classPosition;
+		}
+		public int getIdPosition(){
+			return idPosition;
+		}
+		
+		/**
+		 * Returns the number of the attributes of the view read from the shared columns
+		 * @return the number of the shared attributes (0, 1 or 2)
+		 */
+		public int getNoShared(){
+			return (first >= 0 ? 1 : 0) + (second >= 0 ? 1 : 0);
+		}
+		
+		/**
+		 * Returns whether the attribute is read from the shared columns
+		 * @param attIndex attribute index
+		 * @return true if the attribute is the class or the id attribute
+		 */
+		public boolean isShared(int attIndex){
+			return attIndex == first || attIndex == second;
+		}
+		
+		/**
+		 * Maps the feature index to the attribute index
+		 * @param feature feature index
+		 * @return attribute index
+		 */
+		public int toAttribute(int feature){
+			int attIndex = feature;
+			if(first >= 0 && attIndex >= first)
+				attIndex++;
+			if(second >= 0 && attIndex >= second)
+				attIndex++;
+			return attIndex;
+		}
+		
+		/**
+		 * Maps the attribute index to the feature index 
+		 * @param attIndex attribute index (not the class or the id attribute)
+		 * @return feature index
+		 */
+		public int toFeature(int attIndex){
+			int feature = attIndex;
+			if(first >= 0 && attIndex > first)
+				feature--;
+			if(second >= 0 && attIndex > second)
+				feature--;
+			return feature;
+		}
+	}
+}
@@ -0,0 +1,495 @@
+/** 	
+ * Name: ViewInstance.java
+ * 
+ * Purpose: WEKA instance of one view that stores only the features of the view and reads the id and label from the columns shared by all views.
+ * 
+ * Author: Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * Copyright: (c) 2016 Jelena Slivka <slivkaje AT uns DOT ac DOT rs>
+ * 
+ * This file is a part of RSSalg software, a flexible, highly configurable tool for experimenting 
+ * with co-training based techniques. RSSalg Software encompasses the implementation of 
+ * co-training and RSSalg, a co-training based technique that can be applied to single-view 
+ * datasets published in the paper: 
+ * 
+ * Slivka, J., Kovacevic, A. and Konjovic, Z., 2013. 
+ * Combining Co-Training with Ensemble Learning for Application on Single-View Natural 
+ * Language Datasets. Acta Polytechnica Hungarica, 10(2).
+ *   
+ * RSSalg software is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RSSalg software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package util;
+
+import java.util.Arrays;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Instance of one view of the dataset that stores only the features of the view: the values of the class and the id attribute are read from the 
+ * row of the columns shared by all views of the dataset (see {@link SharedColumns}). Relabeling the instance through the shared columns (see 
+ * {@link InstancesManipulation#setLabel(weka.core.Instances[], int, String)}) is a single write that labels the instance in all views.
+ * <p>
+ * The features keep the representation of the instance the view instance was created from: sparse (only the non-zero values are stored, as in 
+ * {@link SparseInstance}), single precision (as in {@link FloatInstance}) or dense. As in {@link DenseInstance}, the copies of the instance share the 
+ * feature values until one of them is modified. The row of the shared columns is not shared with the copies: a copy (e.g. the instance added to 
+ * another dataset or the training data copied by a classifier) is private, it keeps its id and label in two fields of its own, so the labels 
+ * written to the shared columns later do not change it. The binding of a private instance only gives the positions of the class and the id 
+ * attribute, its columns are not read. The instances added to the views of the dataset are bound to the shared row again (see 
+ * {@link InstancesManipulation#shareRow(weka.core.Instances[], int)}). Writing the class or the id value through the instance (e.g. 
+ * {@link #setClassMissing()}) or changing its attributes detaches the instance in the same way, so the other views are not affected
+ */
+public class ViewInstance extends AbstractInstance {
+	private static final long serialVersionUID = 1L;
+	
+	protected SharedColumns.Binding binding;
+	/** row of the instance in the shared columns, -1 if the instance is private */
+	protected int row;
+	/** id and label of the private instance (not read if the instance is bound to the row of the shared columns) */
+	protected double id, label;
+	/** number of the features (attributes of the view that are not read from the shared columns) */
+	protected int numFeatures;
+	/** feature indices of the stored values of the sparse instance, null if the instance is not sparse */
+	protected int[] indices;
+	/** feature values, null if the instance stores the values in single precision */
+	protected double[] values;
+	/** feature values in single precision, null if the instance stores the values in double precision */
+	protected float[] floatValues;
+	
+	/**
+	 * Creates the instance of the view bound to the row of the shared columns. The features are copied from the given instance in its representation 
+	 * (sparse, single precision or dense), the values of its class and id attributes are ignored. The dataset is not set
+	 * @param instance the instance to copy the features from
+	 * @param binding the binding of the view to the shared columns
+	 * @param row row of the instance in the shared columns
+	 */
+	public ViewInstance(Instance instance, SharedColumns.Binding binding, int row){
+		this.binding = binding;
+		this.row = row;
+		m_Weight = instance.weight();
+		m_Dataset = null;
+		numFeatures = instance.numAttributes() - binding.getNoShared();
+		if(instance instanceof ViewInstance && sameFeatures(((ViewInstance) instance).binding, binding)){
+			ViewInstance other = (ViewInstance) instance;
+			indices = other.indices;
+			values = other.values;
+			floatValues = other.floatValues;
+		}else if(instance instanceof SparseInstance || (instance instanceof ViewInstance && ((ViewInstance) instance).indices != null)){
+			indices = new int[instance.numValues()];
+			values = new double[instance.numValues()];
+			int stored = 0;
+			for(int position=0; position<instance.numValues(); position++){
+				int attIndex = instance.index(position);
+				if(binding.isShared(attIndex))
+					continue;
+				indices[stored] = binding.toFeature(attIndex);
+				values[stored++] = instance.valueSparse(position);
+			}
+			indices = Arrays.copyOf(indices, stored);
+			values = Arrays.copyOf(values, stored);
+		}else if(instance instanceof FloatInstance || (instance instanceof ViewInstance && ((ViewInstance) instance).floatValues != null)){
+			floatValues = new float[numFeatures];
+			for(int feature=0; feature<numFeatures; feature++)
+				floatValues[feature] = (float) instance.value(binding.toAttribute(feature));
+		}else{
+			values = new double[numFeatures];
+			for(int feature=0; feature<numFeatures; feature++)
+				values[feature] = instance.value(binding.toAttribute(feature));
+		}
+	}
+	
+	/**
+	 * Creates the private copy of the instance that shares the feature values. The copy keeps the id and label of the instance in its own fields
+	 * @param instance the instance to copy
+	 */
+	protected ViewInstance(ViewInstance instance){
+		binding = instance.binding;
+		row = -1;
+		id = instance.getSharedId();
+		label = instance.getSharedLabel();
+		numFeatures = instance.numFeatures;
+		indices = instance.indices;
+		values = instance.values;
+		floatValues = instance.floatValues;
+		m_Weight = instance.m_Weight;
+		m_Dataset = null;
+	}
+	
+	private static boolean sameFeatures(SharedColumns.Binding binding1, SharedColumns.Binding binding2){
+		return binding1.classPosition == binding2.classPosition && binding1.idPosition == binding2.idPosition;
+	}
+	
+	/**
+	 * Returns the binding of the instance to the shared columns
+	 * @return the binding
+	 */
+	public SharedColumns.Binding getBinding(){
+		return binding;
+	}
+	
+	/**
+	 * Returns the row of the instance in the shared columns
+	 * @return the row, -1 if the instance is private
+	 */
+	public int getRow(){
+		return row;
+	}
+	
+	/**
+	 * Returns whether the instance is private: it keeps its own id and label instead of reading them from the row of the shared columns
+	 * @return whether the instance is private
+	 */
+	public boolean isPrivate(){
+		return row < 0;
+	}
+	
+	/**
+	 * Returns whether the instance stores only the non-zero feature values
+	 * @return whether the instance is sparse
+	 */
+	public boolean isSparse(){
+		return indices != null;
+	}
+	
+	/**
+	 * Returns whether the instance stores the feature values in single precision
+	 * @return whether the instance stores the values in single precision
+	 */
+	public boolean isFloat(){
+		return floatValues != null;
+	}
+	
+	/**
+	 * Returns the id of the instance: read from the row of the shared columns, or the own id of the private instance
+	 * @return the id, 0 if the view has no id attribute
+	 */
+	public double getSharedId(){
+		if(binding.idPosition < 0)
+			return 0;
+		return row < 0 ? id : binding.columns.getId(row);
+	}
+	/**
+	 * Returns the label (class value) of the instance: read from the row of the shared columns, or the own label of the private instance
+	 * @return the label, 0 if the view has no class attribute
+	 */
+	public double getSharedLabel(){
+		if(binding.classPosition < 0)
+			return 0;
+		return row < 0 ? label : binding.columns.getLabel(row);
+	}
+	
+	/**
+	 * Binds the instance to the row of the shared columns: the id and label of the instance are replaced by the values in the row
+	 * @param binding the binding of the view to the shared columns (must have the class and id attribute of the instance at the same positions)
+	 * @param row row of the instance in the shared columns
+	 */
+	public void bindRow(SharedColumns.Binding binding, int row){
+		this.binding = binding;
+		this.row = row;
+	}
+	
+	/**
+	 * Writes the label to the shared columns (the instance is labeled in all views that share the row). The private instance keeps the label
+	 * @param label the class value
+	 */
+	public void setSharedLabel(double label){
+		if(row < 0)
+			this.label = label;
+		else
+			binding.columns.setLabel(row, label);
+	}
+	
+	@Override
+	public Object copy() {
+		ViewInstance result = new ViewInstance(this);
+		result.m_Dataset = m_Dataset;
+		return result;
+	}
+
+	@Override
+	public int index(int position) {
+		if(indices == null)
+			return position;
+		int entry = getEntry(position);
+		return entry >= 0 ? binding.toAttribute(indices[entry]) : -entry - 1;
+	}
+	
+	/**
+	 * Returns the stored feature value at the position of the sparse instance: the shared attributes are listed among the stored values 
+	 * @param position position among the stored values including the shared attributes
+	 * @return index of the stored feature value or -(attribute index + 1) if the position is of the shared attribute
+	 */
+	private int getEntry(int position){
+		int first = binding.first;
+		if(first < 0)
+			return position;
+		int before = lowerBound(indices, first); // feature values before the first shared attribute
+		if(position < before)
+			return position;
+		if(position == before)
+			return -first - 1;
+		int second = binding.second;
+		if(second < 0)
+			return position - 1;
+		int between = lowerBound(indices, second - 1); // feature values before the second shared attribute
+		if(position <= between)
+			return position - 1;
+		if(position == between + 1)
+			return -second - 1;
+		return position - 2;
+	}
+	
+	/**
+	 * Returns the number of the elements of the sorted array smaller than the key
+	 */
+	private static int lowerBound(int[] array, int key){
+		int position = Arrays.binarySearch(array, key);
+		return position >= 0 ? position : -position - 1;
+	}
+
+	@Override
+	public Instance mergeInstance(Instance inst) {
+		double[] merged = new double[numAttributes() + inst.numAttributes()];
+		System.arraycopy(toDoubleArray(), 0, merged, 0, numAttributes());
+		System.arraycopy(inst.toDoubleArray(), 0, merged, numAttributes(), inst.numAttributes());
+		if(indices != null || InstancesManipulation.isSparse(inst))
+			return new SparseInstance(1.0, merged);
+		if(floatValues != null)
+			return new FloatInstance(1.0, merged);
+		return new DenseInstance(1.0, merged);
+	}
+
+	@Override
+	public int numAttributes() {
+		return numFeatures + binding.getNoShared();
+	}
+
+	@Override
+	public int numValues() {
+		if(indices == null)
+			return numAttributes();
+		return indices.length + binding.getNoShared();
+	}
+
+	@Override
+	public void replaceMissingValues(double[] array) {
+		if(array == null || array.length != numAttributes())
+			throw new IllegalArgumentException("Unequal number of attributes!");
+		double[] full = toDoubleArray();
+		boolean missing = false;
+		for(int i=0; i<full.length; i++)
+			if(Utils.isMissingValue(full[i])){
+				full[i] = array[i];
+				missing = true;
+			}
+		if(missing)
+			setValues(full, binding.classPosition, binding.idPosition);
+	}
+
+	@Override
+	public void setValue(int attIndex, double value) {
+		if(binding.isShared(attIndex)){
+			detach();
+			if(attIndex == binding.classPosition)
+				label = value;
+			else
+				id = value;
+			return;
+		}
+		int feature = binding.toFeature(attIndex);
+		if(indices == null){
+			if(floatValues != null){
+				floatValues = floatValues.clone();
+				floatValues[feature] = (float) value;
+			}else{
+				values = values.clone();
+				values[feature] = value;
+			}
+			return;
+		}
+		int entry = Arrays.binarySearch(indices, feature);
+		if(entry >= 0){
+			if(value != 0){
+				values = values.clone();
+				values[entry] = value;
+			}else{ // remove the stored value
+				int[] newIndices = new int[indices.length - 1];
+				double[] newValues = new double[values.length - 1];
+				System.arraycopy(indices, 0, newIndices, 0, entry);
+				System.arraycopy(values, 0, newValues, 0, entry);
+				System.arraycopy(indices, entry + 1, newIndices, entry, indices.length - entry - 1);
+				System.arraycopy(values, entry + 1, newValues, entry, values.length - entry - 1);
+				indices = newIndices;
+				values = newValues;
+			}
+		}else if(value != 0){ // insert the stored value
+			entry = -entry - 1;
+			int[] newIndices = new int[indices.length + 1];
+			double[] newValues = new double[values.length + 1];
+			System.arraycopy(indices, 0, newIndices, 0, entry);
+			System.arraycopy(values, 0, newValues, 0, entry);
+			newIndices[entry] = feature;
+			newValues[entry] = value;
+			System.arraycopy(indices, entry, newIndices, entry + 1, indices.length - entry);
+			System.arraycopy(values, entry, newValues, entry + 1, values.length - entry);
+			indices = newIndices;
+			values = newValues;
+		}
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		setValue(index(indexOfIndex), value);
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		double[] result = new double[numAttributes()];
+		if(binding.classPosition >= 0)
+			result[binding.classPosition] = getSharedLabel();
+		if(binding.idPosition >= 0)
+			result[binding.idPosition] = getSharedId();
+		if(indices != null){
+			for(int entry=0; entry<indices.length; entry++)
+				result[binding.toAttribute(indices[entry])] = values[entry];
+		}else{
+			for(int feature=0; feature<numFeatures; feature++)
+				result[binding.toAttribute(feature)] = floatValues != null ? floatValues[feature] : values[feature];
+		}
+		return result;
+	}
+
+	@Override
+	public String toStringNoWeight() {
+		StringBuilder text = new StringBuilder();
+		if(indices == null){
+			for(int i=0; i<numAttributes(); i++){
+				if(i > 0)
+					text.append(",");
+				text.append(toString(i));
+			}
+			return text.toString();
+		}
+		text.append("{");
+		for(int position=0; position<numValues(); position++){
+			if(position > 0)
+				text.append(",");
+			text.append(index(position)).append(" ").append(toString(index(position)));
+		}
+		text.append("}");
+		return text.toString();
+	}
+
+	@Override
+	public double value(int attIndex) {
+		if(attIndex == binding.classPosition)
+			return getSharedLabel();
+		if(attIndex == binding.idPosition)
+			return getSharedId();
+		int feature = binding.toFeature(attIndex);
+		if(indices == null)
+			return floatValues != null ? floatValues[feature] : values[feature];
+		int entry = Arrays.binarySearch(indices, feature);
+		return entry >= 0 ? values[entry] : 0;
+	}
+	
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		if(indices == null)
+			return value(indexOfIndex);
+		int entry = getEntry(indexOfIndex);
+		return entry >= 0 ? values[entry] : value(-entry - 1);
+	}
+
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+		double[] full = toDoubleArray();
+		double[] newFull = new double[full.length - 1];
+		System.arraycopy(full, 0, newFull, 0, position);
+		System.arraycopy(full, position + 1, newFull, position, full.length - position - 1);
+		setValues(newFull, shiftDeleted(binding.classPosition, position), shiftDeleted(binding.idPosition, position));
+	}
+
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+		double[] full = toDoubleArray();
+		double[] newFull = new double[full.length + 1];
+		System.arraycopy(full, 0, newFull, 0, position);
+		newFull[position] = Utils.missingValue();
+		System.arraycopy(full, position, newFull, position + 1, full.length - position);
+		setValues(newFull, shiftInserted(binding.classPosition, position), shiftInserted(binding.idPosition, position));
+	}
+	
+	private static int shiftDeleted(int sharedPosition, int deleted){
+		if(sharedPosition < 0 || sharedPosition == deleted)
+			return -1;
+		return sharedPosition > deleted ? sharedPosition - 1 : sharedPosition;
+	}
+	
+	private static int shiftInserted(int sharedPosition, int inserted){
+		if(sharedPosition < 0)
+			return -1;
+		return sharedPosition >= inserted ? sharedPosition + 1 : sharedPosition;
+	}
+	
+	/**
+	 * Detaches the instance from the shared columns: the instance becomes private and keeps the id and label of its row
+	 */
+	private void detach(){
+		if(row < 0)
+			return;
+		id = getSharedId();
+		label = getSharedLabel();
+		row = -1;
+	}
+	
+	/**
+	 * Replaces all values of the instance (the instance becomes private), keeping the representation of the features
+	 * @param full values of all attributes
+	 * @param classPosition position of the class attribute (-1 if missing)
+	 * @param idPosition position of the id attribute (-1 if missing)
+	 */
+	private void setValues(double[] full, int classPosition, int idPosition){
+		binding = new SharedColumns.Binding(binding.columns, classPosition, idPosition);
+		row = -1;
+		id = idPosition >= 0 ? full[idPosition] : 0;
+		label = classPosition >= 0 ? full[classPosition] : 0;
+		numFeatures = full.length - binding.getNoShared();
+		if(indices != null){
+			int stored = 0;
+			for(int attIndex=0; attIndex<full.length; attIndex++)
+				if(!binding.isShared(attIndex) && full[attIndex] != 0)
+					stored++;
+			indices = new int[stored];
+			values = new double[stored];
+			stored = 0;
+			for(int attIndex=0; attIndex<full.length; attIndex++)
+				if(!binding.isShared(attIndex) && full[attIndex] != 0){
+					indices[stored] = binding.toFeature(attIndex);
+					values[stored++] = full[attIndex];
+				}
+		}else if(floatValues != null){
+			floatValues = new float[numFeatures];
+			for(int feature=0; feature<numFeatures; feature++)
+				floatValues[feature] = (float) full[binding.toAttribute(feature)];
+		}else{
+			values = new double[numFeatures];
+			for(int feature=0; feature<numFeatures; feature++)
+				values[feature] = full[binding.toAttribute(feature)];
+		}
+	}
+}